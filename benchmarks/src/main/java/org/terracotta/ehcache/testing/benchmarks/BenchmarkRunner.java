@@ -0,0 +1,58 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count, with the GC profiler, to show both the cost of each
+ * hot path and how it scales.
+ * <p>
+ * System properties :
+ * <ul>
+ *   <li><tt>benchmark.include</tt> : regexp of the benchmarks to run (default all)</li>
+ *   <li><tt>benchmark.threads</tt> : comma separated thread counts (default 1 and the number of cpus)</li>
+ * </ul>
+ * Any command line argument switches to the plain JMH command line, e.g. <tt>java -jar benchmarks.jar -h</tt>
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0) {
+      Main.main(args);
+      return;
+    }
+
+    String include = System.getProperty("benchmark.include", ".*");
+    String threadCounts = System.getProperty("benchmark.threads", "1," + Runtime.getRuntime().availableProcessors());
+    for (String threadCount : threadCounts.split(",")) {
+      int threads = Integer.parseInt(threadCount.trim());
+      Options options = new OptionsBuilder()
+          .include(include)
+          .threads(threads)
+          .addProfiler(GCProfiler.class)
+          .resultFormat(ResultFormatType.CSV)
+          .result("jmh-result-" + threads + "-threads.csv")
+          .build();
+      new Runner(options).run();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of drawing a seed : through a {@link Distribution.Sampler} as random sequences do,
+ * and through {@link Distribution#generate(Random, long, long, long)} which recomputes the constants on each call
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DistributionBenchmark {
+
+  private static final long MINIMUM = 0;
+  private static final long MAXIMUM = 10000000;
+  private static final long WIDTH = 100000;
+
+  @Param
+  public Distribution distribution;
+
+  private Random rndm;
+  private Distribution.Sampler sampler;
+
+  @Setup
+  public void setup() {
+    rndm = XoshiroRandom.newStream();
+    sampler = distribution.createSampler(MINIMUM, MAXIMUM, WIDTH);
+  }
+
+  @Benchmark
+  public long sampler() {
+    return sampler.next(rndm);
+  }
+
+  @Benchmark
+  public long generate() {
+    return distribution.generate(rndm, MINIMUM, MAXIMUM, WIDTH);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.operation.OperationMix;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operation selection : {@link OperationMix} alias table against the former linear scan of the operations set
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OperationMixBenchmark {
+
+  @Param({ "2", "8" })
+  public int operationsCount;
+
+  private final Set<CacheOperation> operations = new LinkedHashSet<CacheOperation>();
+  private OperationMix mix;
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < operationsCount; i++) {
+      operations.add(operation(1.0 / operationsCount));
+    }
+    mix = new OperationMix(operations);
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadRandom {
+    final Random rnd = XoshiroRandom.newStream();
+  }
+
+  @Benchmark
+  public CacheOperation aliasTable(ThreadRandom random) {
+    return mix.select(random.rnd);
+  }
+
+  @Benchmark
+  public CacheOperation linearScan(ThreadRandom random) {
+    double d = random.rnd.nextDouble();
+    double min, max = 0.0;
+    CacheOperation selected = null;
+    for (CacheOperation operation : operations) {
+      min = max;
+      max = min + operation.getRatio();
+      if (d >= min && d < max)
+        selected = operation;
+    }
+    return selected;
+  }
+
+  private static CacheOperation operation(final double ratio) {
+    return new CacheOperation(ratio) {
+      @Override
+      public Object exec(final GenericCacheWrapper cacheWrapper, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return "OP";
+      }
+    };
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.statistics.Histogram;
+import org.terracotta.ehcache.testing.statistics.Stats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording a latency : in a {@link Stats} shared by all the threads as the cache stats are,
+ * and in a {@link Histogram} owned by the thread
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedStats {
+    final Stats stats = new Stats();
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadHistogram {
+    final Histogram histogram = new Histogram();
+  }
+
+  @State(Scope.Thread)
+  public static class Latencies {
+    private long latency = 1000;
+
+    /**
+     * @return latencies between 1us and ~4ms
+     */
+    long next() {
+      latency = (latency * 6364136223846793005L + 1442695040888963407L);
+      return 1000 + ((latency >>> 42) & 0x3fffff);
+    }
+  }
+
+  @Benchmark
+  public void statsAdd(SharedStats shared, Latencies latencies) {
+    shared.stats.add(latencies.next());
+  }
+
+  @Benchmark
+  public void histogramAdd(ThreadHistogram thread, Latencies latencies) {
+    thread.histogram.add(latencies.next());
+  }
+}
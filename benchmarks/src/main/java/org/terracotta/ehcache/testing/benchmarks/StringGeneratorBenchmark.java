@@ -0,0 +1,68 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link StringGenerator#generate(long)}, generators being shared by the threads as in a load test
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringGeneratorBenchmark {
+
+  @Param({ "integers", "chars", "randomString" })
+  public String generator;
+
+  @Param({ "10", "100" })
+  public int length;
+
+  private ObjectGenerator objectGenerator;
+
+  @Setup
+  public void setup() {
+    if ("integers".equals(generator)) {
+      objectGenerator = StringGenerator.integers();
+    } else if ("chars".equals(generator)) {
+      objectGenerator = StringGenerator.chars(length);
+    } else {
+      objectGenerator = StringGenerator.randomString(length);
+    }
+  }
+
+  @Benchmark
+  public Object generate(Seeds seeds) {
+    return objectGenerator.generate(seeds.next());
+  }
+}
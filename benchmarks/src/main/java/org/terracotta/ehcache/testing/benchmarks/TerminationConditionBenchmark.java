@@ -0,0 +1,72 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.termination.IterationTerminationCondition;
+import org.terracotta.ehcache.testing.termination.TerminationCondition;
+import org.terracotta.ehcache.testing.termination.TimedTerminationCondition;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking a termination condition after each operation, one condition per thread as in the accessors,
+ * compared with reading the clock every time
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class TerminationConditionBenchmark {
+
+  @Param({ "clock", "timed", "iterations" })
+  public String termination;
+
+  private TerminationCondition.Condition condition;
+  private long end;
+
+  @Setup
+  public void setup() {
+    end = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+    if ("timed".equals(termination)) {
+      condition = new TimedTerminationCondition(1, TimeUnit.HOURS).createCondition();
+    } else if ("iterations".equals(termination)) {
+      condition = new IterationTerminationCondition(Long.MAX_VALUE).createCondition();
+    }
+  }
+
+  @Benchmark
+  public boolean isMet() {
+    if (condition == null) {
+      return System.nanoTime() - end > 0;
+    }
+    return condition.isMet();
+  }
+}
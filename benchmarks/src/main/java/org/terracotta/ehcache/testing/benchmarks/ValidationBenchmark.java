@@ -0,0 +1,82 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.validator.ChecksumValidation;
+import org.terracotta.ehcache.testing.validator.EqualityValidation;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating a value read from a cache : equality with a regenerated value, or checksum of a
+ * {@link ChecksumGenerator} value
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+  private static final int VALUES = 1024;
+
+  @Param({ "equality", "checksum" })
+  public String validation;
+
+  @Param({ "1024", "8192" })
+  public int size;
+
+  private Validation.Validator validator;
+  private Object[] values;
+
+  @Setup
+  public void setup() {
+    ObjectGenerator generator;
+    if ("equality".equals(validation)) {
+      generator = ByteArrayGenerator.fixedSize(size);
+      validator = new EqualityValidation().createValidator(generator);
+    } else {
+      generator = ChecksumGenerator.fixedSize(size);
+      validator = new ChecksumValidation().createValidator(generator);
+    }
+    values = new Object[VALUES];
+    for (int i = 0; i < VALUES; i++) {
+      values[i] = generator.generate(i);
+    }
+  }
+
+  @Benchmark
+  public void validate(Seeds seeds) {
+    int seed = (int)(seeds.next() % VALUES);
+    validator.validate(seed, values[seed]);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.validator.EqualityValidation;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating a value read from the cache with the equality validator
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+
+  private static final long SEED = 42;
+
+  @Param({ "integers", "byteArray128", "byteArray1024" })
+  public String values;
+
+  private Validation.Validator validator;
+  private Object value;
+
+  @Setup
+  public void setup() {
+    ObjectGenerator valueGenerator;
+    if ("integers".equals(values)) {
+      valueGenerator = StringGenerator.integers();
+    } else if ("byteArray128".equals(values)) {
+      valueGenerator = ByteArrayGenerator.fixedSize(128);
+    } else {
+      valueGenerator = ByteArrayGenerator.fixedSize(1024);
+    }
+    validator = new EqualityValidation().createValidator(valueGenerator);
+    value = valueGenerator.generate(SEED);
+  }
+
+  @Benchmark
+  public void validate() {
+    validator.validate(SEED, value);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ValuePool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost and allocation rate of {@link ValuePool} values, compared with generating each value
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValuePoolBenchmark {
+
+  @Param({ "generated", "shared", "copied" })
+  public String pool;
+
+  @Param({ "1024", "8192" })
+  public int size;
+
+  @Param({ "1024" })
+  public int poolSize;
+
+  private ObjectGenerator objectGenerator;
+
+  @Setup
+  public void setup() {
+    ObjectGenerator values = ByteArrayGenerator.fixedSize(size);
+    if ("generated".equals(pool)) {
+      objectGenerator = values;
+    } else if ("shared".equals(pool)) {
+      objectGenerator = ValuePool.shared(values, poolSize);
+    } else {
+      objectGenerator = ValuePool.copied(values, poolSize);
+    }
+  }
+
+  @Benchmark
+  public Object generate(Seeds seeds) {
+    return objectGenerator.generate(seeds.next());
+  }
+}
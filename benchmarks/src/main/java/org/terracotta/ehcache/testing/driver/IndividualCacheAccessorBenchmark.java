@@ -0,0 +1,100 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.driver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
+import org.terracotta.ehcache.testing.sequencegenerator.SequenceGenerator;
+import org.terracotta.ehcache.testing.termination.IterationTerminationCondition;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.nullCache;
+
+/**
+ * Cost of the whole {@link IndividualCacheAccessor#runOnce(long, Validation.Validator)} (seed, operation selection,
+ * key and value generation, stats and validation) against the null cache : this is the overhead the load
+ * tester adds to each cache operation. The {@link ConcurrentMapWrapper#concurrentMap(String)} cache gives
+ * a well known baseline.
+ * <p>
+ * Lives in the driver package to call the protected {@link IndividualCacheAccessor#init()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndividualCacheAccessorBenchmark {
+
+  @Param({ "null", "concurrentMap" })
+  public String cache;
+
+  @Param({ "true", "false" })
+  public boolean statistics;
+
+  @Param({ "true", "false" })
+  public boolean validation;
+
+  private IndividualCacheAccessor accessor;
+  private Validation.Validator validator;
+
+  @Setup
+  public void setup() {
+    GenericCacheWrapper cacheWrapper = "null".equals(cache) ? nullCache("null") : concurrentMap("concurrentMap");
+    accessor = new IndividualCacheAccessor(cacheWrapper);
+    accessor.using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(128))
+        .atRandom(Distribution.GAUSSIAN, 0, 1000000, 10000)
+        .terminateOn(new IterationTerminationCondition(Long.MAX_VALUE));
+    accessor.enableStatistics(statistics);
+    if (validation) {
+      accessor.validate(Validation.Mode.UPDATE);
+      validator = accessor.getValidation().createValidator(accessor.getValueGenerator());
+    }
+    accessor.init();
+  }
+
+  @State(Scope.Thread)
+  public static class Sequence {
+    SequenceGenerator.Sequence seeds;
+
+    @Setup
+    public void setup(IndividualCacheAccessorBenchmark benchmark) {
+      seeds = benchmark.accessor.getSequenceGenerator().createSequence();
+    }
+  }
+
+  @Benchmark
+  public void runOnce(Sequence sequence) {
+    accessor.runOnce(sequence.seeds.next(), validator);
+  }
+}
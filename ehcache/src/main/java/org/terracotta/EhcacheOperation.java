@@ -17,17 +17,23 @@ package org.terracotta;
 
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
-import net.sf.ehcache.constructs.nonstop.NonStopCacheException;
-import net.sf.ehcache.constructs.nonstop.RejoinCacheException;
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.driver.ArrivalSchedule;
 import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.operation.BatchCacheOperation;
 import org.terracotta.ehcache.testing.operation.CacheOperation;
 import org.terracotta.ehcache.testing.validator.Validation;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public class EhcacheOperation {
 
   public enum OPERATIONS {
-    GET, UPDATE, REMOVE, REMOVE_ELEMENT, REPLACE, REPLACE_ELEMENT, PUT, PUT_IF_ABSENT, PUT_WITH_WRITER, PUT_CONTROLLED_THROUGHPUT;
+    GET, UPDATE, REMOVE, REMOVE_ELEMENT, REPLACE, REPLACE_ELEMENT, PUT, PUT_IF_ABSENT, PUT_WITH_WRITER, PUT_CONTROLLED_THROUGHPUT,
+    GET_ALL, PUT_ALL, REMOVE_ALL;
   }
 
   public static CacheOperation get(final double ratio) {
@@ -37,13 +43,12 @@ public class EhcacheOperation {
       public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
         Element value = null;
         Object key = keyGenerator.generate(seed);
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        beforeRead(validator, seed);
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           value = ((Ehcache)cache.getCache()).get(key);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getReadStats(), start, e);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -61,7 +66,17 @@ public class EhcacheOperation {
           }
         } else {
           if (value == null) {
-            ((Ehcache)cache.getCache()).put(new Element(key, valueGenerator.generate(seed)));
+            Element missing = new Element(key, beginWrite(validator, valueGenerator, seed));
+            boolean written = false;
+            long putStart = (cache.isStatisticsEnabled()) ? now() : 0;
+            try {
+              ((Ehcache)cache.getCache()).put(missing);
+              written = true;
+            } catch (RuntimeException e) {
+              throw failed(cache, cache.getWriteStats(), putStart, e);
+            } finally {
+              endWrite(validator, seed, written);
+            }
           } else if (validator != null) {
             validator.validate(seed, value.getObjectValue());
           }
@@ -82,14 +97,17 @@ public class EhcacheOperation {
       @Override
       public Boolean exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
         boolean removed = false;
+        boolean done = false;
         Object key = keyGenerator.generate(seed);
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        beginRemoveKey(validator, seed);
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           removed = ((Ehcache)cache.getCache()).remove(key);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+          done = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getRemoveStats(), start, e);
+        } finally {
+          endWrite(validator, seed, done);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -111,14 +129,14 @@ public class EhcacheOperation {
       @Override
       public Boolean exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
         boolean removed = false;
-        Element elementToRemove = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        Element elementToRemove = new Element(keyGenerator.generate(seed), beginRemove(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           removed = ((Ehcache)cache.getCache()).removeElement(elementToRemove);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getRemoveStats(), start, e);
+        } finally {
+          endWrite(validator, seed, removed);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -141,14 +159,16 @@ public class EhcacheOperation {
       @Override
       public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
         Element element = null;
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        boolean written = false;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           element = ((Ehcache)cache.getCache()).putIfAbsent(elementToPut);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+          written = element == null;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -170,14 +190,16 @@ public class EhcacheOperation {
 
       @Override
       public Void exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        boolean written = false;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           ((Ehcache)cache.getCache()).put(elementToPut);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+          written = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -199,14 +221,16 @@ public class EhcacheOperation {
 
       @Override
       public Void exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        boolean written = false;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           ((Ehcache)cache.getCache()).putWithWriter(elementToPut);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+          written = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -229,15 +253,15 @@ public class EhcacheOperation {
       @Override
       public Boolean exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
         boolean replaced = false;
-        Element oldElementToTestAgainst = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        Element oldElementToTestAgainst = new Element(keyGenerator.generate(seed), currentValue(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           replaced = ((Ehcache)cache.getCache()).replace(oldElementToTestAgainst, elementToPut);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, replaced);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -260,14 +284,14 @@ public class EhcacheOperation {
       @Override
       public Element exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
         Element oldReplacedElement = null;
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           oldReplacedElement = ((Ehcache)cache.getCache()).replace(elementToPut);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, oldReplacedElement != null);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -289,14 +313,16 @@ public class EhcacheOperation {
 
       @Override
       public Void exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
+        boolean written = false;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
         try {
           ((Ehcache)cache.getCache()).put(elementToPut);
-        } catch (NonStopCacheException nsce) {
-          cache.getReadStats().incrementTotalExceptionCount();
-        } catch (RejoinCacheException rce) {
-          cache.getReadStats().incrementTotalExceptionCount();
+          written = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -313,7 +339,9 @@ public class EhcacheOperation {
   }
 
   /**
-   * Put Elements in the cache with a limit on the max TPS
+   * Put Elements in the cache with a limit on the max TPS (system property <tt>tpsThreshold</tt>).
+   * The puts of this operation are issued on a fixed rate timeline shared by all threads,
+   * latencies are measured from the intended start of each put.
    *
    * @param ratio % of put operations
    * @return null
@@ -321,27 +349,25 @@ public class EhcacheOperation {
   public static CacheOperation putWithControlledThroughput(final double ratio) {
 
     final int tpsThreshold = Integer.getInteger("tpsThreshold", -1);
+    final ArrivalSchedule schedule = (tpsThreshold != -1) ? new ArrivalSchedule(tpsThreshold) : null;
 
     return new CacheOperation(ratio) {
       @Override
       public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
-        if (tpsThreshold != -1) {
-          while (cache.getWriteStats().getThroughput() > tpsThreshold) {
-            try {
-              Thread.sleep(10);
-            } catch (InterruptedException e) {
-              e.printStackTrace();
-            }
-          }
+        long intendedStart = (schedule != null) ? schedule.awaitNext() : 0;
+        boolean written = false;
+        Element elementToPut = new Element(keyGenerator.generate(seed), beginWrite(validator, valueGenerator, seed));
+        long start = 0;
+        if (cache.isStatisticsEnabled()) {
+          start = (schedule != null) ? intendedStart : startTime();
         }
-        Element elementToPut = new Element(keyGenerator.generate(seed), valueGenerator.generate(seed));
-        long start = (cache.isStatisticsEnabled()) ? now() : 0;
         try {
           ((Ehcache)cache.getCache()).put(elementToPut);
-        } catch (RejoinCacheException rce) {
-          cache.getWriteStats().incrementTotalExceptionCount();
-        } catch (NonStopCacheException nsce) {
-          cache.getWriteStats().incrementTotalExceptionCount();
+          written = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
         }
         if (cache.isStatisticsEnabled()) {
           long end = now();
@@ -356,4 +382,116 @@ public class EhcacheOperation {
       }
     };
   }
+
+  /**
+   * Reads a batch of keys in one call, elements missing in UPDATE mode are put back in one call too
+   */
+  public static CacheOperation getAll(final double ratio, final int batchSize) {
+    return new BatchCacheOperation(ratio, batchSize) {
+
+      @Override
+      public Map<Object, Element> execBatch(final GenericCacheWrapper cache, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        List<Object> keys = new ArrayList<Object>(seeds.length);
+        for (long seed : seeds) {
+          keys.add(keyGenerator.generate(seed));
+        }
+        Map<Object, Element> values = Collections.emptyMap();
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          values = ((Ehcache)cache.getCache()).getAll(keys);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getReadStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          recordBatch(cache, cache.getReadStats(), start, seeds.length);
+        }
+
+        boolean strict = Validation.Mode.STRICT.equals(getValidationMode());
+        if (strict && validator == null) {
+          throw new AssertionError("Validator is null");
+        }
+        List<Element> missing = new ArrayList<Element>();
+        for (int i = 0; i < seeds.length; i++) {
+          Element value = values.get(keys.get(i));
+          if (strict) {
+            validator.validate(seeds[i], value == null ? null : value.getObjectValue());
+          } else if (value == null) {
+            missing.add(new Element(keys.get(i), valueGenerator.generate(seeds[i])));
+          } else if (validator != null) {
+            validator.validate(seeds[i], value.getObjectValue());
+          }
+        }
+        if (!missing.isEmpty()) {
+          long putStart = (cache.isStatisticsEnabled()) ? now() : 0;
+          try {
+            ((Ehcache)cache.getCache()).putAll(missing);
+          } catch (RuntimeException e) {
+            throw failed(cache, cache.getWriteStats(), putStart, e);
+          }
+        }
+        return values;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.GET_ALL.name();
+      }
+    };
+  }
+
+  public static CacheOperation putAll(final double ratio, final int batchSize) {
+    return new BatchCacheOperation(ratio, batchSize) {
+
+      @Override
+      public Void execBatch(final GenericCacheWrapper cache, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        List<Element> elements = new ArrayList<Element>(seeds.length);
+        for (long seed : seeds) {
+          elements.add(new Element(keyGenerator.generate(seed), valueGenerator.generate(seed)));
+        }
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          ((Ehcache)cache.getCache()).putAll(elements);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          recordBatch(cache, cache.getWriteStats(), start, seeds.length);
+        }
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.PUT_ALL.name();
+      }
+    };
+  }
+
+  public static CacheOperation removeAll(final double ratio, final int batchSize) {
+    return new BatchCacheOperation(ratio, batchSize) {
+
+      @Override
+      public Void execBatch(final GenericCacheWrapper cache, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        List<Object> keys = new ArrayList<Object>(seeds.length);
+        for (long seed : seeds) {
+          keys.add(keyGenerator.generate(seed));
+        }
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          ((Ehcache)cache.getCache()).removeAll(keys);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getRemoveStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          recordBatch(cache, cache.getRemoveStats(), start, seeds.length);
+        }
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.REMOVE_ALL.name();
+      }
+    };
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.scenario.CacheProvider;
+import org.terracotta.ehcache.testing.scenario.Scenario;
+
+/**
+ * Creates the Ehcache caches of a scenario with <tt>cache.provider = ehcache</tt>, from the configuration file
+ * set by <tt>ehcache.config</tt>. Caches missing from the configuration are created from its default cache.
+ */
+public class EhcacheProvider implements CacheProvider {
+
+  public static final String EHCACHE_CONFIG = "ehcache.config";
+
+  private CacheManager cacheManager;
+
+  @Override
+  public boolean supports(final String type) {
+    return "ehcache".equals(type);
+  }
+
+  @Override
+  public GenericCacheWrapper[] createCaches(final Scenario scenario, final String[] names) {
+    cacheManager = CacheManager.newInstance(scenario.require(EHCACHE_CONFIG));
+    Ehcache[] caches = new Ehcache[names.length];
+    for (int i = 0; i < names.length; i++) {
+      caches[i] = cacheManager.addCacheIfAbsent(names[i]);
+    }
+    return EhcacheWrapper.ehcache(caches);
+  }
+
+  @Override
+  public Class<?> getOperations() {
+    return EhcacheOperation.class;
+  }
+
+  @Override
+  public void close() {
+    if (cacheManager != null) {
+      cacheManager.shutdown();
+      cacheManager = null;
+    }
+  }
+}
@@ -96,6 +96,7 @@ public class EhcacheWrapper extends GenericCacheWrapper {
     return EhcacheOperation.get(ratio);
   }
 
+  @Override
   public long getOnHeapSize() {
     try {
       return MemoryUnit.BYTES.toKiloBytes(this.ehcache.getStatistics().getLocalHeapSizeInBytes());
@@ -108,6 +109,7 @@ public class EhcacheWrapper extends GenericCacheWrapper {
     }
   }
 
+  @Override
   public long getOffHeapSize() {
     try {
       return MemoryUnit.BYTES.toKiloBytes(this.ehcache.getStatistics().getLocalOffHeapSizeInBytes());
@@ -120,6 +122,7 @@ public class EhcacheWrapper extends GenericCacheWrapper {
     }
   }
 
+  @Override
   public long getOnDiskSize() {
     try {
       return MemoryUnit.BYTES.toKiloBytes(this.ehcache.getStatistics().getLocalDiskSizeInBytes());
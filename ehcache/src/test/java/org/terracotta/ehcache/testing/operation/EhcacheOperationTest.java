@@ -18,6 +18,7 @@ package org.terracotta.ehcache.testing.operation;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.terracotta.EhcacheOperation;
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
@@ -25,6 +26,8 @@ import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
 import org.terracotta.ehcache.testing.statistics.Stats;
 import org.terracotta.ehcache.testing.validator.Validation;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -70,4 +73,32 @@ public class EhcacheOperationTest {
 
   }
 
+  @Test
+  public void testLatencyIsMeasuredFromIntendedStart() {
+    CacheOperation operation = EhcacheOperation.put(1.0);
+    GenericCacheWrapper cacheWrapper = mock(GenericCacheWrapper.class);
+    ObjectGenerator keyGenerator = mock(ObjectGenerator.class);
+    ObjectGenerator valueGenerator = mock(ObjectGenerator.class);
+    Stats stats = mock(Stats.class);
+    Ehcache ehcache = mock(Ehcache.class);
+
+    when(keyGenerator.generate(1L)).thenReturn("key");
+    when(valueGenerator.generate(1L)).thenReturn("value");
+    when(cacheWrapper.isStatisticsEnabled()).thenReturn(true);
+    when(cacheWrapper.getWriteStats()).thenReturn(stats);
+    when((Ehcache)cacheWrapper.getCache()).thenReturn(ehcache);
+
+    // operation supposed to start one second ago, e.g. blocked behind a stalled one
+    CacheOperation.setIntendedStartTime(System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+    try {
+      operation.exec(cacheWrapper, 1L, keyGenerator, valueGenerator, null);
+    } finally {
+      CacheOperation.clearIntendedStartTime();
+    }
+
+    ArgumentCaptor<Long> latency = ArgumentCaptor.forClass(Long.class);
+    verify(stats).add(latency.capture());
+    assertThat(latency.getValue() >= TimeUnit.SECONDS.toNanos(1), is(true));
+  }
+
 }
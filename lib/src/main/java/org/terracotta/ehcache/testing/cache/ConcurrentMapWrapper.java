@@ -0,0 +1,100 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.cache;
+
+import org.slf4j.Logger;
+import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.operation.ConcurrentMapOperation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Built-in caches, to measure the load tester itself and get a baseline to compare real caches with :
+ * <ul>
+ *   <li>{@link #concurrentMap(String)} : a {@link ConcurrentHashMap}, unbounded</li>
+ *   <li>{@link #nullCache(String)} : a cache storing nothing, every get is a miss, so that a scenario run against it
+ *   measures the throughput ceiling of the driver loop, generators, stats and validators.
+ *   STRICT validation always fails against it.</li>
+ * </ul>
+ * Operations are created by {@link ConcurrentMapOperation}.
+ */
+public class ConcurrentMapWrapper extends GenericCacheWrapper {
+
+  private final String name;
+  private final ConcurrentMap<Object, Object> map;
+
+  public static GenericCacheWrapper concurrentMap(final String name) {
+    return new ConcurrentMapWrapper(name, new ConcurrentHashMap<Object, Object>());
+  }
+
+  public static GenericCacheWrapper[] concurrentMaps(final String... names) {
+    GenericCacheWrapper[] caches = new GenericCacheWrapper[names.length];
+    for (int i = 0; i < names.length; i++) {
+      caches[i] = concurrentMap(names[i]);
+    }
+    return caches;
+  }
+
+  public static GenericCacheWrapper nullCache(final String name) {
+    return new ConcurrentMapWrapper(name, NullCache.INSTANCE);
+  }
+
+  public ConcurrentMapWrapper(final String name, final ConcurrentMap<Object, Object> map) {
+    this.name = name;
+    this.map = map;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getCache() {
+    return map;
+  }
+
+  @Override
+  public long getSize() {
+    return map.size();
+  }
+
+  @Override
+  public void logMemoryInfo(final Logger logger) {
+    logger.info("Cache name = {} \t\t Size={}", getName(), getSize());
+  }
+
+  @Override
+  public String getDefaultLoaderOperationName() {
+    return ConcurrentMapOperation.OPERATIONS.PUT.name();
+  }
+
+  @Override
+  public String getDefaultAccessorOperationName() {
+    return ConcurrentMapOperation.OPERATIONS.GET.name();
+  }
+
+  @Override
+  public CacheOperation getDefaultLoaderOperation(final double ratio) {
+    return ConcurrentMapOperation.put(ratio);
+  }
+
+  @Override
+  public CacheOperation getDefaultAccessorOperation(final double ratio) {
+    return ConcurrentMapOperation.get(ratio);
+  }
+}
@@ -26,6 +26,7 @@ public abstract class GenericCacheWrapper {
   protected final Stats readStats = new Stats();
   protected final Stats writeStats = new Stats();
   protected final Stats removeStats = new Stats();
+  protected final Stats batchStats = new Stats();
 
   private boolean statistics;
 
@@ -59,10 +60,39 @@ public abstract class GenericCacheWrapper {
     return removeStats;
   }
 
+  /**
+   * @return latency of whole batches, their keys are also accounted for in the read, write and remove stats
+   */
+  public Stats getBatchStats() {
+    return batchStats;
+  }
+
+  /**
+   * @return size of the cache on heap in Kb, -1 if unknown
+   */
+  public long getOnHeapSize() {
+    return -1;
+  }
+
+  /**
+   * @return size of the cache off heap in Kb, -1 if unknown
+   */
+  public long getOffHeapSize() {
+    return -1;
+  }
+
+  /**
+   * @return size of the cache on disk in Kb, -1 if unknown
+   */
+  public long getOnDiskSize() {
+    return -1;
+  }
+
   public void resetStats() {
     readStats.reset();
     writeStats.reset();
     removeStats.reset();
+    batchStats.reset();
   }
 
   public boolean isStatisticsEnabled() {
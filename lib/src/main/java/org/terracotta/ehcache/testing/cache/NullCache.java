@@ -0,0 +1,73 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.cache;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Map storing nothing : writes are dropped, reads always miss
+ */
+final class NullCache extends AbstractMap<Object, Object> implements ConcurrentMap<Object, Object> {
+
+  static final NullCache INSTANCE = new NullCache();
+
+  private NullCache() {
+  }
+
+  @Override
+  public Set<Entry<Object, Object>> entrySet() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  @Override
+  public Object get(final Object key) {
+    return null;
+  }
+
+  @Override
+  public Object put(final Object key, final Object value) {
+    return null;
+  }
+
+  @Override
+  public Object remove(final Object key) {
+    return null;
+  }
+
+  public Object putIfAbsent(final Object key, final Object value) {
+    return null;
+  }
+
+  public boolean remove(final Object key, final Object value) {
+    return false;
+  }
+
+  public boolean replace(final Object key, final Object oldValue, final Object newValue) {
+    return false;
+  }
+
+  public Object replace(final Object key, final Object value) {
+    return null;
+  }
+}
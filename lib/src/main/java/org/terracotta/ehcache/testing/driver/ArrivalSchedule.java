@@ -0,0 +1,85 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.driver;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open loop timeline of operations issued at a fixed rate.
+ * <p>
+ * Every call to {@link #awaitNext()} claims the next slot of the timeline, whatever the calling thread,
+ * and waits until its intended start time. When the cache stalls, slots are not skipped : the threads
+ * catch up on the backlog and the latency measured from the intended start time includes the stall
+ * (no coordinated omission).
+ */
+public class ArrivalSchedule {
+
+  private static final long NOT_STARTED = Long.MIN_VALUE;
+
+  private final double intervalInNanos;
+  private final AtomicLong start = new AtomicLong(NOT_STARTED);
+  private final AtomicLong slot = new AtomicLong();
+
+  /**
+   * @param opsPerSecond number of operations per second, shared by all the threads using the schedule
+   */
+  public ArrivalSchedule(final long opsPerSecond) {
+    if (opsPerSecond <= 0) {
+      throw new IllegalArgumentException("Rate must be positive, was " + opsPerSecond);
+    }
+    this.intervalInNanos = 1000000000.0 / opsPerSecond;
+  }
+
+  /**
+   * Claims the next slot and parks until its intended start time.
+   * Returns immediately if the schedule is late or if the thread is interrupted.
+   *
+   * @return intended start time of the operation, in {@link System#nanoTime()} reference
+   */
+  public long awaitNext() {
+    long intended = intendedStartOf(slot.getAndIncrement());
+    long delay;
+    while ((delay = intended - System.nanoTime()) > 0) {
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      LockSupport.parkNanos(delay);
+    }
+    return intended;
+  }
+
+  /**
+   * Restarts the timeline, the next slot will be intended to start immediately
+   */
+  public void reset() {
+    start.set(NOT_STARTED);
+    slot.set(0);
+  }
+
+  private long intendedStartOf(final long slotIndex) {
+    long startTime = start.get();
+    if (startTime == NOT_STARTED) {
+      start.compareAndSet(NOT_STARTED, System.nanoTime());
+      startTime = start.get();
+    }
+    return startTime + (long)(slotIndex * intervalInNanos);
+  }
+
+  public long getOpsPerSecond() {
+    return Math.round(1000000000.0 / intervalInNanos);
+  }
+}
@@ -10,6 +10,7 @@ import org.terracotta.ehcache.testing.statistics.StatsNode;
 import org.terracotta.ehcache.testing.statistics.StatsReporter;
 import org.terracotta.ehcache.testing.statistics.logger.StatsLogger;
 import org.terracotta.ehcache.testing.termination.TerminationCondition;
+import org.terracotta.ehcache.testing.validator.AsyncValidation;
 import org.terracotta.ehcache.testing.validator.Validation;
 
 import java.util.concurrent.TimeUnit;
@@ -67,13 +68,34 @@ public abstract class CacheAccessor implements CacheDriver {
   public abstract CacheAccessor sequentially(long offset);
 
   /**
-   * Add thinktime between each request
+   * Add thinktime between each request<br>
+   * The pause is precise down to a few microseconds, and the time overslept is paid back on the next requests,
+   * see {@link Pacer}. A thinktime of 0 adds no pause at all.
    *
    * @param micros thinktime in microseconds
    * @return this
    */
   public abstract CacheAccessor addThinkTime(long micros);
 
+  /**
+   * Issue operations at a fixed rate (open loop), shared by all the threads running this accessor.<br>
+   * Operations are scheduled on an intended start timeline and their latency is measured from the intended
+   * start, so a stalled cache shows up in the latencies instead of only lowering the throughput.
+   * Replaces the thinktime.
+   *
+   * @param opsPerSecond number of operations per second, per cache, or shared by the caches when they
+   *                     are accessed {@link #withWeight(int)}
+   * @return this
+   */
+  public abstract CacheAccessor atRate(long opsPerSecond);
+
+  /**
+   * Sets the fixed rate, replacing the one chosen if any, e.g. between the steps of a load search
+   *
+   * @param opsPerSecond number of operations per second, per cache
+   */
+  abstract void changeRate(long opsPerSecond);
+
   /**
    * Sets weight for the current {@link IndividualCacheAccessor}<br>
    * Will be ignored if {@link #accessPattern(Pattern, int, int)} is set
@@ -92,6 +114,15 @@ public abstract class CacheAccessor implements CacheDriver {
    */
   public abstract CacheAccessor using(ObjectGenerator integers, ObjectGenerator fixedSize);
 
+  /**
+   * Access seeds at random in [min, max)
+   *
+   * @param normal {@link Distribution} of the seeds (e.g. FLAT, GAUSSIAN, ZIPFIAN, SCRAMBLED_ZIPFIAN, HOTSPOT, LATEST)
+   * @param min lowest seed
+   * @param max highest seed, excluded
+   * @param width depends on the distribution, see {@link Distribution}
+   * @return this
+   */
   public abstract CacheAccessor atRandom(Distribution normal, long min, long max, long width);
 
   /**
@@ -120,6 +151,8 @@ public abstract class CacheAccessor implements CacheDriver {
    */
   public abstract CacheAccessor terminateOn(TerminationCondition termination);
 
+  abstract TerminationCondition getTerminationCondition();
+
   public abstract CacheAccessor validate();
 
   public abstract CacheAccessor validate(final Validation.Mode validationMode);
@@ -154,13 +187,26 @@ public abstract class CacheAccessor implements CacheDriver {
    */
   public abstract CacheAccessor doOps(CacheOperation... cacheOperations);
 
+  /**
+   * Sets what to do when an operation fails, shared by all the threads running this accessor.
+   * Defaults to {@link ErrorPolicy#continueOnError()}, or to {@link ErrorPolicy#abortAfter(long)}
+   * when the system property <tt>errors.abort.after</tt> is set.
+   *
+   * @param policy
+   * @return CacheAccessor
+   */
+  public abstract CacheAccessor onError(ErrorPolicy policy);
+
   protected abstract void execute();
 
   public void run() {
     init();
     startReporting();
-    execute();
-    stopReporting();
+    try {
+      execute();
+    } finally {
+      stopReporting();
+    }
   }
 
   /**
@@ -189,6 +235,15 @@ public abstract class CacheAccessor implements CacheDriver {
     return System.currentTimeMillis();
   }
 
+  /**
+   * Ends the reads of a validator, an {@link AsyncValidation} waits for the validation of its samples
+   */
+  static void close(Validation.Validator validator) {
+    if (validator instanceof AsyncValidation.AsyncValidator) {
+      ((AsyncValidation.AsyncValidator)validator).close();
+    }
+  }
+
   protected void startReporting() {
     if (statistics)
       reporter.startReporting();
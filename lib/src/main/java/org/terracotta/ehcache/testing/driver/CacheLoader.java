@@ -20,8 +20,10 @@ import org.slf4j.LoggerFactory;
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
 import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
 import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.operation.OperationMix;
 import org.terracotta.ehcache.testing.sequencegenerator.PartitionedSequentialGenerator;
 import org.terracotta.ehcache.testing.sequencegenerator.SequenceGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
 import org.terracotta.ehcache.testing.sequencegenerator.SequenceGenerator.Sequence;
 import org.terracotta.ehcache.testing.sequencegenerator.SequentialSequenceGenerator;
 import org.terracotta.ehcache.testing.statistics.Stats;
@@ -56,13 +58,21 @@ public class CacheLoader implements CacheDriver {
   private final Collection<GenericCacheWrapper> caches;
 
   private Set<CacheOperation> operations = new LinkedHashSet<CacheOperation>();
-  private final Random rnd = new Random();
+  private volatile OperationMix operationMix;
+  private final XoshiroRandom streams = XoshiroRandom.newStream();
+  private final ThreadLocal<Random> rnd = new ThreadLocal<Random>() {
+    @Override
+    protected Random initialValue() {
+      return streams.forCurrentThread();
+    }
+  };
 
   private boolean statistics = false;
   private SequenceGenerator sequenceGenerator = null;
   private ObjectGenerator keyGenerator = null;
   private ObjectGenerator valueGenerator = null;
   private TerminationCondition terminationCondition = null;
+  private ErrorPolicy errorPolicy = null;
   private final StatsReporter reporter = StatsReporter.getInstance();
 
   private CacheLoader(GenericCacheWrapper[] caches) {
@@ -76,6 +86,7 @@ public class CacheLoader implements CacheDriver {
     this.terminationCondition = loader.terminationCondition;
     this.sequenceGenerator = sequenceGenerator;
     this.statistics = loader.statistics;
+    this.errorPolicy = loader.errorPolicy;
   }
 
   /**
@@ -94,6 +105,9 @@ public class CacheLoader implements CacheDriver {
       if (sequenceGenerator instanceof SequentialSequenceGenerator)
         offset = ((SequentialSequenceGenerator)sequenceGenerator).getOffset();
     }
+    if (errorPolicy == null) {
+      errorPolicy = ErrorPolicy.defaultPolicy();
+    }
     Collection<CacheDriver> drivers = new ArrayList<CacheDriver>(count);
     for (int i = 0; i < count; i++) {
       drivers.add(new CacheLoader(this, new PartitionedSequentialGenerator(offset + i, count)));
@@ -170,23 +184,31 @@ public class CacheLoader implements CacheDriver {
   public void run() {
     double sumOfRatios = checkRatios();
     calculateDefaultOpRatio(sumOfRatios);
+    operationMix = new OperationMix(operations);
+    if (errorPolicy == null) {
+      errorPolicy = ErrorPolicy.defaultPolicy();
+    }
 
     logger.info("-- CacheLoader loader percentage: {}", operations.toString());
 
     Sequence seeds = sequenceGenerator.createSequence();
-    Condition termination = terminationCondition.createCondition(caches.toArray(new GenericCacheWrapper[caches.size()]));
+    Condition termination = Cancellation.cancellable(
+        terminationCondition.createCondition(caches.toArray(new GenericCacheWrapper[caches.size()])));
     if (statistics)
       reporter.startReporting();
     long start = System.currentTimeMillis();
-    do {
-      long seed = seeds.next();
-      for (GenericCacheWrapper cache : caches) {
-        runOnce(seed, cache);
-      }
-    } while (!termination.isMet());
+    try {
+      do {
+        long seed = seeds.next();
+        for (GenericCacheWrapper cache : caches) {
+          runOnce(seed, cache);
+        }
+      } while (!termination.isMet());
+    } finally {
+      if (statistics)
+        reporter.stopReporting();
+    }
     long stop = System.currentTimeMillis();
-    if (statistics)
-      reporter.stopReporting();
 
     logger.debug("CacheLoader put on caches took: {}ms", stop - start);
   }
@@ -194,20 +216,23 @@ public class CacheLoader implements CacheDriver {
   /**
    * executes operations, according to their weight
    * It also adds a delay, if any, before doing operation.
+   * A failed operation is handed to the {@link ErrorPolicy}, which rethrows it when the load must be aborted.
+   * Exceptions the operation did not record as a failure abort the load.
    *
    * @param seed
    */
   public void runOnce(long seed, GenericCacheWrapper cacheWrapper) {
-    double d = rnd.nextDouble();
-    double min, max = 0.0;
-
-    for (CacheOperation operation : operations) {
-      min = max;
-      max = min + operation.getRatio();
-
-      //TODO : doesnt need to pass the seed since it's already in cachewrapper's generator, why pass validator?
-      if (d >= min && d < max)
+    CacheOperation operation = operationMix.select(rnd.get());
+    //TODO : doesnt need to pass the seed since it's already in cachewrapper's generator, why pass validator?
+    if (operation != null) {
+      try {
         operation.exec(cacheWrapper, seed, keyGenerator, valueGenerator, null);
+      } catch (RuntimeException e) {
+        if (!CacheOperation.isRecordedFailure(e)) {
+          throw e;
+        }
+        errorPolicy.failed(cacheWrapper, e);
+      }
     }
   }
 
@@ -247,6 +272,21 @@ public class CacheLoader implements CacheDriver {
     return sumOfRatios;
   }
 
+  /**
+   * Sets what to do when a put fails, see {@link CacheAccessor#onError(ErrorPolicy)}
+   *
+   * @param policy
+   * @return this
+   */
+  public CacheLoader onError(ErrorPolicy policy) {
+    if (errorPolicy == null) {
+      errorPolicy = policy;
+    } else {
+      throw new IllegalStateException("ErrorPolicy already chosen");
+    }
+    return this;
+  }
+
   public CacheLoader enableStatistics(boolean enabled) {
     for (GenericCacheWrapper cache : caches)
       cache.setStatisticsEnabled(enabled);
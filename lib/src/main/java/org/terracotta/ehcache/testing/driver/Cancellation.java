@@ -0,0 +1,97 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.terracotta.ehcache.testing.termination.TerminationCondition;
+
+/**
+ * Cooperative cancellation of the drivers run by a {@link ParallelDriver}. Each thread of the parallel driver is
+ * bound to the cancellation of its run, and the loops of the accessors and loaders check it along with their
+ * termination condition, so that a cancelled driver leaves its loop after the current operation and still reports
+ * its stats. Cancelling a run cancels the runs nested in it.
+ * <p>
+ * A run can also carry the time its accessor must stop at, e.g. the end of a {@link PhasedDriver} phase, which the
+ * runs nested in it inherit.
+ */
+final class Cancellation {
+
+  private static final ThreadLocal<Cancellation> current = new ThreadLocal<Cancellation>();
+
+  private final Cancellation parent;
+  private final Long stopTime;
+  private volatile boolean cancelled;
+
+  /**
+   * @return a cancellation nested in the one of the calling thread, if any
+   */
+  static Cancellation nested() {
+    return new Cancellation(current.get(), null);
+  }
+
+  /**
+   * @param stopTime in {@link System#nanoTime()} reference
+   * @return a cancellation nested in the one of the calling thread, if any, for a run stopping at the given time
+   */
+  static Cancellation stoppingAt(final long stopTime) {
+    return new Cancellation(current.get(), stopTime);
+  }
+
+  private Cancellation(final Cancellation parent, final Long stopTime) {
+    this.parent = parent;
+    this.stopTime = stopTime;
+  }
+
+  void cancel() {
+    cancelled = true;
+  }
+
+  boolean isCancelled() {
+    return cancelled || (parent != null && parent.isCancelled());
+  }
+
+  /**
+   * @return the driver, run with this cancellation bound to its thread
+   */
+  Runnable bind(final CacheDriver driver) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        Cancellation previous = current.get();
+        current.set(Cancellation.this);
+        try {
+          driver.run();
+        } finally {
+          current.set(previous);
+        }
+      }
+    };
+  }
+
+  /**
+   * @return the stop time of the run of the calling thread, or of the run it is nested in, null if none
+   */
+  static Long stopTime() {
+    for (Cancellation cancellation = current.get(); cancellation != null; cancellation = cancellation.parent) {
+      if (cancellation.stopTime != null) {
+        return cancellation.stopTime;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param condition created by the calling thread
+   * @return a condition also met when the run of the calling thread is cancelled, the condition itself if the
+   *         thread is not run by a {@link ParallelDriver}
+   */
+  static TerminationCondition.Condition cancellable(final TerminationCondition.Condition condition) {
+    final Cancellation cancellation = current.get();
+    if (cancellation == null) {
+      return condition;
+    }
+    return new TerminationCondition.Condition() {
+      @Override
+      public boolean isMet() {
+        return cancellation.isCancelled() || condition.isMet();
+      }
+    };
+  }
+}
@@ -0,0 +1,83 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a driver does when a cache operation fails. The failure is already recorded by the operation, in the
+ * failures of its stats, the policy decides whether the thread goes on with the next operation or the run
+ * is aborted, by rethrowing the failure. Other exceptions, not recorded by the operation, e.g. bugs of a custom
+ * operation, always abort the run.
+ * <p>
+ * The first failure of each exception type is logged with its stack trace.
+ * The default policy continues, unless the system property <tt>errors.abort.after</tt> sets a number of failures
+ * after which it aborts.
+ */
+public class ErrorPolicy {
+  private static final Logger logger = LoggerFactory.getLogger(ErrorPolicy.class);
+
+  private final long threshold;
+  private final AtomicLong failures = new AtomicLong();
+  private final ConcurrentMap<Class<?>, Boolean> logged = new ConcurrentHashMap<Class<?>, Boolean>();
+
+  private ErrorPolicy(final long threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * @return a policy counting the failures and going on
+   */
+  public static ErrorPolicy continueOnError() {
+    return new ErrorPolicy(Long.MAX_VALUE);
+  }
+
+  /**
+   * @return a policy aborting the run on the first failure
+   */
+  public static ErrorPolicy abortOnError() {
+    return new ErrorPolicy(1);
+  }
+
+  /**
+   * @param failures number of failures, over all the threads sharing the policy, at which the run is aborted
+   */
+  public static ErrorPolicy abortAfter(final long failures) {
+    if (failures < 1) {
+      throw new IllegalArgumentException("Number of failures must be positive, was " + failures);
+    }
+    return new ErrorPolicy(failures);
+  }
+
+  static ErrorPolicy defaultPolicy() {
+    Long threshold = Long.getLong("errors.abort.after");
+    return (threshold == null) ? continueOnError() : abortAfter(threshold);
+  }
+
+  /**
+   * @throws RuntimeException the failure, when the run must be aborted
+   */
+  void failed(final GenericCacheWrapper cache, final RuntimeException failure) {
+    long count = failures.incrementAndGet();
+    if (logged.putIfAbsent(failure.getClass(), Boolean.TRUE) == null) {
+      logger.warn("-- First " + failure.getClass().getName() + " on cache " + cache.getName(), failure);
+    }
+    if (count >= threshold) {
+      logger.error("-- Aborting after {} failed operations", count);
+      throw failure;
+    }
+  }
+
+  public long getFailures() {
+    return failures.get();
+  }
+
+  @Override
+  public String toString() {
+    return (threshold == Long.MAX_VALUE) ? "continue on error" : "abort after " + threshold + " failures";
+  }
+}
@@ -5,10 +5,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
 import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.operation.BatchCacheOperation;
 import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.operation.OperationMix;
 import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
 import org.terracotta.ehcache.testing.sequencegenerator.RandomSequenceGenerator;
 import org.terracotta.ehcache.testing.sequencegenerator.SequenceGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
 import org.terracotta.ehcache.testing.sequencegenerator.SequentialSequenceGenerator;
 import org.terracotta.ehcache.testing.termination.FilledTerminationCondition;
 import org.terracotta.ehcache.testing.termination.IterationTerminationCondition;
@@ -16,6 +19,7 @@ import org.terracotta.ehcache.testing.termination.TerminationCondition;
 import org.terracotta.ehcache.testing.termination.TimedTerminationCondition;
 import org.terracotta.ehcache.testing.validator.EqualityValidation;
 import org.terracotta.ehcache.testing.validator.Validation;
+import org.terracotta.ehcache.testing.validator.VersionedValidation;
 
 import java.util.Collections;
 import java.util.Iterator;
@@ -23,6 +27,7 @@ import java.util.LinkedHashSet;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 
@@ -41,14 +46,25 @@ import java.util.concurrent.atomic.AtomicLong;
 public class IndividualCacheAccessor extends CacheAccessor {
   private static Logger logger = LoggerFactory.getLogger(IndividualCacheAccessor.class);
 
-  private final Random rnd = new Random();
+  private final XoshiroRandom streams = XoshiroRandom.newStream();
+  private final ThreadLocal<Random> rnd = new ThreadLocal<Random>() {
+    @Override
+    protected Random initialValue() {
+      return streams.forCurrentThread();
+    }
+  };
 
   private final GenericCacheWrapper cacheWrapper;
   private int weight = 0;
 
   private Set<CacheOperation> operations = new LinkedHashSet<CacheOperation>();
+  private volatile OperationMix operationMix;
 
   private final AtomicLong delayInMicros = new AtomicLong();
+  private final Pacer pacer = new Pacer();
+
+  private ArrivalSchedule arrivalSchedule;
+  private final AtomicInteger activeRuns = new AtomicInteger();
 
   private ObjectGenerator keyGenerator;
   private ObjectGenerator valueGenerator;
@@ -60,21 +76,33 @@ public class IndividualCacheAccessor extends CacheAccessor {
   private Validation validation;
   private Validation.Mode validationMode;
 
+  private ErrorPolicy errorPolicy;
+
   public IndividualCacheAccessor(GenericCacheWrapper cacheWrapper) {
     this.cacheWrapper = cacheWrapper;
   }
 
+  /**
+   * Called by every thread running this accessor, e.g. the threads of a {@link PhasedDriver}
+   */
   @Override
-  protected void init() {
+  protected synchronized void init() {
     double sumOfRatios = checkRatios();
     calculateDefaultOpRatio(sumOfRatios);
 
     for (Iterator<CacheOperation> iterator = operations.iterator(); iterator.hasNext(); ) {
       final CacheOperation operation = iterator.next();
       operation.setValidationMode(this.validationMode);
+      if (operation instanceof BatchCacheOperation && validation instanceof VersionedValidation) {
+        throw new IllegalStateException("Batch operation " + operation.getName() + " doesn't write versions for a VersionedValidation");
+      }
     }
 
+    operationMix = new OperationMix(operations);
     logger.info("-- CacheAccessor operations percentages: {}", operations.toString());
+    if (errorPolicy == null) {
+      errorPolicy = ErrorPolicy.defaultPolicy();
+    }
   }
 
   /**
@@ -141,28 +169,69 @@ public class IndividualCacheAccessor extends CacheAccessor {
 
   /**
    * executes operations, according to their weight
-   * It also adds a delay, if any, before doing operation.
+   * It also adds a delay, if any, before doing operation, or waits for the next slot when running at a fixed rate.
+   * A failed operation is handed to the {@link ErrorPolicy}, which rethrows it when the run must be aborted.
+   * Exceptions the operation did not record as a failure abort the run.
    *
    * @param seed
    * @param validator
    */
   public void runOnce(long seed, Validation.Validator validator) {
-    try {
-      TimeUnit.MICROSECONDS.sleep(delayInMicros.get());
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    }
+    runOnce(seed, null, validator);
+  }
 
-    double d = rnd.nextDouble();
-    double min, max = 0.0;
+  /**
+   * Same as {@link #runOnce(long, Validation.Validator)}, a {@link BatchCacheOperation} pulls the other seeds
+   * of its batch from the sequence
+   *
+   * @param seed first seed
+   * @param seeds sequence of the calling thread, null to run batches of a single key
+   * @param validator
+   */
+  public void runOnce(long seed, SequenceGenerator.Sequence seeds, Validation.Validator validator) {
+    if (arrivalSchedule != null) {
+      runAt(arrivalSchedule.awaitNext(), seed, seeds, validator);
+    } else {
+      pacer.pause(TimeUnit.MICROSECONDS.toNanos(delayInMicros.get()));
+      exec(seed, seeds, validator);
+    }
+  }
 
-    for (CacheOperation operation : operations) {
-      min = max;
-      max = min + operation.getRatio();
+  /**
+   * Runs an operation slotted on the timeline of another schedule, e.g. the one a {@link MultipleCacheAccessor}
+   * shares between its weighted caches
+   *
+   * @param intendedStart intended start time of the operation, in {@link System#nanoTime()} reference
+   */
+  void runAt(long intendedStart, long seed, SequenceGenerator.Sequence seeds, Validation.Validator validator) {
+    CacheOperation.setIntendedStartTime(intendedStart);
+    try {
+      exec(seed, seeds, validator);
+    } finally {
+      CacheOperation.clearIntendedStartTime();
+    }
+  }
 
+  private void exec(long seed, SequenceGenerator.Sequence seeds, Validation.Validator validator) {
+    try {
+      CacheOperation operation = operationMix.select(rnd.get());
       //TODO : doesnt need to pass the seed since it's already in cachewrapper's generator, validator either?
-      if (d >= min && d < max)
+      if (operation instanceof BatchCacheOperation && seeds != null) {
+        BatchCacheOperation batch = (BatchCacheOperation)operation;
+        long[] batchSeeds = new long[batch.getBatchSize()];
+        batchSeeds[0] = seed;
+        for (int i = 1; i < batchSeeds.length; i++) {
+          batchSeeds[i] = seeds.next();
+        }
+        batch.execBatch(cacheWrapper, batchSeeds, keyGenerator, valueGenerator, validator);
+      } else if (operation != null) {
         operation.exec(cacheWrapper, seed, keyGenerator, valueGenerator, validator);
+      }
+    } catch (RuntimeException e) {
+      if (!CacheOperation.isRecordedFailure(e)) {
+        throw e;
+      }
+      errorPolicy.failed(cacheWrapper, e);
     }
   }
 
@@ -174,7 +243,7 @@ public class IndividualCacheAccessor extends CacheAccessor {
   @Override
   public void execute() {
     SequenceGenerator.Sequence seeds = sequenceGenerator.createSequence();
-    TerminationCondition.Condition termination = terminationCondition.createCondition(cacheWrapper);
+    TerminationCondition.Condition termination = Cancellation.cancellable(terminationCondition.createCondition(cacheWrapper));
 
     Validation.Validator validator;
     if (validation == null) {
@@ -182,10 +251,24 @@ public class IndividualCacheAccessor extends CacheAccessor {
     } else {
       validator = validation.createValidator(valueGenerator);
     }
+    // the fixed rate timeline starts with the first thread running this accessor
+    if (activeRuns.getAndIncrement() == 0) {
+      pacer.reset();
+      if (arrivalSchedule != null) {
+        arrivalSchedule.reset();
+      }
+    }
     long start = now();
-    do {
-      runOnce(seeds.next(), validator);
-    } while (!termination.isMet());
+    try {
+      do {
+        runOnce(seeds.next(), seeds, validator);
+      } while (!termination.isMet());
+    } finally {
+      if (activeRuns.decrementAndGet() == 0 && pacer.getPauses() > 0) {
+        logger.info("-- CacheAccessor think time: {}", pacer);
+      }
+      close(validator);
+    }
     long stop = now();
     logger.debug("CacheAccessor operations on caches took: {}ms", stop - start);
   }
@@ -280,6 +363,16 @@ public class IndividualCacheAccessor extends CacheAccessor {
     return this;
   }
 
+  @Override
+  public CacheAccessor onError(ErrorPolicy policy) {
+    if (errorPolicy == null) {
+      errorPolicy = policy;
+    } else {
+      throw new IllegalStateException("ErrorPolicy already chosen for cache " + this.cacheWrapper.getName());
+    }
+    return this;
+  }
+
   @Override
   public CacheAccessor addThinkTime(long micros) {
     logger.debug("Delay set to : " + micros);
@@ -287,6 +380,26 @@ public class IndividualCacheAccessor extends CacheAccessor {
     return this;
   }
 
+  @Override
+  public CacheAccessor atRate(long opsPerSecond) {
+    if (arrivalSchedule == null) {
+      arrivalSchedule = new ArrivalSchedule(opsPerSecond);
+    } else {
+      throw new IllegalStateException("Rate already chosen for cache " + this.cacheWrapper.getName());
+    }
+    return this;
+  }
+
+  @Override
+  void changeRate(long opsPerSecond) {
+    arrivalSchedule = new ArrivalSchedule(opsPerSecond);
+  }
+
+  @Override
+  TerminationCondition getTerminationCondition() {
+    return terminationCondition;
+  }
+
   public int getWeight() {
     return weight;
   }
@@ -22,6 +22,7 @@ import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
 import org.terracotta.ehcache.testing.operation.CacheOperation;
 import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
 import org.terracotta.ehcache.testing.sequencegenerator.SequenceGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
 import org.terracotta.ehcache.testing.termination.FilledTerminationCondition;
 import org.terracotta.ehcache.testing.termination.IterationTerminationCondition;
 import org.terracotta.ehcache.testing.termination.TerminationCondition;
@@ -37,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is the implementation of the CacheAccessor to do operations on multiple Caches.
@@ -58,6 +60,11 @@ public class MultipleCacheAccessor extends CacheAccessor {
   private TerminationCondition terminationCondition;
   private static Thread access = null;
 
+  private ArrivalSchedule arrivalSchedule;
+  private final AtomicInteger activeRuns = new AtomicInteger();
+
+  private final XoshiroRandom streams = XoshiroRandom.newStream();
+
   public MultipleCacheAccessor(IndividualCacheAccessor one, IndividualCacheAccessor two) {
     accessors.add(one);
     accessors.add(two);
@@ -131,16 +138,7 @@ public class MultipleCacheAccessor extends CacheAccessor {
   }
 
   private void accessSimple() {
-    Collection<GenericCacheWrapper> caches = new ArrayList<GenericCacheWrapper>();
-    Map<IndividualCacheAccessor, Validation.Validator> validators = new IdentityHashMap<IndividualCacheAccessor, Validation.Validator>();
-
-    for (IndividualCacheAccessor a : accessors) {
-      caches.add(a.getCacheWrapper());
-      if (a.getValidation() != null) {
-        validators.put(a, a.getValidation().createValidator(a.getValueGenerator()));
-      }
-    }
-
+    // each accessor creates the validator of its thread
     ParallelDriver driver = new ParallelDriver(accessors);
     driver.run();
   }
@@ -159,6 +157,10 @@ public class MultipleCacheAccessor extends CacheAccessor {
       access.interrupt();
   }
 
+  /**
+   * A single thread accesses every cache, picked by weight. At a fixed rate, the caches share a single timeline,
+   * each of them getting its weight's share of the rate.
+   */
   private void accessWithWeight() {
     Collection<GenericCacheWrapper> caches = new ArrayList<GenericCacheWrapper>();
     Map<Integer, IndividualCacheAccessor> selection = new HashMap<Integer, IndividualCacheAccessor>();
@@ -181,17 +183,34 @@ public class MultipleCacheAccessor extends CacheAccessor {
       }
     }
 
-    Random rnd = new Random();
-    TerminationCondition.Condition termination = terminationCondition.
-        createCondition(caches.toArray(new GenericCacheWrapper[caches.size()]));
+    Random rnd = streams.forCurrentThread();
+    TerminationCondition.Condition termination = Cancellation.cancellable(terminationCondition.
+        createCondition(caches.toArray(new GenericCacheWrapper[caches.size()])));
 
+    // the fixed rate timeline starts with the first thread running this accessor
+    ArrivalSchedule schedule = arrivalSchedule;
+    if (activeRuns.getAndIncrement() == 0 && schedule != null) {
+      schedule.reset();
+    }
     long start = now();
-    do {
-      int selector = rnd.nextInt(totalWeight);
-      IndividualCacheAccessor accessor;
-      while ((accessor = selection.get(selector--)) == null) ;
-      accessor.runOnce(sequences.get(accessor).next(), validators.get(accessor));
-    } while (!termination.isMet());
+    try {
+      do {
+        int selector = rnd.nextInt(totalWeight);
+        IndividualCacheAccessor accessor;
+        while ((accessor = selection.get(selector--)) == null) ;
+        SequenceGenerator.Sequence seeds = sequences.get(accessor);
+        if (schedule != null) {
+          accessor.runAt(schedule.awaitNext(), seeds.next(), seeds, validators.get(accessor));
+        } else {
+          accessor.runOnce(seeds.next(), seeds, validators.get(accessor));
+        }
+      } while (!termination.isMet());
+    } finally {
+      activeRuns.decrementAndGet();
+      for (Validation.Validator validator : validators.values()) {
+        close(validator);
+      }
+    }
     long stop = now();
     logger.debug("CacheAccessor put/get/validate on caches took: {}ms", stop - start);
   }
@@ -305,11 +324,47 @@ public class MultipleCacheAccessor extends CacheAccessor {
     return this;
   }
 
+  @Override
+  public CacheAccessor onError(ErrorPolicy policy) {
+    for (Iterator<IndividualCacheAccessor> it = accessors.iterator(); it.hasNext(); ) {
+      try {
+        it.next().onError(policy);
+      } catch (IllegalStateException e) {
+        if (!it.hasNext()) {
+          throw e;
+        }
+      }
+    }
+    return this;
+  }
+
   @Override
   public CacheAccessor addThinkTime(long micros) {
     for (IndividualCacheAccessor accessor : accessors)
       accessor.addThinkTime(micros);
     return this;
   }
-}
 
+  @Override
+  public CacheAccessor atRate(long opsPerSecond) {
+    if (arrivalSchedule != null) {
+      throw new IllegalStateException("Rate already chosen");
+    }
+    for (IndividualCacheAccessor accessor : accessors)
+      accessor.atRate(opsPerSecond);
+    arrivalSchedule = new ArrivalSchedule(opsPerSecond);
+    return this;
+  }
+
+  @Override
+  void changeRate(long opsPerSecond) {
+    arrivalSchedule = new ArrivalSchedule(opsPerSecond);
+    for (IndividualCacheAccessor accessor : accessors)
+      accessor.changeRate(opsPerSecond);
+  }
+
+  @Override
+  TerminationCondition getTerminationCondition() {
+    return terminationCondition;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.driver;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Precise think time between operations.
+ * <p>
+ * A zero pause costs nothing. Other pauses park until shortly before the deadline then spin, the spin window
+ * being calibrated once against the park overshoot of the platform (or set with the system property
+ * <tt>pacer.spin.nanos</tt>). The time slept in excess is paid back on the next pauses of the same thread,
+ * so the achieved think time matches the requested one on average. Up to 100ms are paid back (system property
+ * <tt>pacer.max.deficit.millis</tt>).
+ * <p>
+ * Each thread keeps its own accounting, {@link #getRequestedNanos()}, {@link #getActualNanos()} and
+ * {@link #getError()} sum them up. {@link #reset()} starts a new epoch : the accounting of every thread, deficit
+ * included, starts over on its next pause.
+ */
+public class Pacer {
+
+  static final long SPIN_NANOS = Long.getLong("pacer.spin.nanos", calibrateSpin());
+
+  /**
+   * Deficit paid back at most, so that a long stall does not turn in a long burst
+   */
+  private static final long MAX_DEFICIT_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("pacer.max.deficit.millis", 100));
+
+  private final List<State> states = new CopyOnWriteArrayList<State>();
+  private final ThreadLocal<State> state = new ThreadLocal<State>();
+  private volatile int epoch;
+
+  /**
+   * Pauses the calling thread
+   *
+   * @param nanos requested pause in nanoseconds
+   */
+  public void pause(final long nanos) {
+    if (nanos <= 0) {
+      return;
+    }
+    State current = state();
+    current.requested += nanos;
+    current.pauses++;
+
+    long target = nanos - current.deficit;
+    if (target <= 0) {
+      current.deficit -= nanos;
+      return;
+    }
+    long start = System.nanoTime();
+    sleepUntil(start + target);
+    long slept = System.nanoTime() - start;
+    current.actual += slept;
+    current.deficit = Math.min(current.deficit + slept - nanos, MAX_DEFICIT_NANOS);
+  }
+
+  /**
+   * @return the accounting of the calling thread for the current epoch
+   */
+  private State state() {
+    State current = state.get();
+    int now = epoch;
+    if (current == null || current.epoch != now) {
+      current = new State(now);
+      states.add(current);
+      state.set(current);
+    }
+    return current;
+  }
+
+  static void sleepUntil(final long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+      LockSupport.parkNanos(remaining - SPIN_NANOS);
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+    }
+    while (deadline - System.nanoTime() > 0) {
+      // spin
+    }
+  }
+
+  /**
+   * @return total pause time requested by all the threads
+   */
+  public long getRequestedNanos() {
+    long requested = 0;
+    for (State s : states) {
+      requested += s.requested;
+    }
+    return requested;
+  }
+
+  /**
+   * @return total pause time actually spent by all the threads
+   */
+  public long getActualNanos() {
+    long actual = 0;
+    for (State s : states) {
+      actual += s.actual;
+    }
+    return actual;
+  }
+
+  public long getPauses() {
+    long pauses = 0;
+    for (State s : states) {
+      pauses += s.pauses;
+    }
+    return pauses;
+  }
+
+  /**
+   * @return relative pacing error, (actual - requested) / requested, 0 if nothing was requested
+   */
+  public double getError() {
+    long requested = getRequestedNanos();
+    if (requested == 0) {
+      return 0.0;
+    }
+    return (double)(getActualNanos() - requested) / requested;
+  }
+
+  public void reset() {
+    epoch++;
+    states.clear();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("pauses: %d, requested: %dus, actual: %dus, error: %.2f%%", getPauses(),
+        TimeUnit.NANOSECONDS.toMicros(getRequestedNanos()), TimeUnit.NANOSECONDS.toMicros(getActualNanos()), getError() * 100);
+  }
+
+  /**
+   * Measures how late a short park wakes up, the spin window is twice the median overshoot, between 10us and 200us
+   */
+  private static long calibrateSpin() {
+    int samples = 21;
+    long[] overshoots = new long[samples];
+    for (int i = 0; i < samples; i++) {
+      long requested = TimeUnit.MICROSECONDS.toNanos(50);
+      long start = System.nanoTime();
+      LockSupport.parkNanos(requested);
+      overshoots[i] = System.nanoTime() - start - requested;
+    }
+    java.util.Arrays.sort(overshoots);
+    long spin = 2 * overshoots[samples / 2];
+    return Math.max(TimeUnit.MICROSECONDS.toNanos(10), Math.min(spin, TimeUnit.MICROSECONDS.toNanos(200)));
+  }
+
+  /**
+   * Accounting of a single thread, only written by it
+   */
+  private static final class State {
+    final int epoch;
+    long requested;
+    long actual;
+    long pauses;
+    long deficit;
+
+    State(final int epoch) {
+      this.epoch = epoch;
+    }
+  }
+}
@@ -2,18 +2,22 @@ package org.terracotta.ehcache.testing.driver;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
 import org.terracotta.ehcache.testing.statistics.Stats;
 import org.terracotta.ehcache.testing.statistics.StatsNode;
+import org.terracotta.ehcache.utils.VirtualThreads;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -24,6 +28,7 @@ public class ParallelDriver implements CacheDriver {
   private static final Logger log = LoggerFactory.getLogger(ParallelDriver.class);
   private final Collection<? extends CacheDriver> drivers;
   private final ExecutorService executorService;
+  private final long gracePeriod = TimeUnit.MILLISECONDS.toNanos(Long.getLong("driver.grace.period.millis", 5000L));
 
   public static CacheDriver inParallel(int count, CacheDriver job) {
     return new ParallelDriver(Collections.nCopies(count, job));
@@ -33,34 +38,99 @@ public class ParallelDriver implements CacheDriver {
     return new ParallelDriver(Arrays.asList(drivers));
   }
 
+  /**
+   * Runs each driver on its own virtual thread, e.g. to model a large population of clients spending
+   * most of their time in think time or in cache round-trips.
+   * Falls back to platform threads if the JVM does not support virtual threads.
+   */
+  public static CacheDriver onVirtualThreads(int count, CacheDriver job) {
+    return new ParallelDriver(Collections.nCopies(count, job), true);
+  }
+
+  public static CacheDriver onVirtualThreads(CacheDriver... drivers) {
+    return new ParallelDriver(Arrays.asList(drivers), true);
+  }
+
+  /**
+   * Runs the drivers on platform threads, or on virtual threads if the system property
+   * <tt>driver.virtual.threads</tt> is true
+   */
   public ParallelDriver(Collection<? extends CacheDriver> drivers) {
+    this(drivers, Boolean.getBoolean("driver.virtual.threads"));
+  }
+
+  public ParallelDriver(Collection<? extends CacheDriver> drivers, boolean virtualThreads) {
     this.drivers = drivers;
-    this.executorService = Executors.newFixedThreadPool(drivers.size());
+    if (virtualThreads && VirtualThreads.isSupported()) {
+      this.executorService = VirtualThreads.newVirtualThreadPerTaskExecutor();
+    } else {
+      if (virtualThreads) {
+        log.warn("Virtual threads are not supported by this JVM, running {} drivers on platform threads", drivers.size());
+      }
+      this.executorService = Executors.newFixedThreadPool(drivers.size());
+    }
   }
 
+  /**
+   * Runs the drivers and waits for them. When one fails, the others get the grace period (system property
+   * <tt>driver.grace.period.millis</tt>, 5s by default) to finish, then they are cancelled : the accessors and
+   * loaders leave their loop after their current operation and report their partial stats. The ones still running
+   * after another grace period are interrupted.
+   *
+   * @throws PooledException holding the failures, and the partial stats of the run
+   */
   public void run() {
-    Map<Future, Throwable> causes = new HashMap<Future, Throwable>();
+    Map<Future, Throwable> causes = new LinkedHashMap<Future, Throwable>();
+    Cancellation cancellation = Cancellation.nested();
+    CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executorService);
+    List<Future<Void>> futures = new ArrayList<Future<Void>>();
     try {
-      List<Future> futures = new ArrayList<Future>();
+      // each thread draws its random numbers from its index, whatever the order the threads start in
+      int index = 0;
       for (CacheDriver driver : drivers) {
-        futures.add(executorService.submit(driver));
+        futures.add(completionService.submit(XoshiroRandom.boundTo(XoshiroRandom.childKey(index++), cancellation.bind(driver)), null));
       }
-      for (Future future : futures) {
+      int running = futures.size();
+      long deadline = 0;
+      while (running > 0) {
+        Future<Void> future;
+        if (causes.isEmpty()) {
+          future = completionService.take();
+        } else {
+          future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        if (future == null) {
+          if (!cancellation.isCancelled()) {
+            log.warn("-- Cancelling {} drivers after a failure", running);
+            cancellation.cancel();
+            // a cancelled driver still has to finish its current operation and report
+            deadline = System.nanoTime() + Math.max(gracePeriod, TimeUnit.SECONDS.toNanos(1));
+          } else {
+            log.warn("-- Interrupting {} drivers still running after their cancellation", running);
+            for (Future<Void> futureToCancel : futures) {
+              futureToCancel.cancel(true);
+            }
+            break;
+          }
+          continue;
+        }
+        running--;
         try {
           future.get();
         } catch (ExecutionException e) {
-          causes.put(future, e.getCause());
-          // This is a timeout of 60 seconds before shutting down in case of an exception
-          Thread.sleep(60000);
-          for (Future futureToCancel : futures) {
-            if (!futureToCancel.isDone())
-              futureToCancel.cancel(true);
+          if (causes.isEmpty()) {
+            log.error("-- Driver failed, the others have {}ms to finish", TimeUnit.NANOSECONDS.toMillis(gracePeriod));
+            deadline = System.nanoTime() + gracePeriod;
           }
+          causes.put(future, e.getCause());
         }
       }
       executorService.shutdown();
-      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      if (running == 0) {
+        executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      }
     } catch (InterruptedException e) {
+      cancellation.cancel();
       executorService.shutdownNow();
       Thread.currentThread().interrupt();
     } finally {
@@ -68,27 +138,54 @@ public class ParallelDriver implements CacheDriver {
         for (Throwable tw : causes.values()){
           tw.printStackTrace();
         }
-        throw new PooledException(causes);
+        throw new PooledException(causes, partialStats());
       }
     }
   }
 
+  private StatsNode partialStats() {
+    for (CacheDriver driver : drivers) {
+      try {
+        StatsNode node = driver.getFinalStatsNode();
+        if (node != null) {
+          return node;
+        }
+      } catch (IllegalStateException e) {
+        // statistics are not enabled on this driver
+      }
+    }
+    return null;
+  }
+
   public static class PooledException extends RuntimeException {
 
     private final Map<Future, Throwable> causes;
+    private final StatsNode partialStats;
     private final String NEW_LINE = System.getProperty("line.separator");
 
     public PooledException(Map<Future, Throwable> causes) {
+      this(causes, null);
+    }
+
+    public PooledException(Map<Future, Throwable> causes, StatsNode partialStats) {
       if (causes.size() == 1) {
         initCause(causes.values().iterator().next());
       }
       this.causes = causes;
+      this.partialStats = partialStats;
     }
 
     public Map<Future, Throwable> getCauses() {
       return Collections.unmodifiableMap(causes);
     }
 
+    /**
+     * @return the stats recorded by the drivers until they failed or were cancelled, null if statistics are not enabled
+     */
+    public StatsNode getPartialStats() {
+      return partialStats;
+    }
+
     @Override
     public String getMessage() {
       StringBuilder sb = new StringBuilder();
@@ -0,0 +1,217 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+import org.terracotta.ehcache.testing.statistics.StatsReporter;
+import org.terracotta.ehcache.testing.termination.TerminationCondition;
+import org.terracotta.ehcache.testing.termination.TimedTerminationCondition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a {@link CacheAccessor} on several threads through time based phases :
+ * <ul>
+ * <li>warmup : the stats are kept apart, so JIT compilation and cache population do not skew the results,
+ * it runs at the starting concurrency of the ramp up</li>
+ * <li>ramp up : threads are started one after the other, linearly, up to the target concurrency</li>
+ * <li>steady : all the threads run</li>
+ * <li>ramp down : threads are stopped one after the other, linearly</li>
+ * </ul>
+ * Each phase gets its own {@link StatsNode}, see {@link #getPhaseStats()}, and {@link #getFinalStatsNode()}
+ * returns the steady state stats.
+ * <p>
+ * The driver terminates the accessor itself, no termination condition must be set on it. The accessor can be run
+ * again by another PhasedDriver.
+ * <pre>
+ * PhasedDriver driver = PhasedDriver.phased(16, accessor)
+ *     .warmup(30, TimeUnit.SECONDS).rampUp(60, TimeUnit.SECONDS)
+ *     .steady(5, TimeUnit.MINUTES).rampDown(30, TimeUnit.SECONDS);
+ * driver.run();
+ * </pre>
+ */
+public class PhasedDriver implements CacheDriver {
+
+  private static final Logger log = LoggerFactory.getLogger(PhasedDriver.class);
+
+  public enum Phase {
+    WARMUP, RAMP_UP, STEADY, RAMP_DOWN
+  }
+
+  private final CacheAccessor accessor;
+  private final int threads;
+  private final Map<Phase, Long> durations = new EnumMap<Phase, Long>(Phase.class);
+  private final Map<Phase, StatsNode> phaseStats = Collections.synchronizedMap(new EnumMap<Phase, StatsNode>(Phase.class));
+
+  private static final TerminationCondition PHASE_TERMINATION = new PhaseTerminationCondition();
+
+  public static PhasedDriver phased(int threads, CacheAccessor accessor) {
+    return new PhasedDriver(threads, accessor);
+  }
+
+  public PhasedDriver(int threads, CacheAccessor accessor) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is needed, got " + threads);
+    }
+    this.threads = threads;
+    this.accessor = accessor;
+    accessor.enableStatistics(true);
+    if (accessor.getTerminationCondition() != PHASE_TERMINATION) {
+      accessor.terminateOn(PHASE_TERMINATION);
+    }
+  }
+
+  public PhasedDriver warmup(long duration, TimeUnit unit) {
+    return phase(Phase.WARMUP, duration, unit);
+  }
+
+  public PhasedDriver rampUp(long duration, TimeUnit unit) {
+    return phase(Phase.RAMP_UP, duration, unit);
+  }
+
+  public PhasedDriver steady(long duration, TimeUnit unit) {
+    return phase(Phase.STEADY, duration, unit);
+  }
+
+  public PhasedDriver rampDown(long duration, TimeUnit unit) {
+    return phase(Phase.RAMP_DOWN, duration, unit);
+  }
+
+  private PhasedDriver phase(Phase phase, long duration, TimeUnit unit) {
+    if (durations.containsKey(phase)) {
+      throw new IllegalStateException("Duration of phase " + phase + " already chosen");
+    }
+    if (duration < 0) {
+      throw new IllegalArgumentException("Duration of phase " + phase + " can't be negative");
+    }
+    durations.put(phase, unit.toNanos(duration));
+    return this;
+  }
+
+  private long duration(Phase phase) {
+    Long duration = durations.get(phase);
+    return duration == null ? 0 : duration;
+  }
+
+  public void run() {
+    phaseStats.clear();
+    long begin = System.nanoTime();
+    long warmupEnd = begin + duration(Phase.WARMUP);
+    long rampUpEnd = warmupEnd + duration(Phase.RAMP_UP);
+    long steadyEnd = rampUpEnd + duration(Phase.STEADY);
+
+    List<CacheDriver> workers = new ArrayList<CacheDriver>(threads);
+    for (int i = 0; i < threads; i++) {
+      long start = (i == 0) ? begin : warmupEnd + duration(Phase.RAMP_UP) * i / threads;
+      long stop = steadyEnd + duration(Phase.RAMP_DOWN) * (threads - i) / threads;
+      workers.add(new Worker(start, stop));
+    }
+    final ParallelDriver parallelDriver = new ParallelDriver(workers);
+    final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+    Thread runner = new Thread("PhasedDriver") {
+      @Override
+      public void run() {
+        try {
+          parallelDriver.run();
+        } catch (RuntimeException e) {
+          failure.set(e);
+        }
+      }
+    };
+    runner.start();
+
+    try {
+      endPhase(runner, Phase.WARMUP, warmupEnd);
+      endPhase(runner, Phase.RAMP_UP, rampUpEnd);
+      endPhase(runner, Phase.STEADY, steadyEnd);
+      runner.join();
+      endPhase(runner, Phase.RAMP_DOWN, System.nanoTime());
+    } catch (InterruptedException e) {
+      runner.interrupt();
+      Thread.currentThread().interrupt();
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * Waits for the end of the phase, and snapshots its stats unless the phase was skipped
+   */
+  private void endPhase(Thread runner, Phase phase, long end) throws InterruptedException {
+    long remaining;
+    while ((remaining = end - System.nanoTime()) > 0 && runner.isAlive()) {
+      TimeUnit.NANOSECONDS.timedJoin(runner, remaining);
+    }
+    if (duration(phase) > 0) {
+      StatsNode node = StatsReporter.getInstance().snapshot();
+      phaseStats.put(phase, node);
+      log.info("-- Phase {} : {}", phase, node);
+    }
+  }
+
+  /**
+   * @return stats of each phase that ran
+   */
+  public Map<Phase, StatsNode> getPhaseStats() {
+    return Collections.unmodifiableMap(phaseStats);
+  }
+
+  /**
+   * @return steady state stats
+   */
+  public StatsNode getFinalStatsNode() {
+    return phaseStats.get(Phase.STEADY);
+  }
+
+  /**
+   * Runs the accessor between its start and stop times
+   */
+  private class Worker implements CacheDriver {
+    private final long start;
+    private final long stop;
+
+    private Worker(long start, long stop) {
+      this.start = start;
+      this.stop = stop;
+    }
+
+    public void run() {
+      long remaining;
+      while ((remaining = start - System.nanoTime()) > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(remaining);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+      Cancellation.stoppingAt(stop).bind(accessor).run();
+    }
+
+    public StatsNode getFinalStatsNode() {
+      return PhasedDriver.this.getFinalStatsNode();
+    }
+  }
+
+  /**
+   * Met when the stop time of the worker running the calling thread is reached
+   */
+  private static class PhaseTerminationCondition implements TerminationCondition {
+
+    @Override
+    public Condition createCondition(GenericCacheWrapper... caches) {
+      Long stop = Cancellation.stopTime();
+      if (stop == null) {
+        throw new IllegalStateException("The accessor of a PhasedDriver can only be run by a PhasedDriver");
+      }
+      return TimedTerminationCondition.until(stop);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service level a run must hold, e.g. p99 read latency under 2ms and no exception :
+ * <pre>
+ * Sla.sla().readLatency(99, 2, TimeUnit.MILLISECONDS).maxExceptions(0)
+ * </pre>
+ */
+public class Sla {
+
+  private enum Ops {
+    READ, WRITE, REMOVE, ALL
+  }
+
+  private final List<LatencyBound> latencyBounds = new ArrayList<LatencyBound>();
+  private long maxExceptions = Long.MAX_VALUE;
+
+  public static Sla sla() {
+    return new Sla();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @param time highest latency allowed at the percentile
+   */
+  public Sla readLatency(double percentile, long time, TimeUnit unit) {
+    return latency(Ops.READ, percentile, time, unit);
+  }
+
+  public Sla writeLatency(double percentile, long time, TimeUnit unit) {
+    return latency(Ops.WRITE, percentile, time, unit);
+  }
+
+  public Sla removeLatency(double percentile, long time, TimeUnit unit) {
+    return latency(Ops.REMOVE, percentile, time, unit);
+  }
+
+  /**
+   * Bound on the latency of all the operations
+   */
+  public Sla latency(double percentile, long time, TimeUnit unit) {
+    return latency(Ops.ALL, percentile, time, unit);
+  }
+
+  private Sla latency(Ops ops, double percentile, long time, TimeUnit unit) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in (0, 100], was " + percentile);
+    }
+    latencyBounds.add(new LatencyBound(ops, percentile, unit.toNanos(time)));
+    return this;
+  }
+
+  /**
+   * @param maxExceptions highest number of exceptions allowed
+   */
+  public Sla maxExceptions(long maxExceptions) {
+    this.maxExceptions = maxExceptions;
+    return this;
+  }
+
+  /**
+   * @param node finalised stats of a run
+   * @return the violations of this service level, empty if it holds
+   */
+  public List<String> violationsOf(StatsNode node) {
+    List<String> violations = new ArrayList<String>();
+    for (LatencyBound bound : latencyBounds) {
+      long latency = statsOf(node, bound.ops).getLatencyAtPercentile(bound.percentile);
+      if (latency > bound.maxNanos) {
+        violations.add(String.format("%s p%s latency %dus > %dus", bound.ops, bound.percentile,
+            TimeUnit.NANOSECONDS.toMicros(latency), TimeUnit.NANOSECONDS.toMicros(bound.maxNanos)));
+      }
+    }
+    long exceptions = node.getOverallStats().getTotalExceptionCount();
+    if (exceptions > maxExceptions) {
+      violations.add(String.format("%d exceptions > %d", exceptions, maxExceptions));
+    }
+    return violations;
+  }
+
+  public boolean isHeldBy(StatsNode node) {
+    return violationsOf(node).isEmpty();
+  }
+
+  private static Stats statsOf(StatsNode node, Ops ops) {
+    switch (ops) {
+      case READ:
+        return node.getOverallReadStats();
+      case WRITE:
+        return node.getOverallWriteStats();
+      case REMOVE:
+        return node.getOverallRemoveStats();
+      default:
+        return node.getOverallStats();
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (LatencyBound bound : latencyBounds) {
+      sb.append(String.format("%s p%s <= %dus, ", bound.ops, bound.percentile, TimeUnit.NANOSECONDS.toMicros(bound.maxNanos)));
+    }
+    sb.append("exceptions <= ").append(maxExceptions == Long.MAX_VALUE ? "any" : String.valueOf(maxExceptions));
+    return sb.toString();
+  }
+
+  private static final class LatencyBound {
+    final Ops ops;
+    final double percentile;
+    final long maxNanos;
+
+    LatencyBound(Ops ops, double percentile, long maxNanos) {
+      this.ops = ops;
+      this.percentile = percentile;
+      this.maxNanos = maxNanos;
+    }
+  }
+}
@@ -0,0 +1,329 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches the highest offered load a cache sustains while holding a {@link Sla}.
+ * <p>
+ * The accessor is run at a fixed rate (see {@link CacheAccessor#atRate(long)}) on a given number of threads,
+ * each step with a short warmup then a measured steady state. The rate is multiplied by a factor until a step
+ * misses the SLA, or until the achieved throughput falls behind the offered rate, then the search narrows between
+ * the last passing and the first failing rate by bisection.
+ * <p>
+ * Every measured step is kept in {@link #getCurve()}, the throughput/latency curve, and {@link #getKnee()} is the
+ * step where latency starts to grow faster than throughput.
+ * <pre>
+ * ThroughputSearchDriver search = ThroughputSearchDriver.search(16, accessor)
+ *     .holding(Sla.sla().readLatency(99, 2, TimeUnit.MILLISECONDS).maxExceptions(0))
+ *     .from(1000).upTo(1000000);
+ * search.run();
+ * long maxRate = search.getMaxSustainableRate();
+ * </pre>
+ */
+public class ThroughputSearchDriver implements CacheDriver {
+
+  private static final Logger log = LoggerFactory.getLogger(ThroughputSearchDriver.class);
+
+  /**
+   * Latency percentile used for the curve and the knee
+   */
+  private static final double CURVE_PERCENTILE = 99.0;
+
+  private final CacheAccessor accessor;
+  private final int threads;
+
+  private Sla sla;
+  private long startRate = 1000;
+  private long maxRate = Long.MAX_VALUE;
+  private double factor = 2.0;
+  private double precision = 0.05;
+  private double minAchievedRatio = 0.95;
+  private int maxSteps = 30;
+  private long warmupNanos = TimeUnit.SECONDS.toNanos(5);
+  private long measureNanos = TimeUnit.SECONDS.toNanos(20);
+
+  private final List<Step> curve = new ArrayList<Step>();
+  private Step best;
+
+  public static ThroughputSearchDriver search(int threads, CacheAccessor accessor) {
+    return new ThroughputSearchDriver(threads, accessor);
+  }
+
+  public ThroughputSearchDriver(int threads, CacheAccessor accessor) {
+    this.threads = threads;
+    this.accessor = accessor;
+  }
+
+  public ThroughputSearchDriver holding(Sla sla) {
+    if (this.sla != null) {
+      throw new IllegalStateException("Sla already chosen");
+    }
+    this.sla = sla;
+    return this;
+  }
+
+  /**
+   * @param opsPerSecond rate of the first step
+   */
+  public ThroughputSearchDriver from(long opsPerSecond) {
+    if (opsPerSecond <= 0) {
+      throw new IllegalArgumentException("Rate must be positive, was " + opsPerSecond);
+    }
+    this.startRate = opsPerSecond;
+    return this;
+  }
+
+  /**
+   * @param opsPerSecond highest rate tried
+   */
+  public ThroughputSearchDriver upTo(long opsPerSecond) {
+    this.maxRate = opsPerSecond;
+    return this;
+  }
+
+  /**
+   * @param factor the rate is multiplied by factor between two passing steps, 2 by default
+   */
+  public ThroughputSearchDriver increasingBy(double factor) {
+    if (factor <= 1.0) {
+      throw new IllegalArgumentException("Factor must be greater than 1, was " + factor);
+    }
+    this.factor = factor;
+    return this;
+  }
+
+  /**
+   * @param precision the bisection stops when the failing and passing rates are within this ratio, 5% by default
+   */
+  public ThroughputSearchDriver withPrecision(double precision) {
+    this.precision = precision;
+    return this;
+  }
+
+  /**
+   * @param ratio a step fails when its throughput is under this ratio of the offered rate, 95% by default
+   */
+  public ThroughputSearchDriver keepingUpTo(double ratio) {
+    this.minAchievedRatio = ratio;
+    return this;
+  }
+
+  public ThroughputSearchDriver maxSteps(int maxSteps) {
+    this.maxSteps = maxSteps;
+    return this;
+  }
+
+  /**
+   * @param warmup warmup of each step, its stats are discarded
+   * @param measure measured steady state of each step
+   */
+  public ThroughputSearchDriver stepDuration(long warmup, long measure, TimeUnit unit) {
+    this.warmupNanos = unit.toNanos(warmup);
+    this.measureNanos = unit.toNanos(measure);
+    return this;
+  }
+
+  public void run() {
+    if (sla == null) {
+      throw new IllegalStateException("No Sla chosen, see holding(Sla)");
+    }
+    curve.clear();
+    best = null;
+    log.info("-- Searching max sustainable rate holding: {}", sla);
+
+    long passing = 0;
+    long failing = -1;
+    long rate = Math.min(startRate, maxRate);
+    int steps = 0;
+    // stepwise
+    while (steps < maxSteps) {
+      Step step = measure(rate);
+      steps++;
+      if (!step.isPassed()) {
+        failing = rate;
+        break;
+      }
+      passing = rate;
+      if (rate >= maxRate) {
+        break;
+      }
+      rate = (long)Math.min(Math.ceil(rate * factor), maxRate);
+    }
+    // bisection
+    while (failing > 0 && steps < maxSteps && (failing - passing) > precision * failing) {
+      rate = (passing + failing) / 2;
+      if (rate <= passing || rate >= failing) {
+        break;
+      }
+      if (measure(rate).isPassed()) {
+        passing = rate;
+      } else {
+        failing = rate;
+      }
+      steps++;
+    }
+
+    log.info("-- Throughput/latency curve:{}{}", System.getProperty("line.separator"), curveToString());
+    log.info("-- Max sustainable rate: {} ops/s, knee at: {}", getMaxSustainableRate(), getKnee());
+  }
+
+  private Step measure(long rate) {
+    accessor.changeRate(rate);
+    PhasedDriver driver = PhasedDriver.phased(threads, accessor)
+        .warmup(warmupNanos, TimeUnit.NANOSECONDS)
+        .steady(measureNanos, TimeUnit.NANOSECONDS);
+    driver.run();
+    StatsNode node = driver.getFinalStatsNode();
+
+    List<String> violations = new ArrayList<String>(sla.violationsOf(node));
+    Stats overall = node.getOverallStats();
+    long throughput = overall.getThroughput();
+    if (throughput < minAchievedRatio * rate) {
+      violations.add(String.format("throughput %d < %d%% of offered rate", throughput, Math.round(minAchievedRatio * 100)));
+    }
+    Step step = new Step(rate, throughput, overall.getLatencyAtPercentile(CURVE_PERCENTILE), node, violations);
+    curve.add(step);
+    if (step.isPassed() && (best == null || rate > best.getOfferedRate())) {
+      best = step;
+    }
+    log.info("-- Step {}", step);
+    return step;
+  }
+
+  /**
+   * @return highest offered rate holding the Sla, 0 if none did
+   */
+  public long getMaxSustainableRate() {
+    return best == null ? 0 : best.getOfferedRate();
+  }
+
+  /**
+   * @return measured steps, by increasing offered rate
+   */
+  public List<Step> getCurve() {
+    List<Step> sorted = new ArrayList<Step>(curve);
+    Collections.sort(sorted, new Comparator<Step>() {
+      @Override
+      public int compare(Step o1, Step o2) {
+        return o1.getOfferedRate() < o2.getOfferedRate() ? -1 : (o1.getOfferedRate() == o2.getOfferedRate() ? 0 : 1);
+      }
+    });
+    return sorted;
+  }
+
+  /**
+   * Knee of the curve : once throughput and latency are normalised over the measured range, the step
+   * the farthest below the line joining the first and last steps. Beyond it, latency grows faster
+   * than throughput.
+   *
+   * @return the knee, null if less than 3 steps were measured
+   */
+  public Step getKnee() {
+    List<Step> sorted = getCurve();
+    if (sorted.size() < 3) {
+      return null;
+    }
+    double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+    for (Step step : sorted) {
+      minX = Math.min(minX, step.getThroughput());
+      maxX = Math.max(maxX, step.getThroughput());
+      minY = Math.min(minY, step.getLatency());
+      maxY = Math.max(maxY, step.getLatency());
+    }
+    if (maxX == minX || maxY == minY) {
+      return null;
+    }
+    Step knee = null;
+    double maxDistance = 0;
+    for (Step step : sorted) {
+      double x = (step.getThroughput() - minX) / (maxX - minX);
+      double y = (step.getLatency() - minY) / (maxY - minY);
+      if (x - y > maxDistance) {
+        maxDistance = x - y;
+        knee = step;
+      }
+    }
+    return knee;
+  }
+
+  /**
+   * @return stats of the highest passing step, null if none passed
+   */
+  public StatsNode getFinalStatsNode() {
+    return best == null ? null : best.getStats();
+  }
+
+  private String curveToString() {
+    StringBuilder sb = new StringBuilder(String.format("%12s %12s %12s  %s", "Offered", "TPS", "P99(us)", "Result"));
+    for (Step step : getCurve()) {
+      sb.append(System.getProperty("line.separator"))
+          .append(String.format("%12d %12d %12d  %s", step.getOfferedRate(), step.getThroughput(),
+              TimeUnit.NANOSECONDS.toMicros(step.getLatency()), step.isPassed() ? "pass" : step.getViolations()));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * One point of the throughput/latency curve
+   */
+  public static class Step {
+    private final long offeredRate;
+    private final long throughput;
+    private final long latency;
+    private final StatsNode stats;
+    private final List<String> violations;
+
+    Step(long offeredRate, long throughput, long latency, StatsNode stats, List<String> violations) {
+      this.offeredRate = offeredRate;
+      this.throughput = throughput;
+      this.latency = latency;
+      this.stats = stats;
+      this.violations = Collections.unmodifiableList(violations);
+    }
+
+    public long getOfferedRate() {
+      return offeredRate;
+    }
+
+    /**
+     * @return achieved throughput, in ops/s
+     */
+    public long getThroughput() {
+      return throughput;
+    }
+
+    /**
+     * @return p99 latency of all the operations, in nanoseconds
+     */
+    public long getLatency() {
+      return latency;
+    }
+
+    public StatsNode getStats() {
+      return stats;
+    }
+
+    public List<String> getViolations() {
+      return violations;
+    }
+
+    public boolean isPassed() {
+      return violations.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("offered: %d ops/s, achieved: %d ops/s, p99: %dus, %s", offeredRate, throughput,
+          TimeUnit.NANOSECONDS.toMicros(latency), isPassed() ? "pass" : "fail " + violations);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package org.terracotta.ehcache.testing.objectgenerator;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Generator of self-describing byte[] values : a header holding the seed, a version and the CRC32 of the payload,
+ * followed by a payload derived from the seed and the version. A value can be checked on its own, see
+ * {@link org.terracotta.ehcache.testing.validator.ChecksumValidation}, without generating the expected one.
+ * <pre>
+ * 0      4      12        16         20
+ * | magic | seed | version | checksum | payload ... |
+ * </pre>
+ * Values are built with the seed they are generated for, so they can't be pooled with a
+ * {@link ValuePool}.
+ */
+public class ChecksumGenerator implements ObjectGenerator {
+
+  public static final int HEADER_SIZE = 20;
+
+  private static final int MAGIC = 0x43534d56;
+  private static final int SEED_OFFSET = 4;
+  private static final int VERSION_OFFSET = 12;
+  private static final int CHECKSUM_OFFSET = 16;
+
+  private final int min;
+  private final int max;
+
+  private ChecksumGenerator(final int min, final int max) {
+    if (min < 0 || max < min) {
+      throw new IllegalArgumentException("Invalid payload size range " + min + "-" + max);
+    }
+    this.min = min;
+    this.max = max;
+  }
+
+  public Object generate(long seed) {
+    return generate(seed, 0);
+  }
+
+  /**
+   * @param seed    seed of the key
+   * @param version version of the value, e.g. the number of updates of the key
+   * @return the value of the given version
+   */
+  public byte[] generate(long seed, int version) {
+    int size = (min == max) ? min : min + new Random(seed).nextInt(max - min + 1);
+    byte[] value = new byte[HEADER_SIZE + size];
+    writeInt(value, 0, MAGIC);
+    writeLong(value, SEED_OFFSET, seed);
+    writeInt(value, VERSION_OFFSET, version);
+
+    // xorshift of the seed and version, so that each value has its own payload
+    long x = (seed ^ ((long)version << 32)) * 0x9E3779B97F4A7C15L | 1;
+    for (int i = HEADER_SIZE; i < value.length; i += 8) {
+      x ^= x << 13;
+      x ^= x >>> 7;
+      x ^= x << 17;
+      for (int j = i, v = 0; j < value.length && j < i + 8; j++, v += 8) {
+        value[j] = (byte)(x >>> v);
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(value, HEADER_SIZE, size);
+    writeInt(value, CHECKSUM_OFFSET, (int)crc.getValue());
+    return value;
+  }
+
+  /**
+   * @param value read from the cache
+   * @return true if the value has the header of a value of this generator
+   */
+  public static boolean hasHeader(final byte[] value) {
+    return value.length >= HEADER_SIZE && readInt(value, 0) == MAGIC;
+  }
+
+  public static long seedOf(final byte[] value) {
+    return readLong(value, SEED_OFFSET);
+  }
+
+  public static int versionOf(final byte[] value) {
+    return readInt(value, VERSION_OFFSET);
+  }
+
+  public static int checksumOf(final byte[] value) {
+    return readInt(value, CHECKSUM_OFFSET);
+  }
+
+  private static void writeInt(final byte[] bytes, final int offset, final int value) {
+    bytes[offset] = (byte)(value >>> 24);
+    bytes[offset + 1] = (byte)(value >>> 16);
+    bytes[offset + 2] = (byte)(value >>> 8);
+    bytes[offset + 3] = (byte)value;
+  }
+
+  private static void writeLong(final byte[] bytes, final int offset, final long value) {
+    writeInt(bytes, offset, (int)(value >>> 32));
+    writeInt(bytes, offset + 4, (int)value);
+  }
+
+  private static int readInt(final byte[] bytes, final int offset) {
+    return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8)
+           | (bytes[offset + 3] & 0xff);
+  }
+
+  private static long readLong(final byte[] bytes, final int offset) {
+    return ((long)readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xffffffffL);
+  }
+
+  /**
+   * Returns a generator of values with a payload of the given size
+   */
+  public static ChecksumGenerator fixedSize(int payloadSize) {
+    return new ChecksumGenerator(payloadSize, payloadSize);
+  }
+
+  /**
+   * Returns a generator of values with a payload size between min and max, depending on the seed
+   */
+  public static ChecksumGenerator randomSize(int min, int max) {
+    return new ChecksumGenerator(min, max);
+  }
+}
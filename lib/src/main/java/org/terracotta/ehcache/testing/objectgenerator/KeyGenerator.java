@@ -0,0 +1,111 @@
+package org.terracotta.ehcache.testing.objectgenerator;
+
+/**
+ * Generators of keys for a bounded keyspace, built once so that generating a key allocates nothing : the key of
+ * each seed in [0, keyspace) is read from a table, the same instance being returned for the same seed.
+ * Seeds outside of the keyspace still get their key, created on each call.
+ * <p>
+ * The tables live as long as the generator, e.g. ~60 bytes per key for padded strings.
+ */
+public class KeyGenerator implements ObjectGenerator {
+
+  private final Kind kind;
+  private final int width;
+  private final Object[] table;
+
+  private enum Kind {LONG, STRING, BYTES}
+
+  private KeyGenerator(final Kind kind, final long keyspace, final int width) {
+    if (keyspace < 0 || keyspace > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Keyspace must be between 0 and " + (Integer.MAX_VALUE - 8) + ", was " + keyspace);
+    }
+    this.kind = kind;
+    this.width = width;
+    this.table = new Object[(int)keyspace];
+    for (int i = 0; i < table.length; i++) {
+      table[i] = create(i);
+    }
+  }
+
+  public Object generate(long seed) {
+    if (seed >= 0 && seed < table.length) {
+      return table[(int)seed];
+    }
+    return create(seed);
+  }
+
+  private Object create(final long seed) {
+    if (Kind.LONG.equals(kind)) {
+      return seed;
+    } else if (Kind.STRING.equals(kind)) {
+      return padded(seed);
+    } else {
+      return bytes(seed);
+    }
+  }
+
+  private String padded(final long seed) {
+    String digits = Long.toString(seed);
+    if (digits.length() >= width) {
+      return digits;
+    }
+    char[] chars = new char[width];
+    int zeros = width - digits.length();
+    for (int i = 0; i < zeros; i++) {
+      chars[i] = '0';
+    }
+    digits.getChars(0, digits.length(), chars, zeros);
+    return new String(chars);
+  }
+
+  private byte[] bytes(final long seed) {
+    byte[] bytes = new byte[width];
+    long value = seed;
+    for (int i = width - 1; i >= 0 && i >= width - 8; i--) {
+      bytes[i] = (byte)value;
+      value >>>= 8;
+    }
+    return bytes;
+  }
+
+  private static void checkWidth(final long keyspace, final int width, final int needed) {
+    if (width < needed) {
+      throw new IllegalArgumentException("Width " + width + " is too small for a keyspace of " + keyspace + ", "
+                                         + needed + " needed");
+    }
+  }
+
+  /**
+   * Returns a generator of {@link Long} keys, boxed once per seed
+   *
+   * @param keyspace number of keys, seeds from 0 to keyspace - 1
+   */
+  public static ObjectGenerator longs(long keyspace) {
+    return new KeyGenerator(Kind.LONG, keyspace, 0);
+  }
+
+  /**
+   * Returns a generator of the seed as a decimal String, left padded with zeros to the given width
+   *
+   * @param keyspace number of keys, seeds from 0 to keyspace - 1
+   * @param width    length of the keys, at least the number of digits of the last seed
+   */
+  public static ObjectGenerator padded(long keyspace, int width) {
+    checkWidth(keyspace, width, Long.toString(Math.max(keyspace - 1, 0)).length());
+    return new KeyGenerator(Kind.STRING, keyspace, width);
+  }
+
+  /**
+   * Returns a generator of byte[] keys holding the seed, big endian, in their last bytes.
+   * Arrays have no value equality : the keys only match across calls because the same instance is returned,
+   * or in caches comparing the serialized keys.
+   *
+   * @param keyspace number of keys, seeds from 0 to keyspace - 1
+   * @param width    length of the keys, at least the number of bytes of the last seed
+   */
+  public static ObjectGenerator bytes(long keyspace, int width) {
+    int needed = (64 - Long.numberOfLeadingZeros(Math.max(keyspace - 1, 0)) + 7) / 8;
+    checkWidth(keyspace, width, Math.max(needed, 1));
+    return new KeyGenerator(Kind.BYTES, keyspace, width);
+  }
+}
@@ -25,6 +25,9 @@ public class StringGenerator implements ObjectGenerator {
   }
 
   public Object generate(long seed) {
+    if (clazz == Long.class && length == 1) {
+      return Long.toString(seed);
+    }
 
     StringBuilder sb = new StringBuilder();
     for (int i = 0; i < length; i++) {
@@ -46,7 +49,8 @@ public class StringGenerator implements ObjectGenerator {
   }
 
   /**
-   * Returns a Generator which will generate a String representing a number
+   * Returns a Generator which will generate a String representing a number.
+   * See {@link KeyGenerator} for keys allocating nothing on a bounded keyspace
    */
   public static ObjectGenerator integers() {
     return new StringGenerator(Long.class, 1);
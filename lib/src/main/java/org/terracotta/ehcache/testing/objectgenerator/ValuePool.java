@@ -0,0 +1,84 @@
+package org.terracotta.ehcache.testing.objectgenerator;
+
+/**
+ * Generator returning values from a pool computed once by another generator, the value of a seed being the one of
+ * <tt>seed % poolSize</tt>, so that neither puts nor validations generate anything.
+ * <p>
+ * Pooled values are shared by all the keys, they must not be modified. A cache storing values by reference then holds
+ * only poolSize distinct values, which is fine to measure a cache copying or serializing its values (offheap,
+ * disk, clustered, copyOnWrite) but not its heap footprint. For those caches, {@link #copied(ObjectGenerator, int)}
+ * copies byte[] values in a buffer reused by the calling thread, and allocates nothing either.
+ */
+public class ValuePool implements ObjectGenerator {
+
+  private final Object[] pool;
+  private final ThreadLocal<byte[]> buffer;
+
+  private ValuePool(final ObjectGenerator generator, final int poolSize, final boolean copied) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("Pool size must be positive, was " + poolSize);
+    }
+    this.pool = new Object[poolSize];
+    for (int i = 0; i < poolSize; i++) {
+      pool[i] = generator.generate(i);
+    }
+    if (copied) {
+      final int length = checkFixedSizeArrays();
+      this.buffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+          return new byte[length];
+        }
+      };
+    } else {
+      this.buffer = null;
+    }
+  }
+
+  private int checkFixedSizeArrays() {
+    int length = -1;
+    for (Object value : pool) {
+      if (!(value instanceof byte[])) {
+        throw new IllegalArgumentException("Only byte[] values can be copied, not " + value);
+      }
+      if (length != -1 && ((byte[])value).length != length) {
+        throw new IllegalArgumentException("Only fixed size values can be copied, found sizes " + length + " and "
+                                           + ((byte[])value).length);
+      }
+      length = ((byte[])value).length;
+    }
+    return length;
+  }
+
+  public Object generate(long seed) {
+    int index = (int)(seed % pool.length);
+    Object value = pool[index < 0 ? index + pool.length : index];
+    if (buffer == null) {
+      return value;
+    }
+    byte[] copy = buffer.get();
+    System.arraycopy(value, 0, copy, 0, copy.length);
+    return copy;
+  }
+
+  /**
+   * Returns a generator of values shared with every seed having the same index in the pool
+   *
+   * @param generator generates the pool, with seeds from 0 to poolSize - 1
+   * @param poolSize  number of distinct values
+   */
+  public static ObjectGenerator shared(ObjectGenerator generator, int poolSize) {
+    return new ValuePool(generator, poolSize, false);
+  }
+
+  /**
+   * Returns a generator copying the pooled value in a buffer of the calling thread, overwritten by its next call :
+   * only for caches copying the values they are given
+   *
+   * @param generator generates the pool, fixed size byte[] values, with seeds from 0 to poolSize - 1
+   * @param poolSize  number of distinct values
+   */
+  public static ObjectGenerator copied(ObjectGenerator generator, int poolSize) {
+    return new ValuePool(generator, poolSize, true);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.operation;
+
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+/**
+ * Operation on a batch of keys (getAll, putAll, removeAll...).
+ * <p>
+ * The accessors pull the seeds of a batch from their sequence, one iteration of the accessor being one batch.
+ * The latency of the whole batch is recorded in the batch stats of the cache, and each key of the batch accounts
+ * for its share of it in the read, write or remove stats, so that their throughput is in keys.
+ * The {@link org.terracotta.ehcache.testing.driver.CacheLoader} runs them with batches of a single key.
+ */
+public abstract class BatchCacheOperation<T> extends CacheOperation<T> {
+
+  private final int batchSize;
+
+  protected BatchCacheOperation(final Double ratio, final int batchSize) {
+    super(ratio);
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, was " + batchSize);
+    }
+    this.batchSize = batchSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Executes a batch of a single key
+   */
+  @Override
+  public T exec(final GenericCacheWrapper cacheWrapper, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+    return execBatch(cacheWrapper, new long[] { seed }, keyGenerator, valueGenerator, validator);
+  }
+
+  public abstract T execBatch(final GenericCacheWrapper cacheWrapper, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator);
+
+  /**
+   * Records the latency of a batch, and its share for each key
+   *
+   * @param perKey read, write or remove stats of the cache
+   * @param start start time of the batch
+   * @param keys number of keys of the batch
+   */
+  protected static void recordBatch(final GenericCacheWrapper cache, final Stats perKey, final long start, final int keys) {
+    long latency = now() - start;
+    cache.getBatchStats().add(latency);
+    perKey.add(latency / keys, keys);
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "(" + batchSize + ")";
+  }
+}
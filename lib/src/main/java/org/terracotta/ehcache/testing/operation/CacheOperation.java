@@ -17,10 +17,23 @@ package org.terracotta.ehcache.testing.operation;
 
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
 import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.statistics.Stats;
 import org.terracotta.ehcache.testing.validator.Validation;
+import org.terracotta.ehcache.testing.validator.VersionedValidation;
 
 public abstract class CacheOperation<T> {
 
+  private static final long NO_INTENDED_START = Long.MIN_VALUE;
+
+  private static final ThreadLocal<long[]> intendedStartTime = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[] { NO_INTENDED_START };
+    }
+  };
+
+  private static final ThreadLocal<RuntimeException> recordedFailure = new ThreadLocal<RuntimeException>();
+
   private Validation.Mode validationMode;
 
   Double ratio;
@@ -56,6 +69,114 @@ public abstract class CacheOperation<T> {
     return System.nanoTime();
   }
 
+  /**
+   * Sets the time at which the next operations of the current thread were supposed to start,
+   * used by open loop drivers so that latencies include the time spent waiting behind a stalled operation.
+   *
+   * @param nanoTime intended start time, in {@link System#nanoTime()} reference
+   */
+  public static void setIntendedStartTime(final long nanoTime) {
+    intendedStartTime.get()[0] = nanoTime;
+  }
+
+  public static void clearIntendedStartTime() {
+    intendedStartTime.get()[0] = NO_INTENDED_START;
+  }
+
+  /**
+   * @return the intended start time of the operation if one was set by the driver, {@link #now()} otherwise
+   */
+  protected static long startTime() {
+    long intended = intendedStartTime.get()[0];
+    return (intended == NO_INTENDED_START) ? now() : intended;
+  }
+
+  /**
+   * Records a failed operation in the stats of its exception type, the caller is expected to rethrow the failure
+   * and let the driver's {@code ErrorPolicy} decide whether to go on.
+   *
+   * @return the failure
+   */
+  protected static RuntimeException failed(final GenericCacheWrapper cacheWrapper, final Stats stats, final long start, final RuntimeException failure) {
+    if (cacheWrapper.isStatisticsEnabled()) {
+      stats.addFailure(now() - start, failure);
+    }
+    recordedFailure.set(failure);
+    return failure;
+  }
+
+  /**
+   * @param failure thrown by an operation run by the calling thread
+   * @return true if the operation recorded the failure with
+   *         {@link #failed(GenericCacheWrapper, Stats, long, RuntimeException)}, false if it is e.g. a bug
+   *         of the operation
+   */
+  public static boolean isRecordedFailure(final RuntimeException failure) {
+    RuntimeException recorded = recordedFailure.get();
+    recordedFailure.remove();
+    return recorded == failure;
+  }
+
+  /**
+   * Records what the validator needs to know before a read, see {@link VersionedValidation}
+   */
+  protected static void beforeRead(final Validation.Validator validator, final long seed) {
+    if (validator instanceof VersionedValidation.VersionedValidator) {
+      ((VersionedValidation.VersionedValidator)validator).beforeRead(seed);
+    }
+  }
+
+  /**
+   * @return the value to write for the seed, of the next version of the key when the validator tracks versions,
+   *         the write must then end with {@link #endWrite(Validation.Validator, long, boolean)}
+   */
+  protected static Object beginWrite(final Validation.Validator validator, final ObjectGenerator valueGenerator, final long seed) {
+    if (validator instanceof VersionedValidation.VersionedValidator) {
+      return ((VersionedValidation.VersionedValidator)validator).beginWrite(seed);
+    }
+    return valueGenerator.generate(seed);
+  }
+
+  /**
+   * @return the value a conditional remove expects, the remove must end with
+   *         {@link #endWrite(Validation.Validator, long, boolean)}
+   */
+  protected static Object beginRemove(final Validation.Validator validator, final ObjectGenerator valueGenerator, final long seed) {
+    if (validator instanceof VersionedValidation.VersionedValidator) {
+      return ((VersionedValidation.VersionedValidator)validator).beginRemove(seed);
+    }
+    return valueGenerator.generate(seed);
+  }
+
+  /**
+   * Starts the remove of a key whatever its value, without generating any, the remove must end with
+   * {@link #endWrite(Validation.Validator, long, boolean)}
+   */
+  protected static void beginRemoveKey(final Validation.Validator validator, final long seed) {
+    if (validator instanceof VersionedValidation.VersionedValidator) {
+      ((VersionedValidation.VersionedValidator)validator).beginRemoveKey(seed);
+    }
+  }
+
+  /**
+   * @return the value a conditional write expects to replace
+   */
+  protected static Object currentValue(final Validation.Validator validator, final ObjectGenerator valueGenerator, final long seed) {
+    if (validator instanceof VersionedValidation.VersionedValidator) {
+      return ((VersionedValidation.VersionedValidator)validator).currentValue(seed);
+    }
+    return valueGenerator.generate(seed);
+  }
+
+  /**
+   * @param applied false if the write failed or its condition didn't hold
+   */
+  protected static void endWrite(final Validation.Validator validator, final long seed, final boolean applied) {
+    if (validator instanceof VersionedValidation.VersionedValidator) {
+      ((VersionedValidation.VersionedValidator)validator).endWrite(seed, applied);
+    }
+  }
+
   public abstract T exec(final GenericCacheWrapper cacheWrapper, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator);
 
   public abstract String getName();
@@ -0,0 +1,417 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.operation;
+
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Operations on the caches of {@link org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper},
+ * same semantics and statistics as the Ehcache ones
+ */
+public class ConcurrentMapOperation {
+
+  public enum OPERATIONS {
+    GET, UPDATE, REMOVE, REMOVE_ELEMENT, REPLACE, REPLACE_ELEMENT, PUT, PUT_IF_ABSENT, GET_ALL, PUT_ALL, REMOVE_ALL;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ConcurrentMap<Object, Object> map(final GenericCacheWrapper cache) {
+    return (ConcurrentMap<Object, Object>)cache.getCache();
+  }
+
+  public static CacheOperation get(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value;
+        beforeRead(validator, seed);
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          value = map(cache).get(key);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getReadStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getReadStats().add(end - start);
+        }
+
+        if (Validation.Mode.STRICT.equals(getValidationMode())) {
+          if (validator == null) {
+            throw new AssertionError("Validator is null");
+          }
+          validator.validate(seed, value);
+        } else {
+          if (value == null) {
+            Object missing = beginWrite(validator, valueGenerator, seed);
+            boolean written = false;
+            long putStart = (cache.isStatisticsEnabled()) ? now() : 0;
+            try {
+              map(cache).put(key, missing);
+              written = true;
+            } catch (RuntimeException e) {
+              throw failed(cache, cache.getWriteStats(), putStart, e);
+            } finally {
+              endWrite(validator, seed, written);
+            }
+          } else if (validator != null) {
+            validator.validate(seed, value);
+          }
+        }
+        return value;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.GET.name();
+      }
+    };
+  }
+
+  public static CacheOperation remove(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Boolean exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        boolean removed;
+        boolean done = false;
+        beginRemoveKey(validator, seed);
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          removed = map(cache).remove(key) != null;
+          done = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getRemoveStats(), start, e);
+        } finally {
+          endWrite(validator, seed, done);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getRemoveStats().add(end - start);
+        }
+        return removed;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.REMOVE.name();
+      }
+    };
+  }
+
+  public static CacheOperation removeElement(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Boolean exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value = beginRemove(validator, valueGenerator, seed);
+        boolean removed = false;
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          removed = map(cache).remove(key, value);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getRemoveStats(), start, e);
+        } finally {
+          endWrite(validator, seed, removed);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getRemoveStats().add(end - start);
+        }
+        return removed;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.REMOVE_ELEMENT.name();
+      }
+    };
+  }
+
+  public static CacheOperation putIfAbsent(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value = beginWrite(validator, valueGenerator, seed);
+        Object previous;
+        boolean written = false;
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          previous = map(cache).putIfAbsent(key, value);
+          written = previous == null;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getWriteStats().add(end - start);
+        }
+        return previous;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.PUT_IF_ABSENT.name();
+      }
+    };
+  }
+
+  public static CacheOperation put(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Void exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value = beginWrite(validator, valueGenerator, seed);
+        boolean written = false;
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          map(cache).put(key, value);
+          written = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getWriteStats().add(end - start);
+        }
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.PUT.name();
+      }
+    };
+  }
+
+  public static CacheOperation replaceElement(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Boolean exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value = beginWrite(validator, valueGenerator, seed);
+        Object oldValueToTestAgainst = currentValue(validator, valueGenerator, seed);
+        boolean replaced = false;
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          replaced = map(cache).replace(key, oldValueToTestAgainst, value);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, replaced);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getWriteStats().add(end - start);
+        }
+        return replaced;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.REPLACE_ELEMENT.name();
+      }
+    };
+  }
+
+  public static CacheOperation replace(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value = beginWrite(validator, valueGenerator, seed);
+        Object oldReplacedValue = null;
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          oldReplacedValue = map(cache).replace(key, value);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, oldReplacedValue != null);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getWriteStats().add(end - start);
+        }
+        return oldReplacedValue;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.REPLACE.name();
+      }
+    };
+  }
+
+  public static CacheOperation update(final double ratio) {
+    return new CacheOperation(ratio) {
+
+      @Override
+      public Void exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object key = keyGenerator.generate(seed);
+        Object value = beginWrite(validator, valueGenerator, seed);
+        boolean written = false;
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          map(cache).put(key, value);
+          written = true;
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        } finally {
+          endWrite(validator, seed, written);
+        }
+        if (cache.isStatisticsEnabled()) {
+          long end = now();
+          cache.getWriteStats().add(end - start);
+        }
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.UPDATE.name();
+      }
+    };
+  }
+
+  /**
+   * A map has no bulk read, the batch is read key by key
+   */
+  public static CacheOperation getAll(final double ratio, final int batchSize) {
+    return new BatchCacheOperation(ratio, batchSize) {
+
+      @Override
+      public Object[] execBatch(final GenericCacheWrapper cache, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object[] keys = new Object[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+          keys[i] = keyGenerator.generate(seeds[i]);
+        }
+        Object[] values = new Object[seeds.length];
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          for (int i = 0; i < keys.length; i++) {
+            values[i] = map(cache).get(keys[i]);
+          }
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getReadStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          recordBatch(cache, cache.getReadStats(), start, keys.length);
+        }
+
+        boolean strict = Validation.Mode.STRICT.equals(getValidationMode());
+        if (strict && validator == null) {
+          throw new AssertionError("Validator is null");
+        }
+        for (int i = 0; i < values.length; i++) {
+          if (strict) {
+            validator.validate(seeds[i], values[i]);
+          } else if (values[i] == null) {
+            map(cache).put(keys[i], valueGenerator.generate(seeds[i]));
+          } else if (validator != null) {
+            validator.validate(seeds[i], values[i]);
+          }
+        }
+        return values;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.GET_ALL.name();
+      }
+    };
+  }
+
+  public static CacheOperation putAll(final double ratio, final int batchSize) {
+    return new BatchCacheOperation(ratio, batchSize) {
+
+      @Override
+      public Void execBatch(final GenericCacheWrapper cache, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Map<Object, Object> entries = new HashMap<Object, Object>();
+        for (long seed : seeds) {
+          entries.put(keyGenerator.generate(seed), valueGenerator.generate(seed));
+        }
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          map(cache).putAll(entries);
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getWriteStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          recordBatch(cache, cache.getWriteStats(), start, seeds.length);
+        }
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.PUT_ALL.name();
+      }
+    };
+  }
+
+  /**
+   * A map has no bulk remove, the batch is removed key by key
+   */
+  public static CacheOperation removeAll(final double ratio, final int batchSize) {
+    return new BatchCacheOperation(ratio, batchSize) {
+
+      @Override
+      public Void execBatch(final GenericCacheWrapper cache, final long[] seeds, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        Object[] keys = new Object[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+          keys[i] = keyGenerator.generate(seeds[i]);
+        }
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        try {
+          for (Object key : keys) {
+            map(cache).remove(key);
+          }
+        } catch (RuntimeException e) {
+          throw failed(cache, cache.getRemoveStats(), start, e);
+        }
+        if (cache.isStatisticsEnabled()) {
+          recordBatch(cache, cache.getRemoveStats(), start, keys.length);
+        }
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return OPERATIONS.REMOVE_ALL.name();
+      }
+    };
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Operations mix compiled in an alias table (Vose's method) : picking an operation according to
+ * the ratios is one random draw and two array reads, whatever the number of operations.
+ * <p>
+ * When the ratios sum to less than 100%, the remaining share selects no operation.
+ */
+public class OperationMix {
+
+  private final CacheOperation[] operations;
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  public OperationMix(final Collection<CacheOperation> cacheOperations) {
+    List<CacheOperation> ops = new ArrayList<CacheOperation>();
+    List<Double> ratios = new ArrayList<Double>();
+    double sumOfRatios = 0.0;
+    for (CacheOperation operation : cacheOperations) {
+      double ratio = operation.getRatio();
+      if (ratio > 0.0) {
+        ops.add(operation);
+        ratios.add(ratio);
+        sumOfRatios += ratio;
+      }
+    }
+    if (sumOfRatios < 1.0) {
+      ops.add(null);
+      ratios.add(1.0 - sumOfRatios);
+      sumOfRatios = 1.0;
+    }
+
+    int n = ops.size();
+    this.operations = ops.toArray(new CacheOperation[n]);
+    this.probabilities = new double[n];
+    this.aliases = new int[n];
+
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallCount = 0, largeCount = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = ratios.get(i) * n / sumOfRatios;
+      if (scaled[i] < 1.0) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+      if (scaled[more] < 1.0) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+    // leftovers are at 1.0, give or take rounding errors
+    while (largeCount > 0) {
+      int i = large[--largeCount];
+      probabilities[i] = 1.0;
+      aliases[i] = i;
+    }
+    while (smallCount > 0) {
+      int i = small[--smallCount];
+      probabilities[i] = 1.0;
+      aliases[i] = i;
+    }
+  }
+
+  /**
+   * @param rnd random stream of the calling thread
+   * @return the selected operation, null if the draw falls in the share left without operation
+   */
+  public CacheOperation select(final Random rnd) {
+    double u = rnd.nextDouble() * operations.length;
+    int column = (int) u;
+    return operations[(u - column < probabilities[column]) ? column : aliases[column]];
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.scenario;
+
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+
+/**
+ * Creates the caches of a {@link Scenario}, for the cache solutions it supports.
+ * <p>
+ * Providers are looked up with {@link java.util.ServiceLoader}, a support jar registers its provider in
+ * <tt>META-INF/services/org.terracotta.ehcache.testing.scenario.CacheProvider</tt>.
+ * A new provider instance is used for each run of a scenario.
+ */
+public interface CacheProvider {
+
+  /**
+   * @param type value of the <tt>cache.provider</tt> key of the scenario, e.g. <tt>ehcache</tt>
+   * @return true if this provider creates caches of this type
+   */
+  boolean supports(String type);
+
+  /**
+   * @param scenario scenario, to read the provider specific keys from (e.g. the path of a configuration file)
+   * @param names names of the caches
+   * @return the caches, in the order of the names
+   */
+  GenericCacheWrapper[] createCaches(Scenario scenario, String[] names);
+
+  /**
+   * @return class holding the operations factories, static methods taking the ratio as a double,
+   * e.g. {@link org.terracotta.ehcache.testing.operation.ConcurrentMapOperation}
+   */
+  Class<?> getOperations();
+
+  /**
+   * Releases the caches, once the scenario ran
+   */
+  void close();
+}
@@ -0,0 +1,53 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.scenario;
+
+import org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.operation.ConcurrentMapOperation;
+
+/**
+ * Built-in caches : <tt>map</tt> for a {@link java.util.concurrent.ConcurrentHashMap}, <tt>null</tt> for a cache
+ * storing nothing, see {@link ConcurrentMapWrapper}
+ */
+public class ConcurrentMapProvider implements CacheProvider {
+
+  @Override
+  public boolean supports(final String type) {
+    return "map".equals(type) || "null".equals(type);
+  }
+
+  @Override
+  public GenericCacheWrapper[] createCaches(final Scenario scenario, final String[] names) {
+    if ("null".equals(scenario.get(Scenario.CACHE_PROVIDER))) {
+      GenericCacheWrapper[] caches = new GenericCacheWrapper[names.length];
+      for (int i = 0; i < names.length; i++) {
+        caches[i] = ConcurrentMapWrapper.nullCache(names[i]);
+      }
+      return caches;
+    }
+    return ConcurrentMapWrapper.concurrentMaps(names);
+  }
+
+  @Override
+  public Class<?> getOperations() {
+    return ConcurrentMapOperation.class;
+  }
+
+  @Override
+  public void close() {
+  }
+}
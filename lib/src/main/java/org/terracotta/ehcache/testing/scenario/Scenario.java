@@ -0,0 +1,472 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.scenario;
+
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.KeyGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ValuePool;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test described in a properties file, run by {@link ScenarioRunner}.
+ * <pre>
+ * # caches, created by the CacheProvider supporting cache.provider (map, null, ehcache...)
+ * caches = one, two
+ * cache.provider = ehcache
+ * ehcache.config = /path/to/ehcache.xml
+ *
+ * # key and value generators, used to load and to access
+ * # keys : integers, string:&lt;length&gt;, chars:&lt;length&gt;, or keys built once for a keyspace :
+ * # longs:&lt;keyspace&gt;, padded:&lt;keyspace&gt;:&lt;width&gt;, bytes:&lt;keyspace&gt;:&lt;width&gt;
+ * keys = integers
+ * # values : fixed:&lt;size&gt;, random:&lt;min&gt;-&lt;max&gt;, collections:&lt;size&gt;:&lt;depth&gt;, graph:&lt;size&gt;:&lt;depth&gt;,
+ * # pool:&lt;pool size&gt;:&lt;generator&gt; to generate the values once, shared by the keys,
+ * # or pool.copy:&lt;pool size&gt;:&lt;generator&gt; copied for each put (caches copying values),
+ * # checksum:&lt;size&gt; for values validated on their own (access.validate = update:checksum)
+ * values = fixed:${value.size}
+ *
+ * # optional load, partitioned between the threads
+ * load.count = 100000
+ * load.offset = 0
+ * load.threads = 4
+ *
+ * # access
+ * access.threads = ${threads}
+ * # sequential[:&lt;offset&gt;] or &lt;Distribution&gt;:&lt;min&gt;:&lt;max&gt;:&lt;width&gt;
+ * access.seeds = GAUSSIAN:0:100000:10000
+ * # &lt;operation&gt;:&lt;ratio&gt;[:&lt;batch size&gt;]
+ * access.ops = get:0.8, update:0.1, getAll:0.1:100
+ * # strict, update, absent for no validation, :checksum for checksum values
+ * # or :versioned:&lt;keyspace&gt; to also check them against concurrent updates
+ * access.validate = update
+ * # optional, validates a sample of the reads off the accessors' threads, on access.validate.threads threads
+ * access.validate.sample = 0.01
+ * access.validate.threads = 1
+ * # or access.thinktime in micros
+ * access.rate = 10000
+ * # continue, abort, or the number of failed operations to abort at
+ * access.errors = continue
+ * # phases, or a termination : access.duration, access.iterations or access.until = filled
+ * access.warmup = 30s
+ * access.steady = 5m
+ *
+ * # or binary:&lt;file&gt;, see StatsLogReport
+ * loggers = console, csv:results.csv
+ *
+ * # optional worker JVMs, each loading and accessing its own slice of the keys
+ * workers = 4
+ * workers.jvm.args = -Xmx1g
+ * # false to attach workers started by hand
+ * workers.launch = true
+ * # any free port if 0
+ * coordinator.port = 0
+ *
+ * # sweeps, every combination of the values is run
+ * sweep.value.size = 128, 1k, 8k
+ * sweep.threads = 4, 16, 64
+ * </pre>
+ * Values can refer to the sweep parameters, or to any other key, as <tt>${key}</tt>. An empty value is the same as
+ * an absent key. As in any properties file, comments go on their own lines.
+ * Sizes accept the <tt>k</tt> and <tt>m</tt> suffixes, durations the <tt>ms</tt>, <tt>s</tt>, <tt>m</tt> and <tt>h</tt> ones.
+ */
+public class Scenario {
+
+  public static final String CACHES = "caches";
+  public static final String CACHE_PROVIDER = "cache.provider";
+  public static final String KEYS = "keys";
+  public static final String VALUES = "values";
+  public static final String LOAD_COUNT = "load.count";
+  public static final String LOAD_OFFSET = "load.offset";
+  public static final String LOAD_THREADS = "load.threads";
+  public static final String ACCESS_THREADS = "access.threads";
+  public static final String ACCESS_VIRTUAL_THREADS = "access.virtual.threads";
+  public static final String ACCESS_SEEDS = "access.seeds";
+  public static final String ACCESS_OPS = "access.ops";
+  public static final String ACCESS_VALIDATE = "access.validate";
+  public static final String ACCESS_VALIDATE_SAMPLE = "access.validate.sample";
+  public static final String ACCESS_VALIDATE_THREADS = "access.validate.threads";
+  public static final String ACCESS_RATE = "access.rate";
+  public static final String ACCESS_THINKTIME = "access.thinktime";
+  public static final String ACCESS_ERRORS = "access.errors";
+  public static final String ACCESS_WARMUP = "access.warmup";
+  public static final String ACCESS_RAMPUP = "access.rampup";
+  public static final String ACCESS_STEADY = "access.steady";
+  public static final String ACCESS_RAMPDOWN = "access.rampdown";
+  public static final String ACCESS_DURATION = "access.duration";
+  public static final String ACCESS_ITERATIONS = "access.iterations";
+  public static final String ACCESS_UNTIL = "access.until";
+  public static final String LOGGERS = "loggers";
+  public static final String WORKERS = "workers";
+  public static final String WORKERS_LAUNCH = "workers.launch";
+  public static final String WORKERS_JVM_ARGS = "workers.jvm.args";
+  public static final String COORDINATOR_PORT = "coordinator.port";
+  public static final String SWEEP_PREFIX = "sweep.";
+
+  private static final Pattern REFERENCE = Pattern.compile("\\$\\{([^}]+)\\}");
+  private static final Pattern DURATION = Pattern.compile("(\\d+)\\s*(ms|s|m|h)?");
+
+  private final String name;
+  private final Properties properties;
+  private final Map<String, String> parameters;
+
+  public static Scenario load(final File file) throws IOException {
+    Properties properties = new Properties();
+    InputStream in = new FileInputStream(file);
+    try {
+      properties.load(in);
+    } finally {
+      in.close();
+    }
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    return new Scenario(dot > 0 ? name.substring(0, dot) : name, properties);
+  }
+
+  public Scenario(final String name, final Properties properties) {
+    this(name, properties, Collections.<String, String>emptyMap());
+  }
+
+  private Scenario(final String name, final Properties properties, final Map<String, String> parameters) {
+    this.name = name;
+    this.properties = properties;
+    this.parameters = parameters;
+  }
+
+  /**
+   * @return a copy of this scenario, with the key set to the value
+   */
+  public Scenario with(final String key, final String value) {
+    Properties p = new Properties();
+    p.putAll(properties);
+    p.setProperty(key, value);
+    return new Scenario(name, p, parameters);
+  }
+
+  /**
+   * @return one scenario per combination of the sweep parameters values, this scenario if there is no sweep
+   */
+  public List<Scenario> sweep() {
+    List<String> sweepKeys = new ArrayList<String>();
+    for (String key : properties.stringPropertyNames()) {
+      // a sweep key overridden to an empty value is no sweep at all
+      if (key.startsWith(SWEEP_PREFIX) && get(key) != null) {
+        sweepKeys.add(key);
+      }
+    }
+    Collections.sort(sweepKeys);
+
+    List<Map<String, String>> combinations = new ArrayList<Map<String, String>>();
+    combinations.add(new LinkedHashMap<String, String>());
+    for (String key : sweepKeys) {
+      List<Map<String, String>> expanded = new ArrayList<Map<String, String>>();
+      for (Map<String, String> combination : combinations) {
+        for (String value : split(get(key))) {
+          Map<String, String> next = new LinkedHashMap<String, String>(combination);
+          next.put(key.substring(SWEEP_PREFIX.length()), value);
+          expanded.add(next);
+        }
+      }
+      combinations = expanded;
+    }
+
+    if (sweepKeys.isEmpty()) {
+      return Collections.singletonList(this);
+    }
+    List<Scenario> scenarios = new ArrayList<Scenario>(combinations.size());
+    for (Map<String, String> combination : combinations) {
+      Properties p = new Properties();
+      p.putAll(properties);
+      p.putAll(combination);
+      scenarios.add(new Scenario(name + combination, p, Collections.unmodifiableMap(combination)));
+    }
+    return scenarios;
+  }
+
+  /**
+   * Share of a worker JVM : a disjoint slice of the loaded keys and of the accessed seeds, and of the access rate.
+   * The worker runs it by itself, without loggers.
+   *
+   * @param index index of the worker, from 0
+   * @param count number of workers
+   */
+  Scenario partition(final int index, final int count) {
+    Scenario partition = with(WORKERS, "").with(LOGGERS, "");
+    long loadCount = getLong(LOAD_COUNT, 0);
+    if (loadCount > 0) {
+      long offset = getLong(LOAD_OFFSET, 0);
+      long from = offset + slice(loadCount, index, count);
+      partition = partition.with(LOAD_OFFSET, Long.toString(from))
+          .with(LOAD_COUNT, Long.toString(offset + slice(loadCount, index + 1, count) - from));
+    }
+
+    String[] seeds = get(ACCESS_SEEDS, "sequential").split(":");
+    if ("sequential".equalsIgnoreCase(seeds[0].trim())) {
+      if (loadCount == 0 && index > 0) {
+        throw new IllegalArgumentException("Scenario " + name + " : sequential " + ACCESS_SEEDS + " need " + LOAD_COUNT
+                                           + " to be partitioned between workers");
+      }
+      long offset = seeds.length > 1 ? parseSize(seeds[1]) : 0;
+      partition = partition.with(ACCESS_SEEDS, "sequential:" + (offset + slice(loadCount, index, count)));
+    } else if (seeds.length == 4) {
+      long min = parseSize(seeds[1]);
+      long max = parseSize(seeds[2]);
+      long width = Math.max(1, parseSize(seeds[3]) / count);
+      partition = partition.with(ACCESS_SEEDS, seeds[0].trim() + ":" + (min + slice(max - min, index, count)) + ":"
+                                               + (min + slice(max - min, index + 1, count)) + ":" + width);
+    }
+
+    if (has(ACCESS_RATE)) {
+      long rate = getLong(ACCESS_RATE, 0);
+      partition = partition.with(ACCESS_RATE, Long.toString(slice(rate, index + 1, count) - slice(rate, index, count)));
+    }
+    return partition;
+  }
+
+  private static long slice(final long total, final int index, final int count) {
+    return total / count * index + total % count * index / count;
+  }
+
+  void writeTo(final DataOutput out) throws IOException {
+    out.writeUTF(name);
+    out.writeInt(parameters.size());
+    for (Map.Entry<String, String> e : parameters.entrySet()) {
+      out.writeUTF(e.getKey());
+      out.writeUTF(e.getValue());
+    }
+    out.writeInt(properties.stringPropertyNames().size());
+    for (String key : properties.stringPropertyNames()) {
+      out.writeUTF(key);
+      out.writeUTF(properties.getProperty(key));
+    }
+  }
+
+  static Scenario readFrom(final DataInput in) throws IOException {
+    String name = in.readUTF();
+    Map<String, String> parameters = new LinkedHashMap<String, String>();
+    for (int i = in.readInt(); i > 0; i--) {
+      parameters.put(in.readUTF(), in.readUTF());
+    }
+    Properties properties = new Properties();
+    for (int i = in.readInt(); i > 0; i--) {
+      properties.setProperty(in.readUTF(), in.readUTF());
+    }
+    return new Scenario(name, properties, Collections.unmodifiableMap(parameters));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return values of the sweep parameters for this scenario
+   */
+  public Map<String, String> getParameters() {
+    return parameters;
+  }
+
+  public boolean has(final String key) {
+    return get(key) != null;
+  }
+
+  /**
+   * @return the value, with its references resolved, null if the key is absent or empty
+   */
+  public String get(final String key) {
+    String value = resolve(key, properties.getProperty(key), 0);
+    return (value == null || value.length() == 0) ? null : value;
+  }
+
+  public String get(final String key, final String defaultValue) {
+    String value = get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * @return the value for the required key
+   * @throws IllegalArgumentException if the key is absent
+   */
+  public String require(final String key) {
+    String value = get(key);
+    if (value == null) {
+      throw new IllegalArgumentException("Scenario " + name + " : missing " + key);
+    }
+    return value;
+  }
+
+  public List<String> getList(final String key) {
+    String value = get(key);
+    if (value == null) {
+      return Collections.emptyList();
+    }
+    return split(value);
+  }
+
+  public int getInt(final String key, final int defaultValue) {
+    return has(key) ? (int)parseSize(require(key)) : defaultValue;
+  }
+
+  public long getLong(final String key, final long defaultValue) {
+    return has(key) ? parseSize(require(key)) : defaultValue;
+  }
+
+  /**
+   * @return the duration in nanoseconds, 0 if the key is absent
+   */
+  public long getDuration(final String key) {
+    return has(key) ? parseDuration(require(key)) : 0;
+  }
+
+  /**
+   * @return the generator described by the value of the key
+   */
+  public ObjectGenerator getGenerator(final String key) {
+    return generator(key, require(key));
+  }
+
+  private ObjectGenerator generator(final String key, final String generator) {
+    String[] spec = generator.split(":");
+    String type = spec[0].trim();
+    try {
+      if ("pool".equals(type) || "pool.copy".equals(type)) {
+        int poolSize = (int)parseSize(spec[1]);
+        int pooled = generator.indexOf(':', generator.indexOf(':') + 1);
+        if (pooled < 0) {
+          throw new IllegalArgumentException("Scenario " + name + " : no pooled generator for " + key + " : " + generator);
+        }
+        ObjectGenerator values = generator(key, generator.substring(pooled + 1));
+        return "pool".equals(type) ? ValuePool.shared(values, poolSize) : ValuePool.copied(values, poolSize);
+      } else if ("integers".equals(type)) {
+        return StringGenerator.integers();
+      } else if ("string".equals(type)) {
+        return StringGenerator.randomString((int)parseSize(spec[1]));
+      } else if ("chars".equals(type)) {
+        return StringGenerator.chars((int)parseSize(spec[1]));
+      } else if ("longs".equals(type)) {
+        return KeyGenerator.longs(parseSize(spec[1]));
+      } else if ("padded".equals(type)) {
+        return KeyGenerator.padded(parseSize(spec[1]), Integer.parseInt(spec[2].trim()));
+      } else if ("bytes".equals(type)) {
+        return KeyGenerator.bytes(parseSize(spec[1]), Integer.parseInt(spec[2].trim()));
+      } else if ("checksum".equals(type)) {
+        return ChecksumGenerator.fixedSize((int)parseSize(spec[1]));
+      } else if ("fixed".equals(type)) {
+        return ByteArrayGenerator.fixedSize((int)parseSize(spec[1]));
+      } else if ("random".equals(type)) {
+        String[] range = spec[1].split("-");
+        return ByteArrayGenerator.randomSize((int)parseSize(range[0]), (int)parseSize(range[1]));
+      } else if ("collections".equals(type)) {
+        return ByteArrayGenerator.collections((int)parseSize(spec[1]), Integer.parseInt(spec[2].trim()));
+      } else if ("graph".equals(type)) {
+        return ByteArrayGenerator.objectGraph((int)parseSize(spec[1]), Integer.parseInt(spec[2].trim()));
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Scenario " + name + " : incomplete generator for " + key + " : " + require(key));
+    }
+    throw new IllegalArgumentException("Scenario " + name + " : unknown generator for " + key + " : " + type);
+  }
+
+  /**
+   * @param size number, with an optional k (1024) or m (1024 * 1024) suffix
+   */
+  static long parseSize(final String size) {
+    String s = size.trim().toLowerCase();
+    long unit = 1;
+    if (s.endsWith("k")) {
+      unit = 1024;
+    } else if (s.endsWith("m")) {
+      unit = 1024 * 1024;
+    }
+    if (unit != 1) {
+      s = s.substring(0, s.length() - 1).trim();
+    }
+    return Long.parseLong(s) * unit;
+  }
+
+  /**
+   * @param duration number, with an optional ms, s (default), m or h suffix
+   * @return duration in nanoseconds
+   */
+  static long parseDuration(final String duration) {
+    Matcher m = DURATION.matcher(duration.trim().toLowerCase());
+    if (!m.matches()) {
+      throw new IllegalArgumentException("Invalid duration : " + duration);
+    }
+    long time = Long.parseLong(m.group(1));
+    String unit = m.group(2);
+    if ("ms".equals(unit)) {
+      return TimeUnit.MILLISECONDS.toNanos(time);
+    } else if ("m".equals(unit)) {
+      return TimeUnit.MINUTES.toNanos(time);
+    } else if ("h".equals(unit)) {
+      return TimeUnit.HOURS.toNanos(time);
+    }
+    return TimeUnit.SECONDS.toNanos(time);
+  }
+
+  private String resolve(final String key, final String value, final int depth) {
+    if (value == null) {
+      return null;
+    }
+    if (depth > 10) {
+      throw new IllegalArgumentException("Scenario " + name + " : circular reference in " + key);
+    }
+    Matcher m = REFERENCE.matcher(value);
+    StringBuffer sb = new StringBuffer();
+    while (m.find()) {
+      String reference = m.group(1);
+      String resolved = resolve(reference, properties.getProperty(reference), depth + 1);
+      if (resolved == null) {
+        throw new IllegalArgumentException("Scenario " + name + " : unresolved ${" + reference + "} in " + key);
+      }
+      m.appendReplacement(sb, Matcher.quoteReplacement(resolved));
+    }
+    m.appendTail(sb);
+    return sb.toString().trim();
+  }
+
+  private static List<String> split(final String value) {
+    List<String> values = new ArrayList<String>();
+    for (String s : value.split(",")) {
+      if (s.trim().length() > 0) {
+        values.add(s.trim());
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.scenario;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link Scenario} on several worker JVMs of the local machine, for loads a single JVM can't generate.
+ * <p>
+ * The coordinator listens on a local socket, launches the {@link ScenarioWorker}s (or waits for workers started
+ * by hand when <tt>workers.launch = false</tt>) and hands each one its partition of the scenario : a disjoint slice
+ * of the keys, of the accessed seeds and of the access rate. Once every worker is loaded, they are all given the
+ * same start time so that their phases line up. While accessing, the workers stream the stats of each reporting
+ * interval, merged and logged by the coordinator, then their final stats, merged, histograms included, in the
+ * result.
+ * <p>
+ * The scenario loggers are not used : stats of a single worker are meaningless.
+ * <p>
+ * A worker silent for more than <tt>workers.read.timeout.millis</tt> (2 minutes by default) while accessing fails
+ * the run. Loading isn't bounded, its duration depends on the scenario.
+ */
+public class ScenarioCoordinator {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScenarioCoordinator.class);
+
+  static final byte SCENARIO = 1;
+  static final byte READY = 2;
+  static final byte START = 3;
+  static final byte INTERVAL = 4;
+  static final byte RESULT = 5;
+  static final byte FAILED = 6;
+
+  private static final long CONNECT_TIMEOUT = Long.getLong("workers.connect.timeout.millis", TimeUnit.MINUTES.toMillis(2));
+  private static final long START_DELAY = Long.getLong("workers.start.delay.millis", 500);
+  // the workers report every stats.reporter.interval while accessing, a silent one is hung
+  private static final long READ_TIMEOUT = Long.getLong("workers.read.timeout.millis", TimeUnit.MINUTES.toMillis(2));
+
+  private final Scenario scenario;
+  private final int workerCount;
+  private final List<StatsNode> intervals = new ArrayList<StatsNode>();
+  private final List<Integer> contributions = new ArrayList<Integer>();
+
+  public ScenarioCoordinator(final Scenario scenario) {
+    this.scenario = scenario;
+    this.workerCount = scenario.getInt(Scenario.WORKERS, 0);
+    if (workerCount < 1) {
+      throw new IllegalArgumentException("Scenario " + scenario + " : " + Scenario.WORKERS + " must be at least 1");
+    }
+  }
+
+  /**
+   * @return stats of all the workers, merged, steady state ones when the access runs through phases
+   */
+  public StatsNode run() throws IOException, InterruptedException {
+    // partition first, so that an invalid scenario fails before launching anything
+    List<Scenario> partitions = new ArrayList<Scenario>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      partitions.add(scenario.partition(i, workerCount));
+    }
+
+    ServerSocket server = new ServerSocket(scenario.getInt(Scenario.COORDINATOR_PORT, 0), workerCount, InetAddress.getByName(null));
+    List<Process> processes = new ArrayList<Process>();
+    List<Connection> connections = new ArrayList<Connection>();
+    ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+    try {
+      server.setSoTimeout((int)CONNECT_TIMEOUT);
+      if (Boolean.parseBoolean(scenario.get(Scenario.WORKERS_LAUNCH, "true"))) {
+        for (int i = 0; i < workerCount; i++) {
+          processes.add(launch(i, server.getLocalPort()));
+        }
+      } else {
+        logger.info("-- Waiting for {} workers : java -cp <classpath> {} localhost {}",
+            new Object[] { workerCount, ScenarioWorker.class.getName(), server.getLocalPort() });
+      }
+
+      for (int i = 0; i < workerCount; i++) {
+        Connection connection = new Connection(i, server.accept());
+        connections.add(connection);
+        connection.out.writeByte(SCENARIO);
+        connection.out.writeInt(i);
+        connection.out.writeInt(workerCount);
+        partitions.get(i).writeTo(connection.out);
+        connection.out.flush();
+      }
+      for (Connection connection : connections) {
+        connection.expect(READY);
+      }
+
+      long startTime = System.currentTimeMillis() + START_DELAY;
+      for (Connection connection : connections) {
+        connection.out.writeByte(START);
+        connection.out.writeLong(startTime);
+        connection.out.flush();
+      }
+      logger.info("-- {} workers loaded, starting the access", workerCount);
+
+      List<Future<StatsNode>> results = new ArrayList<Future<StatsNode>>();
+      for (final Connection connection : connections) {
+        results.add(executor.submit(new Callable<StatsNode>() {
+          public StatsNode call() throws IOException {
+            return connection.collect();
+          }
+        }));
+      }
+      StatsNode merged = new StatsNode();
+      for (Future<StatsNode> result : results) {
+        try {
+          merged.add(result.get());
+        } catch (ExecutionException e) {
+          throw new IOException("Worker failed : " + e.getCause().getMessage(), e.getCause());
+        }
+      }
+      merged.finalise();
+      logRemainingIntervals();
+
+      for (Process process : processes) {
+        process.waitFor();
+      }
+      processes.clear();
+      logger.info("-- Workers results: {}", merged.getOverallStats());
+      return merged;
+    } finally {
+      executor.shutdownNow();
+      for (Connection connection : connections) {
+        connection.close();
+      }
+      for (Process process : processes) {
+        process.destroy();
+      }
+      server.close();
+    }
+  }
+
+  /**
+   * @return merged stats of each reporting interval of the workers, in order
+   */
+  public synchronized List<StatsNode> getIntervals() {
+    return Collections.unmodifiableList(new ArrayList<StatsNode>(intervals));
+  }
+
+  private Process launch(final int index, final int port) throws IOException {
+    List<String> command = new ArrayList<String>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    // the streams of each worker derive from the master seed of the coordinator
+    command.add("-Drandom.seed=" + XoshiroRandom.childKey(index));
+    for (String arg : scenario.get(Scenario.WORKERS_JVM_ARGS, "").split("\\s+")) {
+      if (arg.length() > 0) {
+        command.add(arg);
+      }
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ScenarioWorker.class.getName());
+    command.add("localhost");
+    command.add(Integer.toString(port));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    Thread pump = new Thread(new OutputPump("worker-" + index, process.getInputStream()), "worker-" + index + "-output");
+    pump.setDaemon(true);
+    pump.start();
+    return process;
+  }
+
+  private synchronized void interval(final int sequence, final StatsNode node) {
+    while (intervals.size() <= sequence) {
+      intervals.add(new StatsNode());
+      contributions.add(0);
+    }
+    StatsNode merged = intervals.get(sequence).add(node);
+    int contributed = contributions.get(sequence) + 1;
+    contributions.set(sequence, contributed);
+    if (contributed == workerCount) {
+      merged.finalise();
+      logInterval(sequence, merged);
+    }
+  }
+
+  /**
+   * Intervals a worker that finished earlier did not contribute to
+   */
+  private synchronized void logRemainingIntervals() {
+    for (int i = 0; i < intervals.size(); i++) {
+      if (contributions.get(i) < workerCount) {
+        intervals.get(i).finalise();
+        logInterval(i, intervals.get(i));
+      }
+    }
+  }
+
+  private static void logInterval(final int sequence, final StatsNode node) {
+    Stats overall = node.getOverallStats();
+    logger.info("-- Workers interval #{}: Txns: {}, TPS: {}, Avg(us): {}, P99(us): {}, Exceptions: {}", new Object[] {
+        sequence, overall.getTxnCount(), overall.getThroughput(), TimeUnit.NANOSECONDS.toMicros((long)overall.getAvgLatency()),
+        TimeUnit.NANOSECONDS.toMicros(overall.getLatencyAtPercentile(99)), overall.getTotalExceptionCount() });
+  }
+
+  private final class Connection {
+    private final int index;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    Connection(final int index, final Socket socket) throws IOException {
+      this.index = index;
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    void expect(final byte type) throws IOException {
+      byte received = receive();
+      if (received == FAILED) {
+        throw new IOException("Worker " + index + " failed : " + in.readUTF());
+      } else if (received != type) {
+        throw new IOException("Worker " + index + " sent " + received + " instead of " + type);
+      }
+    }
+
+    /**
+     * @return final stats of the worker, once it streamed its intervals
+     */
+    StatsNode collect() throws IOException {
+      socket.setSoTimeout((int)READ_TIMEOUT);
+      for (int sequence = 0; ; sequence++) {
+        byte received = receive();
+        if (received == INTERVAL) {
+          interval(sequence, StatsNode.readFrom(in));
+        } else if (received == RESULT) {
+          return StatsNode.readFrom(in);
+        } else if (received == FAILED) {
+          throw new IOException("Worker " + index + " failed : " + in.readUTF());
+        } else {
+          throw new IOException("Worker " + index + " sent " + received + " while accessing");
+        }
+      }
+    }
+
+    private byte receive() throws IOException {
+      try {
+        return in.readByte();
+      } catch (EOFException e) {
+        throw new IOException("Worker " + index + " closed the connection", e);
+      } catch (SocketTimeoutException e) {
+        throw new IOException("Worker " + index + " sent nothing for " + READ_TIMEOUT + "ms", e);
+      }
+    }
+
+    void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.debug("Closing the connection of worker " + index, e);
+      }
+    }
+  }
+
+  /**
+   * Copies the output of a worker JVM, prefixed with its name
+   */
+  private static final class OutputPump implements Runnable {
+    private final String name;
+    private final InputStream output;
+
+    OutputPump(final String name, final InputStream output) {
+      this.name = name;
+      this.output = output;
+    }
+
+    public void run() {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(output));
+      try {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          System.out.println("[" + name + "] " + line);
+        }
+      } catch (IOException e) {
+        // the worker is gone
+      }
+    }
+  }
+}
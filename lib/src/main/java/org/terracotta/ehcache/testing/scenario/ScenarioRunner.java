@@ -0,0 +1,333 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.scenario;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.driver.CacheAccessor;
+import org.terracotta.ehcache.testing.driver.CacheDriver;
+import org.terracotta.ehcache.testing.driver.CacheLoader;
+import org.terracotta.ehcache.testing.driver.ErrorPolicy;
+import org.terracotta.ehcache.testing.driver.ParallelDriver;
+import org.terracotta.ehcache.testing.driver.PhasedDriver;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+import org.terracotta.ehcache.testing.statistics.StatsReporter;
+import org.terracotta.ehcache.testing.statistics.logger.BinaryStatsLoggerImpl;
+import org.terracotta.ehcache.testing.statistics.logger.ConsoleStatsLoggerImpl;
+import org.terracotta.ehcache.testing.statistics.logger.CsvStatsLoggerImpl;
+import org.terracotta.ehcache.testing.statistics.logger.StatsLogger;
+import org.terracotta.ehcache.testing.validator.AsyncValidation;
+import org.terracotta.ehcache.testing.validator.ChecksumValidation;
+import org.terracotta.ehcache.testing.validator.EqualityValidation;
+import org.terracotta.ehcache.testing.validator.Validation;
+import org.terracotta.ehcache.testing.validator.VersionedValidation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link Scenario} files, without writing nor compiling any code :
+ * <pre>
+ * java -cp cache-load-tester-lib-runner.jar[:cache-load-tester-ehcache.jar:ehcache.jar] \
+ *     org.terracotta.ehcache.testing.scenario.ScenarioRunner scenario.properties [key=value ...]
+ * </pre>
+ * The <tt>key=value</tt> arguments override the keys of the file, e.g. <tt>sweep.threads=8,32</tt>.
+ * Each combination of the sweeps is run in turn, a summary of all of them is logged at the end.
+ * With <tt>workers = N</tt>, each combination is run by N worker JVMs, see {@link ScenarioCoordinator}.
+ */
+public class ScenarioRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScenarioRunner.class);
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println("Usage: ScenarioRunner <scenario.properties> [key=value ...]");
+      System.exit(1);
+    }
+    Scenario scenario = Scenario.load(new File(args[0]));
+    for (int i = 1; i < args.length; i++) {
+      int eq = args[i].indexOf('=');
+      if (eq <= 0) {
+        throw new IllegalArgumentException("Invalid override, expected key=value : " + args[i]);
+      }
+      scenario = scenario.with(args[i].substring(0, eq).trim(), args[i].substring(eq + 1).trim());
+    }
+    new ScenarioRunner().runAll(scenario);
+  }
+
+  /**
+   * Runs every combination of the sweeps of the scenario
+   *
+   * @return steady state stats of each combination, by scenario name
+   */
+  public Map<String, StatsNode> runAll(Scenario scenario) {
+    Map<String, StatsNode> results = new LinkedHashMap<String, StatsNode>();
+    List<Scenario> scenarios = scenario.sweep();
+    for (int i = 0; i < scenarios.size(); i++) {
+      Scenario s = scenarios.get(i);
+      logger.info("-- Running scenario {} ({}/{})", new Object[] { s.getName(), i + 1, scenarios.size() });
+      results.put(s.getName(), run(s));
+    }
+    logSummary(results);
+    return results;
+  }
+
+  /**
+   * Runs a single combination of the scenario
+   *
+   * @return stats of the access, steady state ones when it runs through phases
+   */
+  public StatsNode run(Scenario scenario) {
+    if (scenario.getInt(Scenario.WORKERS, 0) > 0) {
+      try {
+        return new ScenarioCoordinator(scenario).run();
+      } catch (IOException e) {
+        throw new IllegalStateException("Scenario " + scenario + " : workers failed", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Scenario " + scenario + " : interrupted while waiting for the workers", e);
+      }
+    }
+    return run(scenario, null);
+  }
+
+  /**
+   * Lets the worker JVMs of a {@link ScenarioCoordinator} start accessing together, once they are all loaded
+   */
+  interface StartGate {
+    void loaded() throws IOException;
+  }
+
+  StatsNode run(Scenario scenario, StartGate gate) {
+    CacheProvider provider = providerFor(scenario.get(Scenario.CACHE_PROVIDER, "map"));
+    List<String> names = scenario.getList(Scenario.CACHES);
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("Scenario " + scenario + " : missing " + Scenario.CACHES);
+    }
+    GenericCacheWrapper[] caches = provider.createCaches(scenario, names.toArray(new String[names.size()]));
+    try {
+      ObjectGenerator keys = scenario.getGenerator(Scenario.KEYS);
+      ObjectGenerator values = scenario.getGenerator(Scenario.VALUES);
+
+      if (scenario.has(Scenario.LOAD_COUNT)) {
+        int threads = scenario.getInt(Scenario.LOAD_THREADS, 1);
+        CacheLoader.load(caches).using(keys, values)
+            .sequentially(scenario.getLong(Scenario.LOAD_OFFSET, 0))
+            .iterate(scenario.getLong(Scenario.LOAD_COUNT, 0) / threads)
+            .partition(threads)
+            .run();
+      }
+
+      for (GenericCacheWrapper cache : caches) {
+        cache.setStatisticsEnabled(true);
+      }
+      CacheAccessor accessor = buildAccessor(scenario, provider, caches, keys, values);
+      CacheDriver driver = buildDriver(scenario, accessor);
+      if (gate != null) {
+        try {
+          gate.loaded();
+        } catch (IOException e) {
+          throw new IllegalStateException("Scenario " + scenario + " : lost the coordinator", e);
+        }
+      }
+      // each accessor thread starts and stops the reporting : held for the whole run, a thread done before
+      // another one starts doesn't end the report, and the next one doesn't reset the stats recorded so far
+      StatsReporter reporter = StatsReporter.getInstance().startReporting();
+      try {
+        driver.run();
+      } finally {
+        reporter.stopReporting();
+      }
+      if (driver instanceof PhasedDriver) {
+        return driver.getFinalStatsNode();
+      }
+      // the reporter node is reused by the next run
+      return StatsReporter.getInstance().snapshot();
+    } finally {
+      provider.close();
+    }
+  }
+
+  private CacheAccessor buildAccessor(Scenario scenario, CacheProvider provider, GenericCacheWrapper[] caches,
+                                      ObjectGenerator keys, ObjectGenerator values) {
+    CacheAccessor accessor = CacheAccessor.access(caches).using(keys, values);
+
+    String[] seeds = scenario.get(Scenario.ACCESS_SEEDS, "sequential").split(":");
+    if ("sequential".equalsIgnoreCase(seeds[0].trim())) {
+      accessor.sequentially(seeds.length > 1 ? Scenario.parseSize(seeds[1]) : 0);
+    } else {
+      if (seeds.length != 4) {
+        throw new IllegalArgumentException("Scenario " + scenario + " : expected <Distribution>:<min>:<max>:<width> for "
+                                           + Scenario.ACCESS_SEEDS);
+      }
+      accessor.atRandom(Distribution.valueOf(seeds[0].trim().toUpperCase()), Scenario.parseSize(seeds[1]),
+          Scenario.parseSize(seeds[2]), Scenario.parseSize(seeds[3]));
+    }
+
+    List<CacheOperation> operations = new ArrayList<CacheOperation>();
+    for (String op : scenario.getList(Scenario.ACCESS_OPS)) {
+      String[] spec = op.split(":");
+      double ratio = Double.parseDouble(spec[1].trim());
+      if (spec.length > 2) {
+        operations.add(operation(provider, spec[0].trim(), ratio, (int)Scenario.parseSize(spec[2])));
+      } else {
+        operations.add(operation(provider, spec[0].trim(), ratio));
+      }
+    }
+    accessor.doOps(operations.toArray(new CacheOperation[operations.size()]));
+
+    if (scenario.has(Scenario.ACCESS_VALIDATE)) {
+      String[] validate = scenario.require(Scenario.ACCESS_VALIDATE).split(":");
+      Validation.Mode mode = Validation.Mode.valueOf(validate[0].trim().toUpperCase());
+      Validation validation;
+      if (validate.length > 1 && "checksum".equalsIgnoreCase(validate[1].trim())) {
+        validation = new ChecksumValidation();
+      } else if (validate.length > 2 && "versioned".equalsIgnoreCase(validate[1].trim())) {
+        validation = new VersionedValidation((int)Scenario.parseSize(validate[2]));
+      } else {
+        validation = new EqualityValidation();
+      }
+      if (scenario.has(Scenario.ACCESS_VALIDATE_SAMPLE)) {
+        validation = new AsyncValidation(validation, Double.parseDouble(scenario.require(Scenario.ACCESS_VALIDATE_SAMPLE).trim()))
+            .threads(scenario.getInt(Scenario.ACCESS_VALIDATE_THREADS, 1));
+      }
+      accessor.validateUsing(mode, validation);
+    }
+    if (scenario.has(Scenario.ACCESS_RATE)) {
+      accessor.atRate(scenario.getLong(Scenario.ACCESS_RATE, 0));
+    } else if (scenario.has(Scenario.ACCESS_THINKTIME)) {
+      accessor.addThinkTime(scenario.getLong(Scenario.ACCESS_THINKTIME, 0));
+    }
+    if (scenario.has(Scenario.ACCESS_ERRORS)) {
+      accessor.onError(errorPolicy(scenario.require(Scenario.ACCESS_ERRORS)));
+    }
+
+    accessor.enableStatistics(true);
+    for (String spec : scenario.getList(Scenario.LOGGERS)) {
+      accessor.addLogger(statsLogger(spec));
+    }
+    return accessor;
+  }
+
+  private static ErrorPolicy errorPolicy(String spec) {
+    if ("continue".equalsIgnoreCase(spec)) {
+      return ErrorPolicy.continueOnError();
+    } else if ("abort".equalsIgnoreCase(spec)) {
+      return ErrorPolicy.abortOnError();
+    }
+    return ErrorPolicy.abortAfter(Scenario.parseSize(spec));
+  }
+
+  private CacheDriver buildDriver(Scenario scenario, CacheAccessor accessor) {
+    int threads = scenario.getInt(Scenario.ACCESS_THREADS, 1);
+    if (scenario.has(Scenario.ACCESS_WARMUP) || scenario.has(Scenario.ACCESS_RAMPUP)
+        || scenario.has(Scenario.ACCESS_STEADY) || scenario.has(Scenario.ACCESS_RAMPDOWN)) {
+      return PhasedDriver.phased(threads, accessor)
+          .warmup(scenario.getDuration(Scenario.ACCESS_WARMUP), TimeUnit.NANOSECONDS)
+          .rampUp(scenario.getDuration(Scenario.ACCESS_RAMPUP), TimeUnit.NANOSECONDS)
+          .steady(scenario.getDuration(Scenario.ACCESS_STEADY), TimeUnit.NANOSECONDS)
+          .rampDown(scenario.getDuration(Scenario.ACCESS_RAMPDOWN), TimeUnit.NANOSECONDS);
+    }
+
+    if (scenario.has(Scenario.ACCESS_DURATION)) {
+      accessor.stopAfter((int)TimeUnit.NANOSECONDS.toMillis(scenario.getDuration(Scenario.ACCESS_DURATION)), TimeUnit.MILLISECONDS);
+    } else if (scenario.has(Scenario.ACCESS_ITERATIONS)) {
+      accessor.iterate(scenario.getLong(Scenario.ACCESS_ITERATIONS, 0));
+    } else if ("filled".equals(scenario.get(Scenario.ACCESS_UNTIL))) {
+      accessor.untilFilled();
+    } else {
+      throw new IllegalArgumentException("Scenario " + scenario + " : no phases nor termination for the access");
+    }
+    if (Boolean.parseBoolean(scenario.get(Scenario.ACCESS_VIRTUAL_THREADS, "false"))) {
+      return ParallelDriver.onVirtualThreads(threads, accessor);
+    }
+    return ParallelDriver.inParallel(threads, accessor);
+  }
+
+  private static CacheProvider providerFor(String type) {
+    for (CacheProvider provider : ServiceLoader.load(CacheProvider.class)) {
+      if (provider.supports(type)) {
+        return provider;
+      }
+    }
+    throw new IllegalArgumentException("No CacheProvider on the classpath supports " + Scenario.CACHE_PROVIDER + "=" + type);
+  }
+
+  private static CacheOperation operation(CacheProvider provider, String name, double ratio) {
+    return operation(provider, name, new Class<?>[] { double.class }, ratio);
+  }
+
+  private static CacheOperation operation(CacheProvider provider, String name, double ratio, int batchSize) {
+    return operation(provider, name, new Class<?>[] { double.class, int.class }, ratio, batchSize);
+  }
+
+  private static CacheOperation operation(CacheProvider provider, String name, Class<?>[] parameterTypes, Object... args) {
+    try {
+      Method factory = provider.getOperations().getMethod(name, parameterTypes);
+      return (CacheOperation)factory.invoke(null, args);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("Unknown operation " + name + " in " + provider.getOperations().getName());
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Operation " + name + " can't be created", e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalArgumentException("Operation " + name + " can't be created", e.getCause());
+    }
+  }
+
+  /**
+   * @param spec console, csv:&lt;file&gt; or binary:&lt;file&gt;
+   */
+  private static StatsLogger statsLogger(String spec) {
+    if ("console".equals(spec)) {
+      return new ConsoleStatsLoggerImpl();
+    } else if (spec.startsWith("csv:")) {
+      return new CsvStatsLoggerImpl(spec.substring("csv:".length()));
+    } else if (spec.startsWith("binary:")) {
+      return new BinaryStatsLoggerImpl(spec.substring("binary:".length()));
+    }
+    throw new IllegalArgumentException("Unknown logger " + spec + ", expected console, csv:<file> or binary:<file>");
+  }
+
+  private static void logSummary(Map<String, StatsNode> results) {
+    String newLine = System.getProperty("line.separator");
+    StringBuilder sb = new StringBuilder(String.format("%12s %12s %12s %12s %12s  %s", "Txns", "TPS", "Avg(us)", "P99(us)", "Exceptions", "Scenario"));
+    for (Map.Entry<String, StatsNode> result : results.entrySet()) {
+      sb.append(newLine);
+      if (result.getValue() == null) {
+        sb.append(String.format("%12s %12s %12s %12s %12s  %s", "-", "-", "-", "-", "-", result.getKey()));
+        continue;
+      }
+      Stats overall = result.getValue().getOverallStats();
+      sb.append(String.format("%12d %12d %12d %12d %12d  %s", overall.getTxnCount(), overall.getThroughput(),
+          TimeUnit.NANOSECONDS.toMicros((long)overall.getAvgLatency()),
+          TimeUnit.NANOSECONDS.toMicros(overall.getLatencyAtPercentile(99)), overall.getTotalExceptionCount(), result.getKey()));
+    }
+    logger.info("-- Scenario summary:{}{}", newLine, sb);
+  }
+}
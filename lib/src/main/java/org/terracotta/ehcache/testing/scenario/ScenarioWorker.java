@@ -0,0 +1,194 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.scenario;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+import org.terracotta.ehcache.testing.statistics.StatsReporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker JVM of a {@link ScenarioCoordinator} :
+ * <pre>
+ * java -cp &lt;classpath&gt; org.terracotta.ehcache.testing.scenario.ScenarioWorker &lt;host&gt; &lt;port&gt;
+ * </pre>
+ * Runs the partition of the scenario it is given by the coordinator, streaming the stats of each reporting
+ * interval (<tt>stats.reporter.interval</tt>, in seconds) then the final ones.
+ */
+public class ScenarioWorker {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScenarioWorker.class);
+  private static final int reportPeriod = Integer.parseInt(System.getProperty("stats.reporter.interval", "4"));
+
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private volatile Thread reporter;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.err.println("Usage: ScenarioWorker <coordinator host> <coordinator port>");
+      System.exit(1);
+    }
+    Socket socket = new Socket(args[0], Integer.parseInt(args[1]));
+    try {
+      new ScenarioWorker(socket).run();
+    } finally {
+      socket.close();
+    }
+    // drivers may leave non daemon threads behind
+    System.exit(0);
+  }
+
+  ScenarioWorker(final Socket socket) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  void run() throws IOException {
+    if (in.readByte() != ScenarioCoordinator.SCENARIO) {
+      throw new IOException("Expected a scenario from the coordinator");
+    }
+    StatsNode result;
+    try {
+      int index = in.readInt();
+      int count = in.readInt();
+      Scenario scenario = Scenario.readFrom(in);
+      logger.info("-- Worker {}/{} running scenario {}", new Object[] { index + 1, count, scenario.getName() });
+
+      result = new ScenarioRunner().run(scenario, new ScenarioRunner.StartGate() {
+        public void loaded() throws IOException {
+          awaitStart();
+        }
+      });
+      stopReporting();
+    } catch (IOException e) {
+      abort(e);
+      throw e;
+    } catch (RuntimeException e) {
+      abort(e);
+      throw e;
+    } catch (Error e) {
+      abort(e);
+      throw e;
+    }
+    synchronized (out) {
+      out.writeByte(ScenarioCoordinator.RESULT);
+      result.writeTo(out);
+      out.flush();
+    }
+  }
+
+  private void awaitStart() throws IOException {
+    synchronized (out) {
+      out.writeByte(ScenarioCoordinator.READY);
+      out.flush();
+    }
+    if (in.readByte() != ScenarioCoordinator.START) {
+      throw new IOException("Expected the start time from the coordinator");
+    }
+    long startTime = in.readLong();
+    long wait = startTime - System.currentTimeMillis();
+    if (wait > 0) {
+      try {
+        Thread.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the start time");
+      }
+    }
+
+    Thread t = new Thread("ScenarioWorker reporter") {
+      @Override
+      public void run() {
+        while (true) {
+          try {
+            TimeUnit.SECONDS.sleep(reportPeriod);
+          } catch (InterruptedException e) {
+            return;
+          }
+          try {
+            sendInterval();
+          } catch (IOException e) {
+            logger.warn("Lost the coordinator", e);
+            return;
+          }
+        }
+      }
+    };
+    t.setDaemon(true);
+    reporter = t;
+    t.start();
+  }
+
+  /**
+   * Stops the reporter thread and sends what was recorded since its last interval
+   */
+  private void stopReporting() throws IOException {
+    Thread t = reporter;
+    if (t == null) {
+      return;
+    }
+    reporter = null;
+    t.interrupt();
+    try {
+      t.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    sendInterval();
+  }
+
+  private void sendInterval() throws IOException {
+    StatsNode interval = StatsReporter.getInstance().getFinalStats().periodSnapshot();
+    synchronized (out) {
+      out.writeByte(ScenarioCoordinator.INTERVAL);
+      interval.writeTo(out);
+      out.flush();
+    }
+  }
+
+  /**
+   * Reports the failure to the coordinator, rather than leaving it with a closed connection
+   */
+  private void abort(final Throwable t) {
+    try {
+      stopReporting();
+    } catch (IOException e) {
+      logger.warn("Could not send the last interval to the coordinator", e);
+    }
+    fail(t);
+  }
+
+  private void fail(final Throwable t) {
+    try {
+      synchronized (out) {
+        out.writeByte(ScenarioCoordinator.FAILED);
+        out.writeUTF(String.valueOf(t));
+        out.flush();
+      }
+    } catch (IOException e) {
+      logger.warn("Could not report the failure to the coordinator", e);
+    }
+  }
+}
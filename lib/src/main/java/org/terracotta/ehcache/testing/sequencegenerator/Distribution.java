@@ -2,6 +2,21 @@ package org.terracotta.ehcache.testing.sequencegenerator;
 
 import java.util.Random;
 
+/**
+ * Distributions of the seeds generated in [minimum, maximum).
+ * <p>
+ * The meaning of <tt>width</tt> depends on the distribution :
+ * <ul>
+ *   <li>FLAT : ignored</li>
+ *   <li>GAUSSIAN : standard deviation</li>
+ *   <li>ZIPFIAN, SCRAMBLED_ZIPFIAN, LATEST : ignored, the skew is set with the system property
+ *       <tt>zipfian.theta</tt> (default 0.99)</li>
+ *   <li>HOTSPOT : size of the hot set, its share of the operations is set with the system property
+ *       <tt>hotspot.ops.fraction</tt> (default 0.8)</li>
+ * </ul>
+ * Use {@link #createSampler(long, long, long)} to generate many seeds on the same range :
+ * the normalisation constants are computed once, then each seed is O(1) and allocation free.
+ */
 public enum Distribution {
   FLAT {
 
@@ -20,7 +35,114 @@ public enum Distribution {
         }
       }
     }
+  },
+  /**
+   * Seed of rank i is drawn with a probability proportional to 1/i^theta, the hottest seed being minimum
+   */
+  ZIPFIAN {
+    @Override
+    public Sampler createSampler(final long minimum, final long maximum, final long width) {
+      final ZipfianSampler zipfian = new ZipfianSampler(maximum - minimum, ZIPFIAN_THETA);
+      return new Sampler() {
+        public long next(final Random rndm) {
+          return minimum + zipfian.nextRank(rndm);
+        }
+      };
+    }
+  },
+  /**
+   * Zipfian popularity, with the hot seeds hashed all over the range instead of packed at its beginning
+   */
+  SCRAMBLED_ZIPFIAN {
+    @Override
+    public Sampler createSampler(final long minimum, final long maximum, final long width) {
+      final long items = maximum - minimum;
+      final ZipfianSampler zipfian = new ZipfianSampler(items, ZIPFIAN_THETA);
+      return new Sampler() {
+        public long next(final Random rndm) {
+          return minimum + ((fnvHash64(zipfian.nextRank(rndm)) & Long.MAX_VALUE) % items);
+        }
+      };
+    }
+  },
+  /**
+   * A fraction of the operations (<tt>hotspot.ops.fraction</tt>) goes to the first <tt>width</tt> seeds,
+   * the rest is uniform over the other seeds
+   */
+  HOTSPOT {
+    @Override
+    public Sampler createSampler(final long minimum, final long maximum, final long width) {
+      final long items = maximum - minimum;
+      if (width <= 0 || width > items) {
+        throw new IllegalArgumentException("Hot set size must be in ]0, " + items + "], was " + width);
+      }
+      final long coldItems = items - width;
+      final double hotOpsFraction = (coldItems == 0) ? 1.0 : HOTSPOT_OPS_FRACTION;
+      return new Sampler() {
+        public long next(final Random rndm) {
+          if (rndm.nextDouble() < hotOpsFraction) {
+            return minimum + (long) (rndm.nextDouble() * width);
+          }
+          return minimum + width + (long) (rndm.nextDouble() * coldItems);
+        }
+      };
+    }
+  },
+  /**
+   * Zipfian popularity where the hottest seeds are the latest ones (maximum - 1 being the hottest),
+   * e.g. the most recently loaded seeds of a sequential load on the same range
+   */
+  LATEST {
+    @Override
+    public Sampler createSampler(final long minimum, final long maximum, final long width) {
+      final ZipfianSampler zipfian = new ZipfianSampler(maximum - minimum, ZIPFIAN_THETA);
+      return new Sampler() {
+        public long next(final Random rndm) {
+          return maximum - 1 - zipfian.nextRank(rndm);
+        }
+      };
+    }
   };
 
-  public abstract long generate(Random rndm, long minimum, long maximum, long width);
+  private static final double ZIPFIAN_THETA = Double.parseDouble(System.getProperty("zipfian.theta", "0.99"));
+  private static final double HOTSPOT_OPS_FRACTION = Double.parseDouble(System.getProperty("hotspot.ops.fraction", "0.8"));
+
+  /**
+   * Generates one seed. Distributions needing precomputed constants compute them on each call,
+   * prefer {@link #createSampler(long, long, long)} to generate many seeds.
+   */
+  public long generate(Random rndm, long minimum, long maximum, long width) {
+    return createSampler(minimum, maximum, width).next(rndm);
+  }
+
+  /**
+   * @return a sampler of this distribution on [minimum, maximum), holding the precomputed constants
+   */
+  public Sampler createSampler(final long minimum, final long maximum, final long width) {
+    return new Sampler() {
+      public long next(final Random rndm) {
+        return generate(rndm, minimum, maximum, width);
+      }
+    };
+  }
+
+  public interface Sampler {
+    long next(Random rndm);
+  }
+
+  private static final long FNV_OFFSET_BASIS_64 = 0xCBF29CE484222325L;
+  private static final long FNV_PRIME_64 = 1099511628211L;
+
+  /**
+   * FNV-1a hash of the 8 bytes of the value
+   */
+  static long fnvHash64(long value) {
+    long hash = FNV_OFFSET_BASIS_64;
+    for (int i = 0; i < 8; i++) {
+      hash ^= value & 0xff;
+      hash *= FNV_PRIME_64;
+      value >>>= 8;
+    }
+    return hash;
+  }
 }
@@ -8,6 +8,13 @@ public class RandomSequenceGenerator implements SequenceGenerator {
   private final long minimum;
   private final long maximum;
   private final long width;
+  private final XoshiroRandom streams = XoshiroRandom.newStream();
+  private final ThreadLocal<XoshiroRandom> threadStreams = new ThreadLocal<XoshiroRandom>() {
+    @Override
+    protected XoshiroRandom initialValue() {
+      return streams.forCurrentThread();
+    }
+  };
 
   public RandomSequenceGenerator(Distribution distribution, long min, long max, long width) {
     this.distribution = distribution;
@@ -16,27 +23,25 @@ public class RandomSequenceGenerator implements SequenceGenerator {
     this.width = width;
   }
 
+  /**
+   * Each sequence gets its own random stream, split from the stream of the calling thread
+   */
   public Sequence createSequence() {
-    return new RandomSequence(distribution, minimum, maximum, width);
+    return new RandomSequence(distribution, minimum, maximum, width, threadStreams.get().split());
   }
 
   static class RandomSequence implements Sequence {
 
-    private final Random rndm = new Random();
-    private final Distribution distribution;
-    private final long minimum;
-    private final long maximum;
-    private final long width;
-
-    public RandomSequence(Distribution distribution, long minimum, long maximum, long width) {
-      this.distribution = distribution;
-      this.minimum = minimum;
-      this.maximum = maximum;
-      this.width = width;
+    private final Random rndm;
+    private final Distribution.Sampler sampler;
+
+    public RandomSequence(Distribution distribution, long minimum, long maximum, long width, Random rndm) {
+      this.rndm = rndm;
+      this.sampler = distribution.createSampler(minimum, maximum, width);
     }
 
     public long next() {
-      return distribution.generate(rndm, minimum, maximum, width);
+      return sampler.next(rndm);
     }
   }
 }
@@ -0,0 +1,188 @@
+package org.terracotta.ehcache.testing.sequencegenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Fast, non thread safe, {@link Random} (xoshiro256** seeded through SplitMix64).
+ * <p>
+ * Each thread is expected to own its generator : {@link #split()} derives an independent generator
+ * from the current one, and {@link #newStream()} derives one from the master generator, whose seed can be set
+ * with the system property <tt>random.seed</tt> to replay a run. Components (accessors, loaders, sequence
+ * generators) derive their stream from the master when they are built, in the order they are built.
+ * <p>
+ * The threads of a run get their stream with {@link #forCurrentThread()}, derived from the stream of the
+ * component and the key of the thread : drivers bind each thread they start to a key derived from its index and
+ * from the key of the thread starting it, see {@link #boundTo(long, Runnable)}. So a run draws the same numbers
+ * whatever the order its threads start in.
+ */
+public class XoshiroRandom extends Random {
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger logger = LoggerFactory.getLogger(XoshiroRandom.class);
+
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private static final long MASTER_SEED = masterSeed();
+  private static final XoshiroRandom master = new XoshiroRandom(MASTER_SEED);
+
+  private static final ThreadLocal<Long> threadKey = new ThreadLocal<Long>();
+
+  private long origin;
+  private long s0;
+  private long s1;
+  private long s2;
+  private long s3;
+
+  private double nextNextGaussian;
+  private boolean haveNextNextGaussian;
+
+  public XoshiroRandom(final long seed) {
+    super(seed);
+  }
+
+  private static long masterSeed() {
+    long seed = Long.getLong("random.seed", System.nanoTime());
+    logger.info("Random streams master seed: {} (replay with -Drandom.seed={})", seed, seed);
+    return seed;
+  }
+
+  public static long getMasterSeed() {
+    return MASTER_SEED;
+  }
+
+  /**
+   * @param index index of a thread, or of a JVM, among the ones started together by the calling thread
+   * @return the key of the started thread, derived from the key of the calling thread, or from the master seed
+   *         if the calling thread has none
+   */
+  public static long childKey(final int index) {
+    Long parent = threadKey.get();
+    return splitMix64((parent == null ? MASTER_SEED : parent) + (index + 1) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * @param key  key of the thread running the task, see {@link #childKey(int)}
+   * @param task
+   * @return the task, run with the key bound to its thread
+   */
+  public static Runnable boundTo(final long key, final Runnable task) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        Long previous = threadKey.get();
+        threadKey.set(key);
+        try {
+          task.run();
+        } finally {
+          if (previous == null) {
+            threadKey.remove();
+          } else {
+            threadKey.set(previous);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * @return a new generator, derived from the master generator
+   */
+  public static XoshiroRandom newStream() {
+    synchronized (master) {
+      return master.split();
+    }
+  }
+
+  /**
+   * A thread without key, not started by a driver, gets a generator split from this one, in the order of the calls
+   *
+   * @return the generator of the calling thread, derived from the seed of this one and from the key of the thread
+   */
+  public XoshiroRandom forCurrentThread() {
+    Long key = threadKey.get();
+    if (key == null) {
+      synchronized (this) {
+        return split();
+      }
+    }
+    return new XoshiroRandom(splitMix64(origin ^ key));
+  }
+
+  /**
+   * @return a new generator, seeded from this one
+   */
+  public XoshiroRandom split() {
+    return new XoshiroRandom(nextLong());
+  }
+
+  /**
+   * Called by the {@link Random} constructor, fields must not have initializers
+   */
+  @Override
+  public void setSeed(final long seed) {
+    long x = origin = seed;
+    s0 = splitMix64(x += GOLDEN_GAMMA);
+    s1 = splitMix64(x += GOLDEN_GAMMA);
+    s2 = splitMix64(x += GOLDEN_GAMMA);
+    s3 = splitMix64(x + GOLDEN_GAMMA);
+    haveNextNextGaussian = false;
+  }
+
+  private static long splitMix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public long nextLong() {
+    final long result = Long.rotateLeft(s1 * 5, 7) * 9;
+    final long t = s1 << 17;
+    s2 ^= s0;
+    s3 ^= s1;
+    s1 ^= s2;
+    s0 ^= s3;
+    s2 ^= t;
+    s3 = Long.rotateLeft(s3, 45);
+    return result;
+  }
+
+  @Override
+  protected int next(final int bits) {
+    return (int) (nextLong() >>> (64 - bits));
+  }
+
+  @Override
+  public int nextInt() {
+    return (int) (nextLong() >>> 32);
+  }
+
+  @Override
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Same polar method as {@link Random#nextGaussian()}, without the synchronization
+   */
+  @Override
+  public double nextGaussian() {
+    if (haveNextNextGaussian) {
+      haveNextNextGaussian = false;
+      return nextNextGaussian;
+    }
+    double v1, v2, s;
+    do {
+      v1 = 2 * nextDouble() - 1;
+      v2 = 2 * nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while (s >= 1 || s == 0);
+    double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    nextNextGaussian = v2 * multiplier;
+    haveNextNextGaussian = true;
+    return v1 * multiplier;
+  }
+}
@@ -0,0 +1,66 @@
+package org.terracotta.ehcache.testing.sequencegenerator;
+
+import java.util.Random;
+
+/**
+ * Draws ranks in [0, items) with a probability proportional to 1/(rank+1)^theta,
+ * using the rejection-free method of Gray et al. "Quickly Generating Billion-Record Synthetic Databases".
+ * <p>
+ * The zeta normalisation constant is computed once : exactly for the first {@value #EXACT_ZETA_TERMS} terms,
+ * the remaining terms being approximated by an integral, so that building a sampler on billions of items
+ * stays cheap.
+ */
+class ZipfianSampler {
+
+  static final int EXACT_ZETA_TERMS = 10000;
+
+  private final long items;
+  private final double zetaN;
+  private final double alpha;
+  private final double eta;
+  private final double halfPowTheta;
+
+  ZipfianSampler(final long items, final double theta) {
+    if (items <= 0) {
+      throw new IllegalArgumentException("Range must not be empty, was " + items);
+    }
+    if (theta <= 0.0 || theta >= 1.0) {
+      throw new IllegalArgumentException("Zipfian theta must be in ]0, 1[, was " + theta);
+    }
+    this.items = items;
+    this.zetaN = zeta(items, theta);
+    this.alpha = 1.0 / (1.0 - theta);
+    this.halfPowTheta = Math.pow(0.5, theta);
+    double zeta2 = 1.0 + halfPowTheta;
+    this.eta = (1.0 - Math.pow(2.0 / items, 1.0 - theta)) / (1.0 - zeta2 / zetaN);
+  }
+
+  long nextRank(final Random rndm) {
+    double u = rndm.nextDouble();
+    double uz = u * zetaN;
+    if (uz < 1.0) {
+      return 0;
+    }
+    if (uz < 1.0 + halfPowTheta) {
+      return 1;
+    }
+    long rank = (long) (items * Math.pow(eta * u - eta + 1.0, alpha));
+    return (rank < items) ? rank : items - 1;
+  }
+
+  /**
+   * @return sum of 1/i^theta for i in [1, n]
+   */
+  static double zeta(final long n, final double theta) {
+    long exact = Math.min(n, EXACT_ZETA_TERMS);
+    double sum = 0.0;
+    for (long i = 1; i <= exact; i++) {
+      sum += 1.0 / Math.pow(i, theta);
+    }
+    if (n > exact) {
+      // midpoint approximation of the remaining terms : integral of x^-theta over [exact + 0.5, n + 0.5]
+      sum += (Math.pow(n + 0.5, 1.0 - theta) - Math.pow(exact + 0.5, 1.0 - theta)) / (1.0 - theta);
+    }
+    return sum;
+  }
+}
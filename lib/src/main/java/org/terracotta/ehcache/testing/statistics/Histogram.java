@@ -1,149 +1,380 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
 package org.terracotta.ehcache.testing.statistics;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.NumberFormat;
-import java.util.concurrent.atomic.AtomicLong;
-
-import org.apache.commons.lang.math.LongRange;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Fixed-memory, log-linear latency histogram (same layout as HdrHistogram).
+ * <p>
+ * Values are bucketed in powers of two, each bucket being split linearly in sub-buckets so that
+ * every recorded value keeps the configured number of significant decimal digits.
+ * Recording is a couple of shifts and an array increment, whatever the value.
+ * <p>
+ * Defaults can be changed with the system properties <tt>histo.significant.digits</tt> (default 2)
+ * and <tt>histo.highest.trackable</tt> (in nanoseconds, default 1 hour). Values above the highest
+ * trackable value are counted in the last bucket, the exact max is always kept.
+ * <p>
+ * Recording is not synchronized : concurrent recorders should each own a Histogram and merge them
+ * using {@link #add(Histogram)}.
+ */
 public class Histogram {
-	private static final NumberFormat nf = NumberFormat.getInstance();
-
-	private final AtomicLong BUCKET_0_10_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_10_50_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_50_100_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_100_200_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_200_500_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_500_1000_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_1000_5000_COUNT = new AtomicLong();
-	private final AtomicLong BUCKET_5000_PLUS_COUNT = new AtomicLong();
-	private final AtomicLong TOTAL = new AtomicLong();
-
-	private static final LongRange Range_0_10 = new LongRange(Long.MIN_VALUE,
-			10);
-	private static final LongRange Range_10_50 = new LongRange(10, 50);
-	private static final LongRange Range_50_100 = new LongRange(50, 100);
-	private static final LongRange Range_100_200 = new LongRange(100, 200);
-	private static final LongRange Range_200_500 = new LongRange(200, 500);
-	private static final LongRange Range_500_1000 = new LongRange(500, 1000);
-	private static final LongRange Range_1000_5000 = new LongRange(1000, 5000);
-
-	public void add(long value) {
-		if (Range_0_10.containsLong(value)) {
-			BUCKET_0_10_COUNT.incrementAndGet();
-		} else if (Range_10_50.containsLong(value)) {
-			BUCKET_10_50_COUNT.incrementAndGet();
-		} else if (Range_50_100.containsLong(value)) {
-			BUCKET_50_100_COUNT.incrementAndGet();
-		} else if (Range_100_200.containsLong(value)) {
-			BUCKET_100_200_COUNT.incrementAndGet();
-		} else if (Range_200_500.containsLong(value)) {
-			BUCKET_200_500_COUNT.incrementAndGet();
-		} else if (Range_500_1000.containsLong(value)) {
-			BUCKET_500_1000_COUNT.incrementAndGet();
-		} else if (Range_1000_5000.containsLong(value)) {
-			BUCKET_1000_5000_COUNT.incrementAndGet();
-		} else {
-			BUCKET_5000_PLUS_COUNT.incrementAndGet();
-		}
-		TOTAL.incrementAndGet();
-	}
-
-	public Histogram add(Histogram med) {
-		this.BUCKET_0_10_COUNT.addAndGet(med.BUCKET_0_10_COUNT.get());
-		this.BUCKET_10_50_COUNT.addAndGet(med.BUCKET_10_50_COUNT.get());
-		this.BUCKET_50_100_COUNT.addAndGet(med.BUCKET_50_100_COUNT.get());
-		this.BUCKET_100_200_COUNT.addAndGet(med.BUCKET_100_200_COUNT.get());
-		this.BUCKET_200_500_COUNT.addAndGet(med.BUCKET_200_500_COUNT.get());
-		this.BUCKET_500_1000_COUNT.addAndGet(med.BUCKET_500_1000_COUNT.get());
-		this.BUCKET_1000_5000_COUNT.addAndGet(med.BUCKET_1000_5000_COUNT.get());
-		this.BUCKET_5000_PLUS_COUNT.addAndGet(med.BUCKET_5000_PLUS_COUNT.get());
-		this.TOTAL.addAndGet(med.TOTAL.get());
-		return this;
-	}
-
-	public double calculatePercentage(AtomicLong value) {
-		return (TOTAL.get() > 0) ? ((((double) value.get()) / ((double) TOTAL
-				.get())) * 100.0f) : 0f;
-
-	}
-
-	@Override
-	public String toString() {
-		StringBuffer sb = new StringBuffer();
-		sb.append("0-10 frequency count = ")
-				.append(nf.format(BUCKET_0_10_COUNT.get()))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_0_10_COUNT))).append("\n");
-		sb.append("10-50 frequency count = ")
-				.append(nf.format(BUCKET_10_50_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_10_50_COUNT))).append("\n");
-		sb.append("50-100 frequency count = ")
-				.append(nf.format(BUCKET_50_100_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_50_100_COUNT))).append("\n");
-		sb.append("100-200 frequency count = ")
-				.append(nf.format(BUCKET_100_200_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_100_200_COUNT)))
-				.append("\n");
-		sb.append("200-500 frequency count = ")
-				.append(nf.format(BUCKET_200_500_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_200_500_COUNT)))
-				.append("\n");
-		sb.append("500-1000 frequency count = ")
-				.append(nf.format(BUCKET_500_1000_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_500_1000_COUNT)))
-				.append("\n");
-		sb.append("1000-5000 frequency count = ")
-				.append(nf.format(BUCKET_1000_5000_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_1000_5000_COUNT)))
-				.append("\n");
-		sb.append("5000-PLUS frequency count = ")
-				.append(nf.format(BUCKET_5000_PLUS_COUNT))
-				.append(String.format(" percentage = %.1f",
-						calculatePercentage(BUCKET_5000_PLUS_COUNT)))
-				.append("\n");
-		return sb.toString();
-	}
-
-	public long getBUCKET_0_10_COUNT() {
-		return BUCKET_0_10_COUNT.get();
-	}
-
-	public long getBUCKET_10_50_COUNT() {
-		return BUCKET_10_50_COUNT.get();
-	}
-
-	public long getBUCKET_50_100_COUNT() {
-		return BUCKET_50_100_COUNT.get();
-	}
-
-	public long getBUCKET_100_200_COUNT() {
-		return BUCKET_100_200_COUNT.get();
-	}
-
-	public long getBUCKET_200_500_COUNT() {
-		return BUCKET_200_500_COUNT.get();
-	}
-
-	public long getBUCKET_500_1000_COUNT() {
-		return BUCKET_500_1000_COUNT.get();
-	}
-
-	public long getBUCKET_1000_5000_COUNT() {
-		return BUCKET_1000_5000_COUNT.get();
-	}
-
-	public long getBUCKET_5000_PLUS_COUNT() {
-		return BUCKET_5000_PLUS_COUNT.get();
-	}
-
-	public long getTOTAL() {
-		return TOTAL.get();
-	}
+  private static final NumberFormat nf = NumberFormat.getInstance();
+
+  public static final int DEFAULT_SIGNIFICANT_DIGITS = Integer.parseInt(System.getProperty("histo.significant.digits", "2"));
+  public static final long DEFAULT_HIGHEST_TRACKABLE = Long.parseLong(System.getProperty("histo.highest.trackable",
+      Long.toString(TimeUnit.HOURS.toNanos(1))));
+
+  /**
+   * Percentiles reported by the loggers
+   */
+  public static final double[] REPORTED_PERCENTILES = { 50.0, 90.0, 99.0, 99.9, 99.99 };
+
+  private final long highestTrackableValue;
+  private final int significantDigits;
+
+  private final int subBucketHalfCountMagnitude;
+  private final int subBucketHalfCount;
+  private final long subBucketMask;
+  private final int subBucketCount;
+  private final int leadingZeroCountBase;
+
+  private final long[] counts;
+  private long totalCount;
+  private long minValue = Long.MAX_VALUE;
+  private long maxValue = 0;
+
+  public Histogram() {
+    this(DEFAULT_HIGHEST_TRACKABLE, DEFAULT_SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * @param highestTrackableValue highest value that can be recorded with full precision, must be &gt;= 2
+   * @param significantDigits     number of significant decimal digits kept for each value, between 0 and 5
+   */
+  public Histogram(final long highestTrackableValue, final int significantDigits) {
+    if (significantDigits < 0 || significantDigits > 5) {
+      throw new IllegalArgumentException("significantDigits must be between 0 and 5, was " + significantDigits);
+    }
+    if (highestTrackableValue < 2) {
+      throw new IllegalArgumentException("highestTrackableValue must be >= 2, was " + highestTrackableValue);
+    }
+    this.highestTrackableValue = highestTrackableValue;
+    this.significantDigits = significantDigits;
+
+    long largestValueWithSingleUnitResolution = 2 * (long)Math.pow(10, significantDigits);
+    int subBucketCountMagnitude = (int)Math.ceil(Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+    this.subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+    this.subBucketCount = 1 << (subBucketHalfCountMagnitude + 1);
+    this.subBucketHalfCount = subBucketCount / 2;
+    this.subBucketMask = subBucketCount - 1;
+    this.leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+    this.counts = new long[(bucketsNeededFor(highestTrackableValue) + 1) * subBucketHalfCount];
+  }
+
+  /**
+   * Copy constructor
+   */
+  public Histogram(final Histogram histogram) {
+    this(histogram.highestTrackableValue, histogram.significantDigits);
+    add(histogram);
+  }
+
+  private int bucketsNeededFor(final long value) {
+    long smallestUntrackableValue = ((long)subBucketCount);
+    int bucketsNeeded = 1;
+    while (smallestUntrackableValue <= value) {
+      if (smallestUntrackableValue > (Long.MAX_VALUE / 2)) {
+        return bucketsNeeded + 1;
+      }
+      smallestUntrackableValue <<= 1;
+      bucketsNeeded++;
+    }
+    return bucketsNeeded;
+  }
+
+  /**
+   * Record a value
+   *
+   * @param value value to record, negative values are recorded as 0
+   */
+  public void add(long value) {
+    add(value, 1);
+  }
+
+  /**
+   * Record a value several times
+   *
+   * @param value value to record, negative values are recorded as 0
+   * @param count number of times the value is recorded
+   */
+  public void add(long value, long count) {
+    if (value < 0) {
+      value = 0;
+    }
+    int index = countsIndexFor(value);
+    if (index >= counts.length) {
+      index = counts.length - 1;
+    }
+    counts[index] += count;
+    totalCount += count;
+    if (value < minValue) {
+      minValue = value;
+    }
+    if (value > maxValue) {
+      maxValue = value;
+    }
+  }
+
+  /**
+   * Merge a histogram in the current one.
+   * Merging histograms of same configuration is lossless.
+   *
+   * @param histogram Histogram to merge
+   * @return this
+   */
+  public Histogram add(final Histogram histogram) {
+    if (histogram == null || histogram.totalCount == 0) {
+      return this;
+    }
+    if (histogram.counts.length == counts.length && histogram.subBucketCount == subBucketCount) {
+      int to = histogram.highestUsedIndex();
+      for (int i = histogram.lowestUsedIndex(); i <= to; i++) {
+        counts[i] += histogram.counts[i];
+      }
+    } else {
+      for (int i = 0; i < histogram.counts.length; i++) {
+        long count = histogram.counts[i];
+        if (count != 0) {
+          int index = countsIndexFor(histogram.valueFromIndex(i));
+          counts[index < counts.length ? index : counts.length - 1] += count;
+        }
+      }
+    }
+    totalCount += histogram.totalCount;
+    if (histogram.minValue < minValue) {
+      minValue = histogram.minValue;
+    }
+    if (histogram.maxValue > maxValue) {
+      maxValue = histogram.maxValue;
+    }
+    return this;
+  }
+
+  /**
+   * Writes the configuration and the used buckets, {@link #readFrom(DataInput)} reads back an identical histogram
+   */
+  public void writeTo(final DataOutput out) throws IOException {
+    out.writeLong(highestTrackableValue);
+    out.writeInt(significantDigits);
+    out.writeLong(totalCount);
+    if (totalCount == 0) {
+      return;
+    }
+    out.writeLong(minValue);
+    out.writeLong(maxValue);
+    int from = lowestUsedIndex();
+    int to = highestUsedIndex();
+    out.writeInt(from);
+    out.writeInt(to);
+    for (int i = from; i <= to; i++) {
+      out.writeLong(counts[i]);
+    }
+  }
+
+  public static Histogram readFrom(final DataInput in) throws IOException {
+    Histogram histogram = new Histogram(in.readLong(), in.readInt());
+    histogram.totalCount = in.readLong();
+    if (histogram.totalCount == 0) {
+      return histogram;
+    }
+    histogram.minValue = in.readLong();
+    histogram.maxValue = in.readLong();
+    int from = in.readInt();
+    int to = in.readInt();
+    for (int i = from; i <= to; i++) {
+      histogram.counts[i] = in.readLong();
+    }
+    return histogram;
+  }
+
+  /**
+   * Removes the values of an earlier copy of this histogram, leaving what was recorded since.
+   * Min and max become the lowest and highest equivalent values of the buckets left.
+   *
+   * @param earlier histogram of same configuration, holding a subset of the values of this one
+   * @return this
+   */
+  public Histogram subtract(final Histogram earlier) {
+    if (earlier.counts.length != counts.length || earlier.subBucketCount != subBucketCount) {
+      throw new IllegalArgumentException("Can't subtract histograms of different configurations");
+    }
+    if (earlier.totalCount == 0) {
+      return this;
+    }
+    int to = earlier.highestUsedIndex();
+    for (int i = earlier.lowestUsedIndex(); i <= to; i++) {
+      counts[i] -= earlier.counts[i];
+    }
+    totalCount -= earlier.totalCount;
+    if (totalCount <= 0) {
+      Arrays.fill(counts, 0);
+      totalCount = 0;
+      minValue = Long.MAX_VALUE;
+      maxValue = 0;
+      return this;
+    }
+    int lowest = lowestUsedIndex();
+    while (counts[lowest] == 0) {
+      lowest++;
+    }
+    int highest = highestUsedIndex();
+    while (counts[highest] == 0) {
+      highest--;
+    }
+    minValue = valueFromIndex(lowest);
+    maxValue = Math.min(highestEquivalentValue(valueFromIndex(highest)), maxValue);
+    return this;
+  }
+
+  public void reset() {
+    if (totalCount == 0) {
+      return;
+    }
+    Arrays.fill(counts, lowestUsedIndex(), highestUsedIndex() + 1, 0);
+    totalCount = 0;
+    minValue = Long.MAX_VALUE;
+    maxValue = 0;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the highest value (within precision) below which the given percentage of values fall,
+   *         0 if nothing was recorded
+   */
+  public long getValueAtPercentile(final double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    double requested = Math.max(percentile, 0.0);
+    if (requested >= 100.0) {
+      return maxValue;
+    }
+    long countAtPercentile = Math.max(1, (long)(((requested / 100.0) * totalCount) + 0.5));
+    long running = 0;
+    for (int i = lowestUsedIndex(); i < counts.length; i++) {
+      running += counts[i];
+      if (running >= countAtPercentile) {
+        return Math.min(highestEquivalentValue(valueFromIndex(i)), maxValue);
+      }
+    }
+    return maxValue;
+  }
+
+  public double getMean() {
+    if (totalCount == 0) {
+      return 0;
+    }
+    double total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        total += medianEquivalentValue(valueFromIndex(i)) * (double)counts[i];
+      }
+    }
+    return total / totalCount;
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public long getMaxValue() {
+    return maxValue;
+  }
+
+  public long getMinValue() {
+    return (totalCount == 0) ? 0 : minValue;
+  }
+
+  public int getSignificantDigits() {
+    return significantDigits;
+  }
+
+  public long getHighestTrackableValue() {
+    return highestTrackableValue;
+  }
+
+  private int lowestUsedIndex() {
+    return Math.min(countsIndexFor(minValue), counts.length - 1);
+  }
+
+  private int highestUsedIndex() {
+    return Math.min(countsIndexFor(maxValue), counts.length - 1);
+  }
+
+  private int bucketIndexFor(final long value) {
+    return leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+  }
+
+  private int countsIndexFor(final long value) {
+    int bucketIndex = bucketIndexFor(value);
+    int subBucketIndex = (int)(value >>> bucketIndex);
+    int bucketBaseIndex = (bucketIndex + 1) << subBucketHalfCountMagnitude;
+    return bucketBaseIndex + (subBucketIndex - subBucketHalfCount);
+  }
+
+  private long valueFromIndex(final int index) {
+    int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+    int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+    if (bucketIndex < 0) {
+      subBucketIndex -= subBucketHalfCount;
+      bucketIndex = 0;
+    }
+    return ((long)subBucketIndex) << bucketIndex;
+  }
+
+  private long sizeOfEquivalentValueRange(final long value) {
+    int bucketIndex = bucketIndexFor(value);
+    int subBucketIndex = (int)(value >>> bucketIndex);
+    return 1L << ((subBucketIndex >= subBucketCount) ? bucketIndex + 1 : bucketIndex);
+  }
+
+  private long highestEquivalentValue(final long value) {
+    return value + sizeOfEquivalentValueRange(value) - 1;
+  }
+
+  private long medianEquivalentValue(final long value) {
+    return value + (sizeOfEquivalentValueRange(value) >> 1);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("count = ").append(nf.format(totalCount));
+    for (double percentile : REPORTED_PERCENTILES) {
+      sb.append(", p").append(percentile).append(" = ").append(nf.format(getValueAtPercentile(percentile)));
+    }
+    sb.append(", max = ").append(nf.format(getMaxValue()));
+    return sb.toString();
+  }
 
 }
@@ -17,232 +17,451 @@ package org.terracotta.ehcache.testing.statistics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.utils.VirtualThreads;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.NumberFormat;
-import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Transactions statistics (count, latencies, exceptions).
+ * <p>
+ * Recording ({@link #add(long)}, {@link #incrementTotalExceptionCount()}) is done in a recorder owned
+ * by the calling thread, so threads sharing the same Stats never write to the same memory.
+ * Readers (getters, {@link #getPeriodStats()}, {@link #add(Stats)}) swap the active buffer of every
+ * recorder with an inactive one and fold the swapped buffers in the cumulative and period values.
+ * <p>
+ * Failed transactions ({@link #addFailure(long, Throwable)}) are counted as exceptions, their latency goes to
+ * the stats of their exception type, not to the latency of the successful ones.
+ * <p>
+ * Histograms are allocated on the first recorded latency, so that empty stats and stats recorded with
+ * <tt>-Denable.histo=false</tt> hold none.
+ */
 public class Stats {
-	private static final NumberFormat nf = NumberFormat.getInstance();
-	private static final Logger log = LoggerFactory.getLogger(Stats.class);
-    private static final boolean enableHisto = Boolean.parseBoolean(System.getProperty("enable.histo", "false"));
+  private static final NumberFormat nf = NumberFormat.getInstance();
+  private static final Logger log = LoggerFactory.getLogger(Stats.class);
+  private static final boolean enableHisto = Boolean.parseBoolean(System.getProperty("enable.histo", "true"));
+
+  private static final int SHARED_RECORDERS = Runtime.getRuntime().availableProcessors() * 2;
+
+  /**
+   * Copy of the stats being added, reused by the thread adding them
+   */
+  private static final ThreadLocal<Interval> scratch = new ThreadLocal<Interval>() {
+    @Override
+    protected Interval initialValue() {
+      return new Interval();
+    }
+  };
+
+  private final ThreadLocal<Recorder> localRecorder = new ThreadLocal<Recorder>() {
+    @Override
+    protected Recorder initialValue() {
+      Thread current = Thread.currentThread();
+      if (VirtualThreads.isVirtual(current)) {
+        return sharedRecorder(current);
+      }
+      Recorder recorder = new Recorder(current);
+      recorders.add(recorder);
+      return recorder;
+    }
+  };
+  private final List<Recorder> recorders = new CopyOnWriteArrayList<Recorder>();
+  private final Recorder[] sharedRecorders = new Recorder[SHARED_RECORDERS];
 
-	private Stats period = null;
-	private AtomicLong transactionsCount;
+  private final ConcurrentMap<String, Stats> failures = new ConcurrentHashMap<String, Stats>();
 
-	private final AtomicLong startTime = new AtomicLong(System.currentTimeMillis());
-	private AtomicLong totalExceptionCount = new AtomicLong();
-	private AtomicLong endTime = null;
-	private AtomicLong totalTxLatency;
-	private double minLatency, maxLatency;
+  private final Interval cumulative = new Interval();
+  private final Interval period = new Interval();
 
-	private Histogram histo;
+  private long startTime = System.currentTimeMillis();
+  private long periodStartTime = startTime;
+  private volatile long endTime = -1;
 
-	public Stats() {
-		defaultInit();
-	}
+  public Stats() {
+  }
 
-	public Stats(Stats stat) {
+  public Stats(Stats stat) {
     if (stat != null) {
-      init(stat.getTxnCount(), stat.totalTxLatency.get(),
-          stat.minLatency, stat.maxLatency, stat.startTime,
-          stat.endTime, stat.getTotalExceptionCount(),
-          stat.getHisto());
-    } else {
-      defaultInit();
+      synchronized (stat) {
+        stat.sample();
+        this.cumulative.add(stat.cumulative);
+        this.startTime = stat.startTime;
+        this.periodStartTime = stat.periodStartTime;
+        this.endTime = stat.endTime;
+        for (Map.Entry<String, Stats> e : stat.failures.entrySet()) {
+          this.failures.put(e.getKey(), new Stats(e.getValue()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Add {@link Stats} to the current.
+   *
+   * @param stat
+   * @return {@link this}
+   */
+  public Stats add(Stats stat) {
+    Interval other = scratch.get();
+    long otherStartTime;
+    long otherEndTime;
+    synchronized (stat) {
+      stat.sample();
+      other.reset();
+      other.add(stat.cumulative);
+      otherStartTime = stat.startTime;
+      otherEndTime = stat.endTime;
+    }
+    synchronized (this) {
+      sample();
+      this.cumulative.add(other);
+
+      // whichever started earlier
+      if (otherStartTime < this.startTime)
+        this.startTime = otherStartTime;
+
+      // whichever finished later
+      if (otherEndTime != -1 && otherEndTime > this.endTime)
+        this.endTime = otherEndTime;
+
+      for (Map.Entry<String, Stats> e : stat.failures.entrySet()) {
+        Stats failure = failures.get(e.getKey());
+        if (failure == null) {
+          failures.put(e.getKey(), new Stats(e.getValue()));
+        } else {
+          failure.add(e.getValue());
+        }
+      }
     }
+    return this;
   }
 
-	private void defaultInit() {
-    init(0, 0, Double.MAX_VALUE, Double.MIN_VALUE, null, null, 0, null);
+  /**
+   * Add transaction length
+   *
+   * @param txLength
+   *            transaction length
+   */
+  public void add(long txLength) {
+    if (endTime != -1)
+      throw new IllegalStateException("Stats has been finalized...!!");
+    if (txLength > 32000000000L) {    // 32 seconds in nanoseconds
+      log.warn("stat transaction length exceeds 32 secs, txLength = {}", txLength);
+    }
+    localRecorder.get().record(txLength, 1);
   }
 
-  private void init(long transactionsCount, long total, double minLatency,
-                    double maxLatency, AtomicLong startTime, AtomicLong endTime,
-                    long totalExceptions, Histogram hist) {
+  /**
+   * Add transactions of the same length, e.g. the keys of a batch, each accounted for its share of the batch
+   *
+   * @param txLength transaction length
+   * @param count number of transactions
+   */
+  public void add(long txLength, long count) {
+    if (endTime != -1)
+      throw new IllegalStateException("Stats has been finalized...!!");
+    localRecorder.get().record(txLength, count);
+  }
 
-    this.transactionsCount = new AtomicLong(transactionsCount);
-		this.totalTxLatency = new AtomicLong(total);
-		this.totalExceptionCount = new AtomicLong(totalExceptions);
-		this.minLatency = minLatency;
-		this.maxLatency = maxLatency;
+  public void incrementTotalExceptionCount() {
+    localRecorder.get().recordException();
+  }
 
-		if (startTime != null)
-			this.startTime.set(startTime.get());
+  /**
+   * Add a failed transaction, counted as an exception and in the stats of its exception type
+   *
+   * @param txLength transaction length
+   * @param failure what made the transaction fail
+   */
+  public void addFailure(long txLength, Throwable failure) {
+    addFailure(txLength, failure.getClass().getName());
+  }
 
-		if (endTime != null)
-			this.endTime = new AtomicLong(endTime.get());
+  /**
+   * Add a failed transaction, counted as an exception and in the stats of the given type of failure
+   *
+   * @param txLength transaction length
+   * @param type     of failure, e.g. an exception class name
+   */
+  public void addFailure(long txLength, String type) {
+    if (endTime != -1)
+      throw new IllegalStateException("Stats has been finalized...!!");
+    Stats stats = failures.get(type);
+    if (stats == null) {
+      Stats created = new Stats();
+      stats = failures.putIfAbsent(type, created);
+      if (stats == null) {
+        stats = created;
+      }
+    }
+    stats.add(txLength);
+    localRecorder.get().recordException();
+  }
 
-		this.histo = new Histogram();
-        if (enableHisto){
-            if (hist != null)
-                this.histo.add(hist);
-        }
-	}
-
-	/**
-	 * Add {@link Stats} to the current.
-	 *
-	 * @param stat
-	 * @return {@link this}
-	 */
-	public Stats add(Stats stat) {
-		this.transactionsCount.addAndGet(stat.getTxnCount());
-		this.totalTxLatency.addAndGet(stat.totalTxLatency.get());
-
-		if (stat.minLatency < this.minLatency)
-			this.minLatency = stat.minLatency;
-
-		if (stat.maxLatency > this.maxLatency)
-			this.maxLatency = stat.maxLatency;
-
-		// whichever started earlier
-		if (stat.startTime.get() < this.startTime.get())
-			this.startTime.set(stat.startTime.get());
-
-		// whichever finished later
-		if (stat.endTime != null) {
-			if (this.endTime == null)
-				this.endTime = new AtomicLong(stat.endTime.get());
-			else if (stat.endTime.get() > this.endTime.get())
-				this.endTime.set(stat.endTime.get());
-		}
-
-        if (enableHisto)
-            this.histo.add(stat.histo);
-		this.totalExceptionCount.addAndGet(stat.totalExceptionCount.get());
-
-		return this;
-	}
-
-	/**
-	 * Add transaction length
-	 *
-	 * @param txLength
-	 *            transaction length
-	 */
-	public void add(long txLength) {
-	    if (endTime != null)
-	        throw new IllegalStateException("Stats has been finalized...!!");
-		if (txLength > 32000000000L) {    // 32 seconds in nanoseconds
-			log.warn("stat transaction length exceeds 32 secs, txLength = {}", txLength);
-		}
-		transactionsCount.incrementAndGet();
-		totalTxLatency.addAndGet(txLength);
-		if (txLength < minLatency) {
-			minLatency = txLength;
-		}
-		if (txLength > maxLatency) {
-			maxLatency = txLength;
-		}
-
-		if (period == null) {
-			period = new Stats();
-		}
-
-        if (enableHisto){
-            histo.add(txLength);
-            period.histo.add(txLength);
-        }
+  /**
+   * @return stats of the failed transactions, by exception class name
+   */
+  public Map<String, Stats> getFailures() {
+    return Collections.unmodifiableMap(failures);
+  }
+
+  /**
+   * Virtual threads can be counted by thousands, they share a few recorders instead of owning one each
+   */
+  private Recorder sharedRecorder(final Thread thread) {
+    int index = (int)(thread.getId() % sharedRecorders.length);
+    synchronized (sharedRecorders) {
+      Recorder recorder = sharedRecorders[index];
+      if (recorder == null) {
+        recorder = new Recorder(null);
+        sharedRecorders[index] = recorder;
+        recorders.add(recorder);
+      }
+      return recorder;
+    }
+  }
+
+  /**
+   * Swaps the recorders buffers and folds what was recorded since the last sample
+   * in the cumulative and period values.
+   * Recorders of dead threads are dropped once emptied, shared recorders are kept.
+   */
+  private synchronized void sample() {
+    for (Iterator<Recorder> it = recorders.iterator(); it.hasNext(); ) {
+      Recorder recorder = it.next();
+      boolean alive = recorder.owner == null || recorder.owner.isAlive();
+      Interval sampled = recorder.swap();
+      cumulative.add(sampled);
+      period.add(sampled);
+      if (!alive) {
+        recorders.remove(recorder);
+      }
+    }
+  }
+
+  /**
+   * @return average latency
+   */
+  public synchronized double getAvgLatency() {
+    sample();
+    if (cumulative.count > 0)
+      return (double) cumulative.totalLatency / cumulative.count;
+    return 0;
+  }
+
+  /**
+   *
+   * @return max latency
+   */
+  public synchronized double getMaxLatency() {
+    sample();
+    if (cumulative.maxLatency == Long.MIN_VALUE)
+      return Double.NaN;
+    return cumulative.maxLatency;
+  }
+
+  /**
+   *
+   * @return min latency
+   */
+  public synchronized double getMinLatency() {
+    sample();
+    if (cumulative.minLatency == Long.MAX_VALUE)
+      return Double.NaN;
+    return cumulative.minLatency;
+  }
+
+  /**
+   * resets the stats
+   */
+  public void reset() {
+    reset(System.currentTimeMillis());
+  }
+
+  /**
+   * resets the stats, using the given time as new start time
+   *
+   * @param start start time in millis
+   */
+  synchronized void reset(long start) {
+    this.startTime = start;
+    this.periodStartTime = start;
+    this.endTime = -1;
+    for (Recorder recorder : recorders) {
+      recorder.swap();
+    }
+    cumulative.reset();
+    period.reset();
+    failures.clear();
+  }
+
+  /**
+   * Takes what was recorded since the start and restarts the stats from the given time, unless they are finalised
+   *
+   * @param time end of the snapshot and new start time, in millis
+   * @return finalised stats of what was recorded until now
+   */
+  synchronized Stats cut(long time) {
+    sample();
+    Stats snapshot = new Stats();
+    snapshot.cumulative.add(cumulative);
+    snapshot.startTime = startTime;
+    snapshot.periodStartTime = startTime;
+    snapshot.endTime = (endTime != -1) ? endTime : time;
+    for (Map.Entry<String, Stats> e : failures.entrySet()) {
+      snapshot.failures.put(e.getKey(), e.getValue().cut(time));
+    }
+    if (endTime == -1) {
+      startTime = time;
+      cumulative.reset();
+    }
+    return snapshot;
+  }
+
+  /**
+   * @return total txn count
+   */
+  public synchronized long getTxnCount() {
+    sample();
+    return cumulative.count;
+  }
 
-		period.transactionsCount.incrementAndGet();
-		period.totalTxLatency.addAndGet(txLength);
-		if (txLength < period.minLatency)
-			period.minLatency = txLength;
-		if (txLength > period.maxLatency)
-			period.maxLatency = txLength;
-	}
-
-	public void incrementTotalExceptionCount() {
-    if (period != null)
-      period.totalExceptionCount.incrementAndGet();
-    totalExceptionCount.incrementAndGet();
+  public synchronized long getThroughput() {
+    long end = (endTime != -1) ? endTime : System.currentTimeMillis();
+    long time = end - this.startTime;
+    if (time == 0)
+      time = 1;
+    return getTxnCount() * 1000 / time;
   }
 
-	/**
-	 * @return average latency
-	 */
-	public double getAvgLatency() {
-		if (transactionsCount.get() > 0)
-			return (double) totalTxLatency.get() / transactionsCount.get();
-		return 0;
-	}
-
-	/**
-	 *
-	 * @return max latency
-	 */
-	public double getMaxLatency() {
-		if (maxLatency == Double.MIN_VALUE)
-			return Double.NaN;
-		return maxLatency;
-	}
-
-	/**
-	 *
-	 * @return min latency
-	 */
-	public double getMinLatency() {
-		if (minLatency == Double.MAX_VALUE)
-			return Double.NaN;
-		return minLatency;
-	}
-
-	/**
-	 * resets the stats
-	 */
-	public synchronized void reset() {
-		transactionsCount.set(0);
-		totalTxLatency.set(0);
-		totalExceptionCount.set(0);
-		minLatency = Double.MAX_VALUE;
-		maxLatency = Double.MIN_VALUE;
-		this.startTime.set(System.currentTimeMillis());
-		this.endTime = null;
-		this.histo = new Histogram();
-	}
-
-	/**
-	 * @return total txn count
-	 */
-	public long getTxnCount() {
-		return transactionsCount.get();
-	}
-
-	public long getThroughput() {
-		long end = (endTime != null) ? endTime.get() : System.currentTimeMillis();
-		long time = end - this.startTime.get();
-		if (time == 0)
-			time = 1;
-		return getTxnCount() * 1000 / time;
-	}
-
-	public Stats getPeriodStats() {
-		Stats p = new Stats(period);
-		if (period != null) {
-			period.reset();
-		}
-		return p;
-	}
-
-	public void finalise() {
-		if (endTime != null)
-			// stats can be finalized only once, but can be called multiple
-			// times
-			return;
-		this.endTime = new AtomicLong();
-		this.endTime.set(System.currentTimeMillis());
-	}
-
-  public long getTotalExceptionCount() {
-    return totalExceptionCount.get();
+  /**
+   * @return stats of what was recorded since the previous call
+   */
+  public synchronized Stats getPeriodStats() {
+    sample();
+    Stats p = new Stats();
+    p.cumulative.add(period);
+    p.startTime = periodStartTime;
+    p.periodStartTime = periodStartTime;
+    for (Map.Entry<String, Stats> e : failures.entrySet()) {
+      p.failures.put(e.getKey(), e.getValue().getPeriodStats());
+    }
+    period.reset();
+    periodStartTime = System.currentTimeMillis();
+    return p;
+  }
+
+  public void finalise() {
+    finalise(System.currentTimeMillis());
+  }
+
+  /**
+   * finalises the stats, using the given time as end time
+   *
+   * @param end end time in millis
+   */
+  synchronized void finalise(long end) {
+    if (endTime != -1)
+      // stats can be finalized only once, but can be called multiple
+      // times
+      return;
+    sample();
+    this.endTime = end;
+    for (Stats failure : failures.values()) {
+      failure.finalise(end);
+    }
+  }
+
+  public synchronized long getTotalExceptionCount() {
+    sample();
+    return cumulative.exceptionCount;
+  }
+
+  public synchronized Histogram getHisto() {
+    sample();
+    return cumulative.histo();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return latency at the given percentile, 0 if histograms are disabled or nothing was recorded
+   */
+  public long getLatencyAtPercentile(double percentile) {
+    return getHisto().getValueAtPercentile(percentile);
+  }
+
+  /**
+   * @param earlier snapshot of the same stats taken before this one, e.g. read back from a log, may be null
+   * @return what was recorded between the two snapshots, everything in this one if the stats were reset or cut
+   *         in between
+   */
+  public Stats since(final Stats earlier) {
+    Stats delta = new Stats(this);
+    if (earlier == null) {
+      return delta;
+    }
+    Stats before = new Stats(earlier);
+    if (before.startTime == delta.startTime && before.cumulative.count <= delta.cumulative.count) {
+      delta.cumulative.subtract(before.cumulative);
+      delta.startTime = (before.endTime != -1) ? before.endTime : before.startTime;
+      delta.periodStartTime = delta.startTime;
+      for (Map.Entry<String, Stats> e : delta.failures.entrySet()) {
+        e.setValue(e.getValue().since(before.failures.get(e.getKey())));
+      }
+    }
+    return delta;
   }
 
-  public Histogram getHisto() {
-    return histo;
+  /**
+   * Writes what was recorded, with the histogram, so that stats of another JVM can be merged losslessly
+   * using {@link #readFrom(DataInput)} and {@link #add(Stats)}
+   */
+  public synchronized void writeTo(final DataOutput out) throws IOException {
+    sample();
+    out.writeLong(startTime);
+    out.writeLong(endTime);
+    out.writeLong(cumulative.count);
+    out.writeLong(cumulative.totalLatency);
+    out.writeLong(cumulative.exceptionCount);
+    out.writeLong(cumulative.minLatency);
+    out.writeLong(cumulative.maxLatency);
+    cumulative.histo().writeTo(out);
+    out.writeInt(failures.size());
+    for (Map.Entry<String, Stats> e : failures.entrySet()) {
+      out.writeUTF(e.getKey());
+      e.getValue().writeTo(out);
+    }
+  }
+
+  public static Stats readFrom(final DataInput in) throws IOException {
+    Stats stats = new Stats();
+    stats.startTime = in.readLong();
+    stats.periodStartTime = stats.startTime;
+    stats.endTime = in.readLong();
+    Interval interval = stats.cumulative;
+    interval.count = in.readLong();
+    interval.totalLatency = in.readLong();
+    interval.exceptionCount = in.readLong();
+    interval.minLatency = in.readLong();
+    interval.maxLatency = in.readLong();
+    interval.histo().add(Histogram.readFrom(in));
+    for (int i = in.readInt(); i > 0; i--) {
+      stats.failures.put(in.readUTF(), readFrom(in));
+    }
+    return stats;
   }
 
   @Override
-	public String toString() {
+  public String toString() {
     return String
         .format("Txns: %s, TPS: %s, Latency(ms): Avg: %s, Min: %s, Max: %s, TotalExceptionCount: %s",
             nf.format(this.getTxnCount()),
@@ -254,4 +473,138 @@ public class Stats {
         );
   }
 
+  /**
+   * Plain accumulator, either owned by a single writer thread or guarded by the Stats monitor
+   */
+  static final class Interval {
+    long count;
+    long totalLatency;
+    long exceptionCount;
+    long minLatency = Long.MAX_VALUE;
+    long maxLatency = Long.MIN_VALUE;
+    Histogram histo;
+
+    /**
+     * @return the histogram, allocated if nothing was recorded in it yet
+     */
+    Histogram histo() {
+      if (histo == null) {
+        histo = new Histogram();
+      }
+      return histo;
+    }
+
+    void add(long txLength, long n) {
+      count += n;
+      totalLatency += txLength * n;
+      if (txLength < minLatency)
+        minLatency = txLength;
+      if (txLength > maxLatency)
+        maxLatency = txLength;
+      if (enableHisto)
+        histo().add(txLength, n);
+    }
+
+    void add(Interval other) {
+      if (other.count == 0 && other.exceptionCount == 0)
+        return;
+      count += other.count;
+      totalLatency += other.totalLatency;
+      exceptionCount += other.exceptionCount;
+      if (other.minLatency < minLatency)
+        minLatency = other.minLatency;
+      if (other.maxLatency > maxLatency)
+        maxLatency = other.maxLatency;
+      if (enableHisto && other.histo != null)
+        histo().add(other.histo);
+    }
+
+    void subtract(Interval earlier) {
+      count -= earlier.count;
+      totalLatency -= earlier.totalLatency;
+      exceptionCount -= earlier.exceptionCount;
+      if (enableHisto && histo != null) {
+        if (earlier.histo != null)
+          histo.subtract(earlier.histo);
+        if (histo.getTotalCount() > 0) {
+          minLatency = histo.getMinValue();
+          maxLatency = histo.getMaxValue();
+        }
+      }
+      if (count == 0) {
+        minLatency = Long.MAX_VALUE;
+        maxLatency = Long.MIN_VALUE;
+      }
+    }
+
+    void reset() {
+      count = 0;
+      totalLatency = 0;
+      exceptionCount = 0;
+      minLatency = Long.MAX_VALUE;
+      maxLatency = Long.MIN_VALUE;
+      if (histo != null)
+        histo.reset();
+    }
+  }
+
+  /**
+   * Per thread recorder, writes go to the active interval, the reader swaps it with the inactive one.
+   * A recorder without owner is shared by several threads, which then serialize their writes on it.
+   */
+  static final class Recorder {
+    private final Thread owner;
+    private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+    private volatile Interval active = new Interval();
+    private Interval inactive = new Interval();
+
+    Recorder(final Thread owner) {
+      this.owner = owner;
+    }
+
+    void record(long txLength, long count) {
+      long criticalValue = phaser.writerCriticalSectionEnter();
+      try {
+        if (owner == null) {
+          synchronized (this) {
+            active.add(txLength, count);
+          }
+        } else {
+          active.add(txLength, count);
+        }
+      } finally {
+        phaser.writerCriticalSectionExit(criticalValue);
+      }
+    }
+
+    void recordException() {
+      long criticalValue = phaser.writerCriticalSectionEnter();
+      try {
+        if (owner == null) {
+          synchronized (this) {
+            active.exceptionCount++;
+          }
+        } else {
+          active.exceptionCount++;
+        }
+      } finally {
+        phaser.writerCriticalSectionExit(criticalValue);
+      }
+    }
+
+    /**
+     * Reader side only, must be called under the Stats monitor
+     *
+     * @return the interval recorded since the previous swap, untouched by writers until the next swap
+     */
+    Interval swap() {
+      inactive.reset();
+      Interval sampled = active;
+      active = inactive;
+      phaser.flipPhase();
+      inactive = sampled;
+      return sampled;
+    }
+  }
+
 }
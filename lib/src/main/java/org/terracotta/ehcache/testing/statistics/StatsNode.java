@@ -1,5 +1,8 @@
 package org.terracotta.ehcache.testing.statistics;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -8,6 +11,8 @@ public class StatsNode {
   private final Map<String, Stats> readStatsList = new LinkedHashMap<String, Stats>();
   private final Map<String, Stats> writeStatsList = new LinkedHashMap<String, Stats>();
   private final Map<String, Stats> removeStatsList = new LinkedHashMap<String, Stats>();
+  private final Map<String, Stats> batchStatsList = new LinkedHashMap<String, Stats>();
+  private final Map<String, Stats> validationStatsList = new LinkedHashMap<String, Stats>();
 
   private Stats overallStats;
 
@@ -23,16 +28,142 @@ public class StatsNode {
     removeStatsList.put(name, remove);
   }
 
+  /**
+   * Batches are not in the overall stats, their keys are already in the read, write and remove stats
+   */
+  public void addBatchStats(final String name, final Stats batch) {
+    batchStatsList.put(name, batch);
+  }
+
+  /**
+   * Validations off the accessors' path, see {@link org.terracotta.ehcache.testing.validator.AsyncValidation} :
+   * the latency of a validation is its lag behind the read. They are not in the overall stats either.
+   */
+  public void addValidationStats(final String name, final Stats validation) {
+    validationStatsList.put(name, validation);
+  }
+
   public synchronized void reset() {
+    long start = System.currentTimeMillis();
     for (Stats s : readStatsList.values())
-      s.reset();
+      s.reset(start);
     for (Stats s : writeStatsList.values())
-      s.reset();
+      s.reset(start);
     for (Stats s : removeStatsList.values())
-      s.reset();
+      s.reset(start);
+    for (Stats s : batchStatsList.values())
+      s.reset(start);
+    for (Stats s : validationStatsList.values())
+      s.reset(start);
     overallStats = new Stats();
   }
 
+  /**
+   * Snapshots the stats of every cache and restarts them, the stats recorded from now on are not in the snapshot
+   *
+   * @return finalised node of what was recorded since the last reset or snapshot
+   */
+  public synchronized StatsNode snapshot() {
+    long time = System.currentTimeMillis();
+    StatsNode snapshot = new StatsNode();
+    for (Map.Entry<String, Stats> e : readStatsList.entrySet())
+      snapshot.addReadStats(e.getKey(), e.getValue().cut(time));
+    for (Map.Entry<String, Stats> e : writeStatsList.entrySet())
+      snapshot.addWriteStats(e.getKey(), e.getValue().cut(time));
+    for (Map.Entry<String, Stats> e : removeStatsList.entrySet())
+      snapshot.addRemoveStats(e.getKey(), e.getValue().cut(time));
+    for (Map.Entry<String, Stats> e : batchStatsList.entrySet())
+      snapshot.addBatchStats(e.getKey(), e.getValue().cut(time));
+    for (Map.Entry<String, Stats> e : validationStatsList.entrySet())
+      snapshot.addValidationStats(e.getKey(), e.getValue().cut(time));
+    snapshot.finalise();
+    return snapshot;
+  }
+
+  /**
+   * Takes the period stats of every cache, so must not be used along with the stats loggers
+   *
+   * @return finalised node of what was recorded since the previous call
+   */
+  public synchronized StatsNode periodSnapshot() {
+    StatsNode period = new StatsNode();
+    for (Map.Entry<String, Stats> e : readStatsList.entrySet())
+      period.addReadStats(e.getKey(), e.getValue().getPeriodStats());
+    for (Map.Entry<String, Stats> e : writeStatsList.entrySet())
+      period.addWriteStats(e.getKey(), e.getValue().getPeriodStats());
+    for (Map.Entry<String, Stats> e : removeStatsList.entrySet())
+      period.addRemoveStats(e.getKey(), e.getValue().getPeriodStats());
+    for (Map.Entry<String, Stats> e : batchStatsList.entrySet())
+      period.addBatchStats(e.getKey(), e.getValue().getPeriodStats());
+    for (Map.Entry<String, Stats> e : validationStatsList.entrySet())
+      period.addValidationStats(e.getKey(), e.getValue().getPeriodStats());
+    period.finalise();
+    return period;
+  }
+
+  /**
+   * Merges the stats of another node, cache by cache, e.g. the same caches accessed from another JVM.
+   * The node is to be finalised once everything is merged.
+   *
+   * @return this
+   */
+  public synchronized StatsNode add(final StatsNode other) {
+    merge(readStatsList, other.getReadStatsList());
+    merge(writeStatsList, other.getWriteStatsList());
+    merge(removeStatsList, other.getRemoveStatsList());
+    merge(batchStatsList, other.getBatchStatsList());
+    merge(validationStatsList, other.getValidationStatsList());
+    return this;
+  }
+
+  private static void merge(final Map<String, Stats> to, final Map<String, Stats> from) {
+    for (Map.Entry<String, Stats> e : from.entrySet()) {
+      Stats stats = to.get(e.getKey());
+      if (stats == null) {
+        to.put(e.getKey(), new Stats(e.getValue()));
+      } else {
+        stats.add(e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Writes the stats of every cache, {@link #readFrom(DataInput)} reads back a finalised node
+   */
+  public synchronized void writeTo(final DataOutput out) throws IOException {
+    write(out, readStatsList);
+    write(out, writeStatsList);
+    write(out, removeStatsList);
+    write(out, batchStatsList);
+    write(out, validationStatsList);
+  }
+
+  public static StatsNode readFrom(final DataInput in) throws IOException {
+    StatsNode node = new StatsNode();
+    read(in, node.readStatsList);
+    read(in, node.writeStatsList);
+    read(in, node.removeStatsList);
+    read(in, node.batchStatsList);
+    read(in, node.validationStatsList);
+    node.finalise();
+    return node;
+  }
+
+  private static void write(final DataOutput out, final Map<String, Stats> statsList) throws IOException {
+    out.writeInt(statsList.size());
+    for (Map.Entry<String, Stats> e : statsList.entrySet()) {
+      out.writeUTF(e.getKey());
+      e.getValue().writeTo(out);
+    }
+  }
+
+  private static void read(final DataInput in, final Map<String, Stats> statsList) throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      statsList.put(in.readUTF(), Stats.readFrom(in));
+    }
+  }
+
   public Map<String, Stats> getReadStatsList() {
     return readStatsList;
   }
@@ -45,6 +176,14 @@ public class StatsNode {
     return removeStatsList;
   }
 
+  public Map<String, Stats> getBatchStatsList() {
+    return batchStatsList;
+  }
+
+  public Map<String, Stats> getValidationStatsList() {
+    return validationStatsList;
+  }
+
   public Stats getOverallStats() {
     if (overallStats == null)
 		  throw new IllegalStateException("StatsNode needs to be finalized!");
@@ -72,26 +211,40 @@ public class StatsNode {
     return overall;
   }
 
+  public Stats getOverallBatchStats() {
+    Stats overall = new Stats();
+    for (Stats batch : getBatchStatsList().values())
+      overall.add(batch);
+    return overall;
+  }
+
   @Override
   public String toString() {
     return getOverallStats().toString();
   }
 
   public void finalise() {
+    long end = System.currentTimeMillis();
     overallStats = new Stats();
     for (Stats stat : getReadStatsList().values()) {
-      stat.finalise();
+      stat.finalise(end);
       overallStats.add(stat);
     }
     for (Stats stat : getWriteStatsList().values()) {
-      stat.finalise();
+      stat.finalise(end);
       overallStats.add(stat);
     }
     for (Stats stat : getRemoveStatsList().values()) {
-      stat.finalise();
+      stat.finalise(end);
       overallStats.add(stat);
     }
-    overallStats.finalise();
+    for (Stats stat : getBatchStatsList().values()) {
+      stat.finalise(end);
+    }
+    for (Stats stat : getValidationStatsList().values()) {
+      stat.finalise(end);
+    }
+    overallStats.finalise(end);
   }
 
 }
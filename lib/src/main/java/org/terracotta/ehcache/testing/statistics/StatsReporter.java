@@ -11,6 +11,8 @@ import org.terracotta.ehcache.testing.statistics.logger.ConsoleStatsLoggerImpl;
 import org.terracotta.ehcache.testing.statistics.logger.CsvStatsLoggerImpl;
 import org.terracotta.ehcache.testing.statistics.logger.StatsLogger;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -35,6 +37,7 @@ public class StatsReporter {
 
     TXN_COUNT("Txn_Count"), TPS("TPS"),
     AVG_LAT("Avg_Lat"), MIN_LAT("Min_Lat"), MAX_LAT("Max_Lat"),
+    P50("P50"), P90("P90"), P99("P99"), P99_9("P99.9"), P99_99("P99.99"),
     HEAP("Heap(MB)"), OFFHEAP("Offheap(MB)"), DISK("Disk(MB)");
 
     private final String title;
@@ -45,7 +48,7 @@ public class StatsReporter {
 
     public static String[] names() {
       return new String[] { TXN_COUNT.name(), TPS.name(), AVG_LAT.name(), MIN_LAT.name(),
-          MAX_LAT.name(), HEAP.name(), OFFHEAP.name(), DISK.name()
+          MAX_LAT.name(), P50.name(), P90.name(), P99.name(), P99_9.name(), P99_99.name(), HEAP.name(), OFFHEAP.name(), DISK.name()
       };
     }
   }
@@ -98,11 +101,13 @@ public class StatsReporter {
       return this;
     }
 
+    // reset before returning, so that no driver records anything that would then be discarded
+    logMainHeader();
+    resetStats();
+
     Thread t = new Thread() {
       @Override
       public void run() {
-        logMainHeader();
-        resetStats();
         while (true) {
           try {
             TimeUnit.SECONDS.sleep(reportPeriod);
@@ -137,6 +142,8 @@ public class StatsReporter {
     Thread t = reportThread.get();
     if (t == null)
       return;
+    // the last driver may have been interrupted by a ParallelDriver, the end report is still due
+    boolean interrupted = Thread.interrupted();
     try {
       Thread m = memoryReportThread.get();
       if (m != null) {
@@ -145,10 +152,15 @@ public class StatsReporter {
       }
       t.interrupt();
       t.join();
-      finalise();
+      node.finalise();
       doEndReport();
+      closeLoggers();
     } catch (InterruptedException e) {
-//			e.printStackTrace();
+      interrupted = true;
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
     }
     reportThread.set(null);
     memoryReportThread.set(null);
@@ -161,25 +173,54 @@ public class StatsReporter {
     node.addReadStats(name, cacheWrapper.getReadStats());
     node.addWriteStats(name, cacheWrapper.getWriteStats());
     node.addRemoveStats(name, cacheWrapper.getRemoveStats());
+    node.addBatchStats(name, cacheWrapper.getBatchStats());
+  }
+
+  /**
+   * Reports the stats of a validation run off the accessors' path, e.g. an
+   * {@link org.terracotta.ehcache.testing.validator.AsyncValidation}
+   */
+  public synchronized void registerValidation(String name, Stats validation) {
+    node.addValidationStats(name, validation);
   }
 
   public StatsNode getFinalStats() {
     return node;
   }
 
-  private void finalise() {
-    node.finalise();
+  /**
+   * Snapshots the stats recorded since reporting started, or since the previous snapshot, e.g. at the end of a
+   * run phase. The periodic and final reports only show what is recorded after the snapshot.
+   *
+   * @return finalised node of the stats of every registered cache
+   */
+  public synchronized StatsNode snapshot() {
+    return node.snapshot();
+  }
+
+  /**
+   * Closes the loggers holding a file, e.g. {@link org.terracotta.ehcache.testing.statistics.logger.BinaryStatsLoggerImpl},
+   * once the end report is logged
+   */
+  private void closeLoggers() {
+    for (StatsLogger statsLogger : statsLoggers) {
+      if (statsLogger instanceof Closeable) {
+        try {
+          ((Closeable)statsLogger).close();
+        } catch (IOException e) {
+          logger.warn("Can't close " + statsLogger, e);
+        }
+      }
+    }
     statsLoggers.clear();
   }
 
   /**
-   * Reset stats for all {@link GenericCacheWrapper}
+   * Reset stats for all {@link GenericCacheWrapper}, the node holds the stats of every registered cache
+   * so they all get the same start time
    */
   private synchronized void resetStats() {
-	node.reset();
-    for (GenericCacheWrapper cache : cacheWrappers.values()) {
-      cache.resetStats();
-    }
+    node.reset();
   }
 
   private void logMainHeader() {
@@ -0,0 +1,78 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.statistics;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Lets wait-free writers record into an active buffer while a reader swaps it with an inactive one.
+ * <p>
+ * Writers wrap each write in {@link #writerCriticalSectionEnter()} / {@link #writerCriticalSectionExit(long)}.
+ * The reader swaps the buffers then calls {@link #flipPhase()}, which returns once every writer that
+ * could still see the old buffer has left its critical section.
+ * Only one reader may flip at a time, callers are expected to serialize readers themselves.
+ */
+class WriterReaderPhaser {
+
+  private static final AtomicLongFieldUpdater<WriterReaderPhaser> startEpochUpdater =
+      AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "startEpoch");
+  private static final AtomicLongFieldUpdater<WriterReaderPhaser> evenEndEpochUpdater =
+      AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "evenEndEpoch");
+  private static final AtomicLongFieldUpdater<WriterReaderPhaser> oddEndEpochUpdater =
+      AtomicLongFieldUpdater.newUpdater(WriterReaderPhaser.class, "oddEndEpoch");
+
+  private volatile long startEpoch = 0;
+  private volatile long evenEndEpoch = 0;
+  private volatile long oddEndEpoch = Long.MIN_VALUE;
+
+  long writerCriticalSectionEnter() {
+    return startEpochUpdater.getAndIncrement(this);
+  }
+
+  void writerCriticalSectionExit(final long criticalValueAtEnter) {
+    if (criticalValueAtEnter < 0) {
+      oddEndEpochUpdater.getAndIncrement(this);
+    } else {
+      evenEndEpochUpdater.getAndIncrement(this);
+    }
+  }
+
+  void flipPhase() {
+    boolean nextPhaseIsEven = (startEpoch < 0);
+    long initialStartValue;
+    if (nextPhaseIsEven) {
+      initialStartValue = 0;
+      evenEndEpochUpdater.lazySet(this, initialStartValue);
+    } else {
+      initialStartValue = Long.MIN_VALUE;
+      oddEndEpochUpdater.lazySet(this, initialStartValue);
+    }
+
+    long startValueAtFlip = startEpochUpdater.getAndSet(this, initialStartValue);
+
+    boolean caughtUp;
+    do {
+      if (nextPhaseIsEven) {
+        caughtUp = (oddEndEpoch == startValueAtFlip);
+      } else {
+        caughtUp = (evenEndEpoch == startValueAtFlip);
+      }
+      if (!caughtUp) {
+        Thread.yield();
+      }
+    } while (!caughtUp);
+  }
+}
@@ -0,0 +1,161 @@
+package org.terracotta.ehcache.testing.statistics.logger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Append-only binary log of the stats, for long runs : each interval appends one record holding, for every cache,
+ * the cumulative read, write, remove and batch stats with their histograms, the size of the cache, its memory
+ * footprint, and the heap of the JVM.
+ * <p>
+ * The stats being cumulative, the stats of any window of the run are the difference of two records, and this logger
+ * doesn't take the period stats of the other loggers. Records are written with a single gathering write on a
+ * {@link FileChannel}, a crash can at worst truncate the last one. Use {@link StatsLogReport} to read the log.
+ * <p>
+ * Layout : magic, version, then for each record its length and its body : time in millis, JVM heap used and
+ * committed, number of caches, and for each cache its name, entries count, on heap, off heap and on disk sizes
+ * in Kb, then its read, write, remove and batch stats as written by {@link Stats#writeTo(java.io.DataOutput)}.
+ */
+public class BinaryStatsLoggerImpl implements StatsLogger, Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(BinaryStatsLoggerImpl.class);
+
+  static final int MAGIC = 0x434c5442;
+  static final int VERSION = 2;
+
+  private final File file;
+  private final RecordBuffer record = new RecordBuffer();
+  private final DataOutputStream out = new DataOutputStream(record);
+  private final ByteBuffer length = ByteBuffer.allocate(4);
+  private FileChannel channel;
+  private Collection<GenericCacheWrapper> caches;
+
+  public BinaryStatsLoggerImpl(final String file) {
+    this.file = new File(file);
+    File parentDir = this.file.getAbsoluteFile().getParentFile();
+    if (!parentDir.exists()) {
+      parentDir.mkdirs();
+    }
+  }
+
+  public synchronized void logMainHeader(final Collection<GenericCacheWrapper> cacheWrapperMap, final String[] titles) {
+    this.caches = cacheWrapperMap;
+    if (channel != null) {
+      return;
+    }
+    try {
+      channel = new FileOutputStream(file, true).getChannel();
+      if (channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        write(header);
+      }
+      logger.info("Logging stats to {}", file.getAbsolutePath());
+    } catch (IOException e) {
+      logger.error("Can't open the stats log " + file.getAbsolutePath(), e);
+      channel = null;
+    }
+  }
+
+  public synchronized void log(final StatsNode node) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      record.reset();
+      Runtime runtime = Runtime.getRuntime();
+      out.writeLong(System.currentTimeMillis());
+      out.writeLong(runtime.totalMemory() - runtime.freeMemory());
+      out.writeLong(runtime.totalMemory());
+      Map<String, Stats> readStatsList = node.getReadStatsList();
+      out.writeInt(readStatsList.size());
+      for (String name : readStatsList.keySet()) {
+        out.writeUTF(name);
+        GenericCacheWrapper cache = cache(name);
+        out.writeLong(cache == null ? -1 : cache.getSize());
+        out.writeLong(cache == null ? -1 : cache.getOnHeapSize());
+        out.writeLong(cache == null ? -1 : cache.getOffHeapSize());
+        out.writeLong(cache == null ? -1 : cache.getOnDiskSize());
+        write(readStatsList.get(name));
+        write(node.getWriteStatsList().get(name));
+        write(node.getRemoveStatsList().get(name));
+        write(node.getBatchStatsList().get(name));
+      }
+      out.flush();
+      length.clear();
+      length.putInt(record.size()).flip();
+      write(length, record.asByteBuffer());
+    } catch (IOException e) {
+      logger.error("Can't write to the stats log " + file.getAbsolutePath() + ", stopping it", e);
+      close();
+    }
+  }
+
+  public synchronized void close() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.warn("Can't close the stats log " + file.getAbsolutePath(), e);
+    }
+    channel = null;
+  }
+
+  private GenericCacheWrapper cache(final String name) {
+    if (caches != null) {
+      for (GenericCacheWrapper cache : caches) {
+        if (name.equals(cache.getName())) {
+          return cache;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Snapshot of the stats, finalised at the time of the record
+   */
+  private void write(final Stats stats) throws IOException {
+    Stats snapshot = new Stats(stats);
+    snapshot.finalise();
+    snapshot.writeTo(out);
+  }
+
+  private void write(final ByteBuffer... buffers) throws IOException {
+    long remaining = 0;
+    for (ByteBuffer buffer : buffers) {
+      remaining += buffer.remaining();
+    }
+    while (remaining > 0) {
+      remaining -= channel.write(buffers);
+    }
+  }
+
+  /**
+   * Reusable record buffer, wrapped as is for the channel
+   */
+  private static final class RecordBuffer extends ByteArrayOutputStream {
+    RecordBuffer() {
+      super(64 * 1024);
+    }
+
+    ByteBuffer asByteBuffer() {
+      return ByteBuffer.wrap(buf, 0, count);
+    }
+  }
+}
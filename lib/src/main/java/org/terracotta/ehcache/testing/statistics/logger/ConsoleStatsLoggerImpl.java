@@ -14,11 +14,11 @@ public class ConsoleStatsLoggerImpl implements StatsLogger {
   private static int detailedMax = Integer.parseInt(System.getProperty("cache.detail.max", "4"));
   private static Logger logger = LoggerFactory.getLogger(ConsoleStatsLoggerImpl.class);
 
-  private static final String FORMAT = "%-15s %-7s %12s %10s %10s %10s %10s %10s";
+  private static final String FORMAT = "%-15s %-7s %12s %10s %10s %10s %10s %10s %10s %10s %10s %10s %10s";
   private static final NumberFormat nf = NumberFormat.getInstance();
 
   private enum StatsCategory {
-    READS, WRITES, REMOVES, TOTAL
+    READS, WRITES, REMOVES, TOTAL, CHECKS
   }
 
   private enum StatsType {
@@ -27,7 +27,8 @@ public class ConsoleStatsLoggerImpl implements StatsLogger {
 
   private void header(final String title, final String... headers) {
     logger.info("==================================================== " + title + " =========================================");
-    logger.info(String.format(FORMAT, "Cache", "Type", "Txn_Count", "TPS", "Avg_Lat", "Min_Lat", "Max_Lat", "TotalExceptionCount"));
+    logger.info(String.format(FORMAT, "Cache", "Type", "Txn_Count", "TPS", "Avg_Lat", "Min_Lat", "Max_Lat",
+        "P50", "P90", "P99", "P99.9", "P99.99", "TotalExceptionCount"));
     logger.info("==========================================================================================================");
   }
 
@@ -37,16 +38,45 @@ public class ConsoleStatsLoggerImpl implements StatsLogger {
         nf.format(stat.getAvgLatency()),
         nf.format(stat.getMinLatency()),
         nf.format(stat.getMaxLatency()),
+        nf.format(stat.getLatencyAtPercentile(50.0)),
+        nf.format(stat.getLatencyAtPercentile(90.0)),
+        nf.format(stat.getLatencyAtPercentile(99.0)),
+        nf.format(stat.getLatencyAtPercentile(99.9)),
+        nf.format(stat.getLatencyAtPercentile(99.99)),
         nf.format(stat.getTotalExceptionCount())));
   }
 
+  private void logFailures(Stats stat, String name, StatsCategory type) {
+    for (Map.Entry<String, Stats> failure : stat.getFailures().entrySet()) {
+      Stats failed = failure.getValue();
+      logger.warn(String.format("%-15s %-7s %12s failed with %s, Avg_Lat %s, Max_Lat %s, P99 %s", name, type,
+          nf.format(failed.getTxnCount()), failure.getKey(), nf.format(failed.getAvgLatency()),
+          nf.format(failed.getMaxLatency()), nf.format(failed.getLatencyAtPercentile(99.0))));
+    }
+  }
+
   public void log(final StatsNode node) {
     Map<String, Stats> readStatsList = node.getReadStatsList();
     Map<String, Stats> writeStatsList = node.getWriteStatsList();
     Map<String, Stats> removeStatsList = node.getRemoveStatsList();
 
     logNodeStats(StatsType.PERIOD, readStatsList, writeStatsList, removeStatsList);
+    logValidationStats(StatsType.PERIOD, node.getValidationStatsList());
     logNodeStats(StatsType.CUMULATIVE, readStatsList, writeStatsList, removeStatsList);
+    logValidationStats(StatsType.CUMULATIVE, node.getValidationStatsList());
+  }
+
+  /**
+   * Validations run off the accessors' path, their latency being their lag behind the reads
+   */
+  private void logValidationStats(StatsType type, final Map<String, Stats> validationStatsList) {
+    for (Map.Entry<String, Stats> e : validationStatsList.entrySet()) {
+      Stats validation = StatsType.PERIOD.equals(type) ? e.getValue().getPeriodStats() : e.getValue();
+      logStats(validation, e.getKey(), StatsCategory.CHECKS);
+      if (StatsType.CUMULATIVE.equals(type)) {
+        logFailures(validation, e.getKey(), StatsCategory.CHECKS);
+      }
+    }
   }
 
   private void logNodeStats(StatsType type, final Map<String, Stats> readStatsList,
@@ -82,9 +112,14 @@ public class ConsoleStatsLoggerImpl implements StatsLogger {
         logStats(total, name, StatsCategory.TOTAL);
         logger.info("");
       }
+      if (StatsType.CUMULATIVE.equals(type)) {
+        logFailures(readStats, name, StatsCategory.READS);
+        logFailures(writeStats, name, StatsCategory.WRITES);
+        logFailures(removeStats, name, StatsCategory.REMOVES);
+      }
       readTotal.add(readStats);
       writeTotal.add(writeStats);
-      removeTotal.add(writeStats);
+      removeTotal.add(removeStats);
       nodeTotal.add(total);
     }
     logStats(readTotal, "All Caches", StatsCategory.READS);
@@ -95,39 +130,15 @@ public class ConsoleStatsLoggerImpl implements StatsLogger {
   }
 
 	    /*
-  ==================================================== Period Stats =========================================
-	Cache           Type       Txn_Count        TPS    Avg_Lat    Min_Lat    Max_Lat NonstopExceptionCount
-	==========================================================================================================
-	All Caches      READS        379,753     94,677      0.085          0         77          0
-	All Caches      WRITES       191,432     47,726      0.161          0         87          0
-	All Caches      REMOVE        21,400     27,500      0.091          0         55          0
-	All Caches      TOTAL        571,185    142,404      0.111          0         87          0
-	All Caches Histogram:
-	0-10 frequency count = 40621373 percentage = 100.0
-	10-50 frequency count = 16407 percentage = 0.0
-	50-100 frequency count = 2499 percentage = 0.0
-	100-200 frequency count = 59 percentage = 0.0
-	200-500 frequency count = 0 percentage = 0.0
-	500-1000 frequency count = 0 percentage = 0.0
-	1000-5000 frequency count = 141 percentage = 0.0
-	5000-PLUS frequency count = 0 percentage = 0.0
-
-	==================================================== Cumulative Stats =========================================
-	Cache           Type       Txn_Count        TPS    Avg_Lat    Min_Lat    Max_Lat NonstopExceptionCount
+  ==================================================== PERIOD =========================================
+	Cache           Type       Txn_Count        TPS    Avg_Lat    Min_Lat    Max_Lat        P50        P90        P99      P99.9     P99.99 TotalExceptionCount
 	==========================================================================================================
-	All Caches      READS     26,996,736     91,045      0.092          0      2,428          0
-	All Caches      WRITES    13,643,710     46,012      0.167          0      2,452          0
-	All Caches      REMOVE    10,123,456     12,345      0.100          0      2,232          0
-	All Caches      TOTAL     40,640,446    137,058      0.117          0      2,452          0
+	All Caches      READS        379,753     94,677      8,512      1,203    770,048      6,911     11,007     41,983    229,375    598,015          0
+	All Caches      WRITES       191,432     47,726     16,130      2,011    870,400     13,311     22,015     81,919    360,447    786,431          0
+	All Caches      REMOVES       21,400     27,500      9,102      1,507    550,912      7,423     12,031     45,055    249,855    550,912          0
+	All Caches      TOTAL        571,185    142,404     11,104      1,203    870,400      8,447     16,127     63,487    294,911    720,895          0
 	All Caches Histogram:
-	0-10 frequency count = 1507526960 percentage = 100.0
-	10-50 frequency count = 618063 percentage = 0.0
-	50-100 frequency count = 80409 percentage = 0.0
-	100-200 frequency count = 2272 percentage = 0.0
-	200-500 frequency count = 0 percentage = 0.0
-	500-1000 frequency count = 0 percentage = 0.0
-	1000-5000 frequency count = 4632 percentage = 0.0
-	5000-PLUS frequency count = 0 percentage = 0.0
+	count = 571,185, p50.0 = 8,447, p90.0 = 16,127, p99.0 = 63,487, p99.9 = 294,911, p99.99 = 720,895, max = 870,400
 	    */
 
   public void logMainHeader(final Collection<GenericCacheWrapper> cacheWrapperMap, final String[] titles) {
@@ -2,6 +2,7 @@ package org.terracotta.ehcache.testing.statistics.logger;
 
 import au.com.bytecode.opencsv.CSVWriter;
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.statistics.Histogram;
 import org.terracotta.ehcache.testing.statistics.Stats;
 import org.terracotta.ehcache.testing.statistics.StatsNode;
 
@@ -41,35 +42,40 @@ public class CsvStatsLoggerImpl implements StatsLogger {
 
   private void header() {
     logger.writeNext(new String[] {
-        "Date", "Cache", "Txn_Count", "TPS", "Avg_Lat", "Min_Lat", "Max_Lat" });
+        "Date", "Cache", "Txn_Count", "TPS", "Avg_Lat", "Min_Lat", "Max_Lat", "P50", "P90", "P99", "P99_9", "P99_99" });
   }
 
   public void log(final StatsNode node) {
     Map<String, Stats> readStatsList = node.getReadStatsList();
     Map<String, Stats> writeStatsList = node.getWriteStatsList();
+    Map<String, Stats> removeStatsList = node.getRemoveStatsList();
 
-    logNodeStats(readStatsList, writeStatsList);
+    logNodeStats(readStatsList, writeStatsList, removeStatsList);
   }
 
   private void logNodeStats(final Map<String, Stats> readStatsList,
-                            final Map<String, Stats> writeStatsList) {
+                            final Map<String, Stats> writeStatsList, final Map<String, Stats> removeStatsList) {
 
     List<String> statsList = new ArrayList<String>();
     statsList.add(df.format(Calendar.getInstance().getTime()));
 
     for (final String name : readStatsList.keySet()) {
-      Stats readStats, writeStats, stat;
+      Stats readStats, writeStats, removeStats, stat;
 
       readStats = readStatsList.get(name).getPeriodStats();
       writeStats = writeStatsList.get(name).getPeriodStats();
+      removeStats = removeStatsList.get(name).getPeriodStats();
 
-      stat = new Stats(readStats).add(writeStats);
+      stat = new Stats(readStats).add(writeStats).add(removeStats);
 
       statsList.add("" + stat.getTxnCount());
       statsList.add("" + stat.getThroughput());
       statsList.add("" + stat.getAvgLatency());
       statsList.add("" + stat.getMinLatency());
       statsList.add("" + stat.getMaxLatency());
+      for (double percentile : Histogram.REPORTED_PERCENTILES) {
+        statsList.add("" + stat.getLatencyAtPercentile(percentile));
+      }
     }
     logToCSV(statsList.toArray(new String[statsList.size()]));
   }
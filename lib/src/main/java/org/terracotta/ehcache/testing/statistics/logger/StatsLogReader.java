@@ -0,0 +1,175 @@
+package org.terracotta.ehcache.testing.statistics.logger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the records of a {@link BinaryStatsLoggerImpl} log one at a time, so that logs of long runs can be
+ * processed without holding them in memory.
+ */
+public class StatsLogReader implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(StatsLogReader.class);
+
+  private final File file;
+  private final DataInputStream in;
+
+  public StatsLogReader(final File file) throws IOException {
+    this.file = file;
+    this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 256 * 1024));
+    try {
+      if (in.readInt() != BinaryStatsLoggerImpl.MAGIC) {
+        throw new IOException(file + " is not a stats log");
+      }
+      int version = in.readInt();
+      if (version != BinaryStatsLoggerImpl.VERSION) {
+        throw new IOException(file + " is a stats log of version " + version + ", only version "
+                              + BinaryStatsLoggerImpl.VERSION + " is supported");
+      }
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return the next record, null at the end of the log
+   */
+  public Record next() throws IOException {
+    byte[] body;
+    try {
+      body = new byte[in.readInt()];
+    } catch (EOFException e) {
+      return null;
+    }
+    try {
+      in.readFully(body);
+    } catch (EOFException e) {
+      logger.warn("Last record of {} is truncated, ignoring it", file);
+      return null;
+    }
+    return new Record(new DataInputStream(new ByteArrayInputStream(body)));
+  }
+
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Stats of the caches since the start of the run (or since the last phase), at the time of the record
+   */
+  public static class Record {
+    private final long time;
+    private final long heapUsed;
+    private final long heapCommitted;
+    private final StatsNode stats = new StatsNode();
+    private final Map<String, Footprint> footprints = new LinkedHashMap<String, Footprint>();
+
+    Record(final DataInputStream in) throws IOException {
+      time = in.readLong();
+      heapUsed = in.readLong();
+      heapCommitted = in.readLong();
+      for (int i = in.readInt(); i > 0; i--) {
+        String name = in.readUTF();
+        footprints.put(name, new Footprint(in.readLong(), in.readLong(), in.readLong(), in.readLong()));
+        stats.addReadStats(name, Stats.readFrom(in));
+        stats.addWriteStats(name, Stats.readFrom(in));
+        stats.addRemoveStats(name, Stats.readFrom(in));
+        stats.addBatchStats(name, Stats.readFrom(in));
+      }
+    }
+
+    /**
+     * @return time of the record, in millis
+     */
+    public long getTime() {
+      return time;
+    }
+
+    public long getHeapUsed() {
+      return heapUsed;
+    }
+
+    public long getHeapCommitted() {
+      return heapCommitted;
+    }
+
+    /**
+     * @return cumulative stats, not finalised
+     */
+    public StatsNode getStats() {
+      return stats;
+    }
+
+    public Map<String, Footprint> getFootprints() {
+      return Collections.unmodifiableMap(footprints);
+    }
+
+    /**
+     * @param earlier previous record of the log, null for the first one
+     * @return finalised stats of what was recorded between the two records
+     */
+    public StatsNode since(final Record earlier) {
+      StatsNode before = (earlier == null) ? new StatsNode() : earlier.stats;
+      StatsNode delta = new StatsNode();
+      for (String name : stats.getReadStatsList().keySet()) {
+        delta.addReadStats(name, since(stats.getReadStatsList(), before.getReadStatsList(), name));
+        delta.addWriteStats(name, since(stats.getWriteStatsList(), before.getWriteStatsList(), name));
+        delta.addRemoveStats(name, since(stats.getRemoveStatsList(), before.getRemoveStatsList(), name));
+        delta.addBatchStats(name, since(stats.getBatchStatsList(), before.getBatchStatsList(), name));
+      }
+      delta.finalise();
+      return delta;
+    }
+
+    private static Stats since(final Map<String, Stats> now, final Map<String, Stats> before, final String name) {
+      return now.get(name).since(before.get(name));
+    }
+  }
+
+  /**
+   * Size of a cache, sizes in Kb, -1 when unknown
+   */
+  public static class Footprint {
+    private final long entries;
+    private final long onHeap;
+    private final long offHeap;
+    private final long onDisk;
+
+    Footprint(final long entries, final long onHeap, final long offHeap, final long onDisk) {
+      this.entries = entries;
+      this.onHeap = onHeap;
+      this.offHeap = offHeap;
+      this.onDisk = onDisk;
+    }
+
+    public long getEntries() {
+      return entries;
+    }
+
+    public long getOnHeap() {
+      return onHeap;
+    }
+
+    public long getOffHeap() {
+      return offHeap;
+    }
+
+    public long getOnDisk() {
+      return onDisk;
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package org.terracotta.ehcache.testing.statistics.logger;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import org.terracotta.ehcache.testing.statistics.Histogram;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline reports of the logs of {@link BinaryStatsLoggerImpl} :
+ * <pre>
+ * java -cp cache-load-tester-lib-runner.jar org.terracotta.ehcache.testing.statistics.logger.StatsLogReport \
+ *     csv &lt;log&gt; [&lt;csv file&gt;]                        # stats of every interval
+ *     window &lt;log&gt; &lt;from&gt; &lt;to&gt;                         # stats between two offsets from the start, in seconds
+ *     compare &lt;baseline log&gt; &lt;log&gt; [&lt;from&gt; &lt;to&gt;]       # stats of two runs, side by side
+ * </pre>
+ * Windows are made of whole intervals : an interval belongs to a window when it ends in it.
+ */
+public class StatsLogReport {
+
+  private static final String[] OPS = { "READS", "WRITES", "REMOVES", "BATCHES" };
+  private static final String COMPARE_FORMAT = "%-15s %-8s %-10s %14s %14s %9s";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length >= 2 && "csv".equals(args[0])) {
+      Writer out = (args.length > 2) ? new BufferedWriter(new FileWriter(args[2])) : new OutputStreamWriter(System.out);
+      csv(new File(args[1]), out);
+      out.close();
+    } else if (args.length == 4 && "window".equals(args[0])) {
+      StatsNode window = window(new File(args[1]), Long.parseLong(args[2]), Long.parseLong(args[3]), TimeUnit.SECONDS);
+      System.out.println(describe(window));
+    } else if ((args.length == 3 || args.length == 5) && "compare".equals(args[0])) {
+      long from = (args.length == 5) ? Long.parseLong(args[3]) : 0;
+      long to = (args.length == 5) ? Long.parseLong(args[4]) : Long.MAX_VALUE;
+      System.out.println(compare(window(new File(args[1]), from, to, TimeUnit.SECONDS),
+          window(new File(args[2]), from, to, TimeUnit.SECONDS)));
+    } else {
+      System.err.println("Usage: StatsLogReport csv <log> [<csv file>]");
+      System.err.println("       StatsLogReport window <log> <from seconds> <to seconds>");
+      System.err.println("       StatsLogReport compare <baseline log> <log> [<from seconds> <to seconds>]");
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Writes the stats of every interval of the log, a row per cache and operation type
+   */
+  public static void csv(final File log, final Writer out) throws IOException {
+    DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    CSVWriter writer = new CSVWriter(out);
+    List<String> header = new ArrayList<String>();
+    for (String title : new String[] { "TimeStamp", "Cache", "Op", "Txn_Count", "TPS", "Avg_Lat", "Min_Lat", "Max_Lat" }) {
+      header.add(title);
+    }
+    for (double percentile : Histogram.REPORTED_PERCENTILES) {
+      header.add("P" + percentile);
+    }
+    for (String title : new String[] { "Exceptions", "Entries", "OnHeap(Kb)", "OffHeap(Kb)", "OnDisk(Kb)", "HeapUsed(MB)", "HeapCommitted(MB)" }) {
+      header.add(title);
+    }
+    writer.writeNext(header.toArray(new String[header.size()]));
+
+    StatsLogReader reader = new StatsLogReader(log);
+    try {
+      StatsLogReader.Record previous = null;
+      for (StatsLogReader.Record record = reader.next(); record != null; record = reader.next()) {
+        StatsNode interval = record.since(previous);
+        for (Map.Entry<String, StatsLogReader.Footprint> cache : record.getFootprints().entrySet()) {
+          Map<String, Stats> ops = ops(interval, cache.getKey());
+          for (Map.Entry<String, Stats> op : ops.entrySet()) {
+            List<String> row = new ArrayList<String>();
+            row.add(df.format(new Date(record.getTime())));
+            row.add(cache.getKey());
+            row.add(op.getKey());
+            Stats stats = op.getValue();
+            row.add("" + stats.getTxnCount());
+            row.add("" + stats.getThroughput());
+            row.add("" + stats.getAvgLatency());
+            row.add("" + stats.getMinLatency());
+            row.add("" + stats.getMaxLatency());
+            for (double percentile : Histogram.REPORTED_PERCENTILES) {
+              row.add("" + stats.getLatencyAtPercentile(percentile));
+            }
+            row.add("" + stats.getTotalExceptionCount());
+            StatsLogReader.Footprint footprint = cache.getValue();
+            row.add("" + footprint.getEntries());
+            row.add("" + footprint.getOnHeap());
+            row.add("" + footprint.getOffHeap());
+            row.add("" + footprint.getOnDisk());
+            row.add("" + record.getHeapUsed() / (1024 * 1024));
+            row.add("" + record.getHeapCommitted() / (1024 * 1024));
+            writer.writeNext(row.toArray(new String[row.size()]));
+          }
+        }
+        previous = record;
+      }
+    } finally {
+      reader.close();
+    }
+    writer.flush();
+  }
+
+  /**
+   * @param from offset from the first record of the log, excluded unless 0
+   * @param to   offset from the first record of the log, included
+   * @return finalised stats of the intervals ending in the window, null if there is none
+   */
+  public static StatsNode window(final File log, final long from, final long to, final TimeUnit unit) throws IOException {
+    long fromMillis = unit.toMillis(from);
+    long toMillis = (to == Long.MAX_VALUE) ? Long.MAX_VALUE : unit.toMillis(to);
+    StatsNode window = null;
+    StatsLogReader reader = new StatsLogReader(log);
+    try {
+      StatsLogReader.Record previous = null;
+      long start = -1;
+      for (StatsLogReader.Record record = reader.next(); record != null; record = reader.next()) {
+        if (start == -1) {
+          start = record.getTime();
+        }
+        long offset = record.getTime() - start;
+        if (offset > toMillis) {
+          break;
+        }
+        if (offset > fromMillis || fromMillis == 0) {
+          if (window == null) {
+            window = new StatsNode();
+          }
+          window.add(record.since(previous));
+        }
+        previous = record;
+      }
+    } finally {
+      reader.close();
+    }
+    if (window != null) {
+      window.finalise();
+    }
+    return window;
+  }
+
+  /**
+   * @return the stats of both windows side by side, per cache and operation type, then for all the caches
+   */
+  public static String compare(final StatsNode baseline, final StatsNode other) {
+    String newLine = System.getProperty("line.separator");
+    StringBuilder sb = new StringBuilder(String.format(COMPARE_FORMAT, "Cache", "Op", "Stat", "Baseline", "Run", "Change"));
+    if (baseline == null || other == null) {
+      return sb.append(newLine).append("Nothing to compare, a window is empty").toString();
+    }
+    for (String name : baseline.getReadStatsList().keySet()) {
+      if (!other.getReadStatsList().containsKey(name)) {
+        continue;
+      }
+      Map<String, Stats> before = ops(baseline, name);
+      Map<String, Stats> after = ops(other, name);
+      for (String op : OPS) {
+        compare(sb, newLine, name, op, before.get(op), after.get(op));
+      }
+    }
+    compare(sb, newLine, "All Caches", "READS", baseline.getOverallReadStats(), other.getOverallReadStats());
+    compare(sb, newLine, "All Caches", "WRITES", baseline.getOverallWriteStats(), other.getOverallWriteStats());
+    compare(sb, newLine, "All Caches", "REMOVES", baseline.getOverallRemoveStats(), other.getOverallRemoveStats());
+    compare(sb, newLine, "All Caches", "TOTAL", baseline.getOverallStats(), other.getOverallStats());
+    return sb.toString();
+  }
+
+  private static void compare(StringBuilder sb, String newLine, String cache, String op, Stats before, Stats after) {
+    if (before.getTxnCount() == 0 && after.getTxnCount() == 0) {
+      return;
+    }
+    row(sb, newLine, cache, op, "Txns", before.getTxnCount(), after.getTxnCount());
+    row(sb, newLine, cache, op, "TPS", before.getThroughput(), after.getThroughput());
+    row(sb, newLine, cache, op, "Avg", (long)before.getAvgLatency(), (long)after.getAvgLatency());
+    for (double percentile : Histogram.REPORTED_PERCENTILES) {
+      row(sb, newLine, cache, op, "P" + percentile, before.getLatencyAtPercentile(percentile), after.getLatencyAtPercentile(percentile));
+    }
+    row(sb, newLine, cache, op, "Exceptions", before.getTotalExceptionCount(), after.getTotalExceptionCount());
+  }
+
+  private static void row(StringBuilder sb, String newLine, String cache, String op, String stat, long before, long after) {
+    String change = (before == 0) ? "-" : String.format("%+.1f%%", (after - before) * 100.0 / before);
+    sb.append(newLine).append(String.format(COMPARE_FORMAT, cache, op, stat, before, after, change));
+  }
+
+  private static Map<String, Stats> ops(final StatsNode node, final String cache) {
+    Map<String, Stats> ops = new LinkedHashMap<String, Stats>();
+    ops.put(OPS[0], node.getReadStatsList().get(cache));
+    ops.put(OPS[1], node.getWriteStatsList().get(cache));
+    ops.put(OPS[2], node.getRemoveStatsList().get(cache));
+    ops.put(OPS[3], node.getBatchStatsList().get(cache));
+    return ops;
+  }
+
+  private static String describe(final StatsNode window) {
+    if (window == null) {
+      return "No interval in the window";
+    }
+    String newLine = System.getProperty("line.separator");
+    StringBuilder sb = new StringBuilder();
+    for (String name : window.getReadStatsList().keySet()) {
+      for (Map.Entry<String, Stats> op : ops(window, name).entrySet()) {
+        if (op.getValue().getTxnCount() > 0) {
+          sb.append(name).append(' ').append(op.getKey()).append(": ").append(op.getValue()).append(newLine)
+              .append("  ").append(op.getValue().getHisto()).append(newLine);
+        }
+      }
+    }
+    return sb.append("All Caches: ").append(window.getOverallStats()).append(newLine)
+        .append("  ").append(window.getOverallStats().getHisto()).toString();
+  }
+}
@@ -15,16 +15,79 @@
  */
 package org.terracotta.ehcache.testing.termination;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
 
+import java.lang.ref.WeakReference;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
+/**
+ * Met once the caches stop growing.
+ * <p>
+ * By default the sizes of the caches are read after each operation, and the condition is met by the first operation
+ * that didn't grow any of them : a load stops right when the caches are full, but reading the sizes may cost more
+ * than the operations, e.g. with clustered caches.
+ * <p>
+ * Sampled (<tt>filled.sample.interval.millis</tt> &gt; 0), the sizes are read by a background thread shared by the
+ * conditions created for the threads of a run, which publishes a filled flag once no cache grew by more than epsilon
+ * (<tt>filled.growth.epsilon</tt>, relative to its size) for <tt>filled.plateau.samples</tt> consecutive samples :
+ * checking the condition is a single volatile read, but the operations go on for these samples once the caches are
+ * full, evicting the first keys loaded. The sampler stops with the plateau, or once the conditions of its run are no
+ * longer referenced.
+ */
 public class FilledTerminationCondition implements TerminationCondition {
 
+  private static final Logger logger = LoggerFactory.getLogger(FilledTerminationCondition.class);
+
+  private final long intervalMillis;
+  private final int samples;
+  private final double epsilon;
+
+  private WeakReference<Plateau> current = new WeakReference<Plateau>(null);
+
+  /**
+   * Reads the sizes after each operation, unless <tt>filled.sample.interval.millis</tt> is set
+   */
+  public FilledTerminationCondition() {
+    this(Long.getLong("filled.sample.interval.millis", 0), Integer.getInteger("filled.plateau.samples", 3),
+        Double.parseDouble(System.getProperty("filled.growth.epsilon", "0")));
+  }
+
+  /**
+   * @param intervalMillis time between two samples of the sizes, 0 to read them after each operation
+   * @param samples        number of consecutive samples without growth for the caches to be filled
+   * @param epsilon        growth between two samples, relative to the size, below which a cache isn't growing
+   */
+  public FilledTerminationCondition(long intervalMillis, int samples, double epsilon) {
+    if (intervalMillis < 0 || samples < 1 || epsilon < 0) {
+      throw new IllegalArgumentException("Invalid plateau of " + samples + " samples every " + intervalMillis
+                                         + "ms, epsilon " + epsilon);
+    }
+    this.intervalMillis = intervalMillis;
+    this.samples = samples;
+    this.epsilon = epsilon;
+  }
+
+  /**
+   * Sampled, conditions created while a sampler is running share it, the first one created after a plateau starts
+   * a new one
+   */
   @Override
-  public Condition createCondition(GenericCacheWrapper... caches) {
-    return new FilledCondition(caches);
+  public synchronized Condition createCondition(GenericCacheWrapper... caches) {
+    if (intervalMillis == 0) {
+      return new FilledCondition(caches);
+    }
+    Plateau plateau = current.get();
+    if (plateau == null || plateau.filled) {
+      plateau = new Plateau();
+      current = new WeakReference<Plateau>(plateau);
+      Thread sampler = new Thread(new Sampler(caches, current), "filled-sampler");
+      sampler.setDaemon(true);
+      sampler.start();
+    }
+    return new SampledCondition(plateau);
   }
 
   static class FilledCondition implements Condition {
@@ -51,4 +114,66 @@ public class FilledTerminationCondition implements TerminationCondition {
     }
   }
 
+  static class Plateau {
+    volatile boolean filled;
+  }
+
+  static class SampledCondition implements Condition {
+    private final Plateau plateau;
+
+    SampledCondition(final Plateau plateau) {
+      this.plateau = plateau;
+    }
+
+    @Override
+    public boolean isMet() {
+      return plateau.filled;
+    }
+  }
+
+  private class Sampler implements Runnable {
+    private final GenericCacheWrapper[] caches;
+    private final WeakReference<Plateau> plateau;
+    private final long[] sizes;
+
+    Sampler(final GenericCacheWrapper[] caches, final WeakReference<Plateau> plateau) {
+      this.caches = caches;
+      this.plateau = plateau;
+      this.sizes = new long[caches.length];
+      for (int i = 0; i < caches.length; i++) {
+        sizes[i] = caches[i].getSize();
+      }
+    }
+
+    @Override
+    public void run() {
+      int flat = 0;
+      while (flat < samples) {
+        try {
+          Thread.sleep(intervalMillis);
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (plateau.get() == null) {
+          return;
+        }
+        flat = grew() ? 0 : flat + 1;
+      }
+      Plateau filled = plateau.get();
+      if (filled != null) {
+        logger.debug("-- Caches filled, sizes stable for {} samples", samples);
+        filled.filled = true;
+      }
+    }
+
+    private boolean grew() {
+      boolean grew = false;
+      for (int i = 0; i < caches.length; i++) {
+        long size = caches[i].getSize();
+        grew |= size - sizes[i] > epsilon * Math.max(sizes[i], 1);
+        sizes[i] = size;
+      }
+      return grew;
+    }
+  }
 }
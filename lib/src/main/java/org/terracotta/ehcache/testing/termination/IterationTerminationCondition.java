@@ -17,8 +17,6 @@ package org.terracotta.ehcache.testing.termination;
 
 import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 public class IterationTerminationCondition implements TerminationCondition {
 
   protected final long nbIterations;
@@ -32,17 +30,19 @@ public class IterationTerminationCondition implements TerminationCondition {
     return new IteratedCondition(caches);
   }
 
+  /**
+   * Counts the iterations of a single thread, each thread running nbIterations
+   */
   class IteratedCondition implements Condition {
 
-    private final AtomicLong counter;
+    private long counter;
 
     public IteratedCondition(final GenericCacheWrapper[] caches) {
-      counter = new AtomicLong();
     }
 
     @Override
     public boolean isMet() {
-      return counter.incrementAndGet() > nbIterations - 1;
+      return ++counter > nbIterations - 1;
     }
   }
 }
\ No newline at end of file
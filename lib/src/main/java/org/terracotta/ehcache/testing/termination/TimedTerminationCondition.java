@@ -20,6 +20,11 @@ import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
 import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Met once the given time elapsed since the condition was created, i.e. since the thread started its run.
+ * The clock is only read every few operations, as many as fit in about 100 microseconds and at most 256, so that
+ * checking the condition costs next to nothing at high throughput and a run stops within a bounded overshoot.
+ */
 public class TimedTerminationCondition implements TerminationCondition {
 
   private final long time;
@@ -33,25 +38,57 @@ public class TimedTerminationCondition implements TerminationCondition {
     return new TimedCondition(time);
   }
 
+  /**
+   * @param stop in {@link System#nanoTime()} reference
+   * @return a condition met once the stop time is reached, for a single thread
+   */
+  public static Condition until(long stop) {
+    return new TimedCondition(stop, false);
+  }
+
+  /**
+   * Not thread safe, created for each thread
+   */
   static class TimedCondition implements Condition {
 
+    private static final long CHECK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int MAX_STRIDE = 256;
+
     private final long end;
     private final boolean eternal;
+    private long lastCheck;
+    private int stride = 1;
+    private int countdown = 1;
 
     public TimedCondition(long time) {
-      this.eternal = (time < 0);
-      this.end = System.nanoTime() + time;
+      this(System.nanoTime() + time, time < 0);
+    }
+
+    private TimedCondition(long end, boolean eternal) {
+      this.eternal = eternal;
+      this.end = end;
+      this.lastCheck = System.nanoTime();
     }
 
     @Override
     public boolean isMet() {
       if (eternal)
         return false;
-      if (System.nanoTime() > end) {
+      if (--countdown > 0)
+        return false;
+      long now = System.nanoTime();
+      if (now - end > 0) {
         return true;
+      }
+      // read the clock about every CHECK_NANOS : more operations between two reads while they are fast
+      if (now - lastCheck < CHECK_NANOS) {
+        stride = Math.min(stride << 1, MAX_STRIDE);
       } else {
-        return false;
+        stride = Math.max(stride >> 1, 1);
       }
+      lastCheck = now;
+      countdown = stride;
+      return false;
     }
 
   }
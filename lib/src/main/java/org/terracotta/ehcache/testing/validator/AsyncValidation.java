@@ -0,0 +1,286 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.validator;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsReporter;
+
+/**
+ * Validation off the measured path : readers only queue a sample of what they read, in a bounded lock-free queue
+ * drained by validator threads with the validators of another {@link Validation}.
+ * <p>
+ * The lag between a read and its validation is recorded in validation stats reported by the {@link StatsReporter},
+ * along with the failed validations and the samples dropped because the validators fell behind, unless the readers
+ * wait for room in the queue, see {@link #blocking()}. Failed validations don't stop the accessors, see
+ * {@link #getFailureCount()}. A validator throwing a {@link RuntimeException} rather than an {@link AssertionError}
+ * counts as a failed validation too.
+ * <p>
+ * The value read is queued by reference, it must not be modified once returned by the cache. A
+ * {@link VersionedValidation} can't be asynchronous, its check depends on the time of the read.
+ */
+public class AsyncValidation implements Validation {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncValidation.class);
+  private static final String DROPPED = "dropped samples";
+  private static final long IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final Validation validation;
+  private final int period;
+  private final Stats stats = new Stats();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicInteger draining = new AtomicInteger();
+  private String name = "validation";
+  private int threads = 1;
+  private int capacity = 8192;
+  private boolean blocking = false;
+
+  private int open;
+  private SampleQueue queue;
+  private Thread[] validators;
+  private volatile boolean running;
+
+  /**
+   * @param validation   creates the validators of the validator threads
+   * @param samplingRate share of the reads to validate, e.g. 0.01 for one read in a hundred
+   */
+  public AsyncValidation(final Validation validation, final double samplingRate) {
+    if (validation instanceof VersionedValidation || validation instanceof AsyncValidation) {
+      throw new IllegalArgumentException(validation + " can't be asynchronous");
+    }
+    if (!(samplingRate > 0 && samplingRate <= 1)) {
+      throw new IllegalArgumentException("Sampling rate must be in ]0, 1], was " + samplingRate);
+    }
+    this.validation = validation;
+    this.period = (int)Math.round(1 / samplingRate);
+  }
+
+  /**
+   * @param name of the validation stats
+   * @return this
+   */
+  public synchronized AsyncValidation named(final String name) {
+    checkNotStarted();
+    this.name = name;
+    return this;
+  }
+
+  /**
+   * @param threads number of validator threads, 1 by default
+   * @return this
+   */
+  public synchronized AsyncValidation threads(final int threads) {
+    checkNotStarted();
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of validator threads must be positive, was " + threads);
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param capacity number of samples waiting for a validator, 8192 by default
+   * @return this
+   */
+  public synchronized AsyncValidation capacity(final int capacity) {
+    checkNotStarted();
+    this.capacity = capacity;
+    return this;
+  }
+
+  /**
+   * Makes the readers wait for room in the queue when the validators fall behind, instead of dropping samples
+   *
+   * @return this
+   */
+  public synchronized AsyncValidation blocking() {
+    checkNotStarted();
+    this.blocking = true;
+    return this;
+  }
+
+  private void checkNotStarted() {
+    if (open > 0) {
+      throw new IllegalStateException("AsyncValidation " + name + " already started");
+    }
+  }
+
+  /**
+   * @return stats of the validations, their latency being their lag behind the reads
+   */
+  public Stats getStats() {
+    return stats;
+  }
+
+  public long getFailureCount() {
+    return failures.get();
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Starts the validator threads with the first validator, they stop once every validator is closed
+   */
+  public synchronized AsyncValidator createValidator(ObjectGenerator valueGenerator) {
+    // the delegate rejects the values it can't validate here, on the reader thread, not on the validator threads
+    validation.createValidator(valueGenerator);
+    if (open++ == 0) {
+      start();
+    }
+    return new AsyncValidator(valueGenerator);
+  }
+
+  private void start() {
+    queue = new SampleQueue(capacity);
+    running = true;
+    StatsReporter.getInstance().registerValidation(name, stats);
+    validators = new Thread[threads];
+    draining.set(threads);
+    for (int i = 0; i < threads; i++) {
+      validators[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            drain();
+          } finally {
+            draining.decrementAndGet();
+          }
+        }
+      }, "async-" + name + "-" + i);
+      validators[i].setDaemon(true);
+      validators[i].start();
+    }
+  }
+
+  private synchronized void release() {
+    if (--open > 0) {
+      return;
+    }
+    running = false;
+    boolean interrupted = false;
+    for (Thread validator : validators) {
+      while (true) {
+        try {
+          validator.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failures.get() > 0 || dropped.get() > 0) {
+      logger.warn("-- {} : {} asynchronous validations failed, {} samples dropped", new Object[] { name, failures.get(), dropped.get() });
+    }
+  }
+
+  /**
+   * Validates the samples till the validation is released and the queue empty
+   */
+  private void drain() {
+    Map<ObjectGenerator, Validator> validatorsByGenerator = new IdentityHashMap<ObjectGenerator, Validator>();
+    SampleQueue.Sample sample = new SampleQueue.Sample();
+    while (true) {
+      boolean stopping = !running;
+      if (!queue.poll(sample)) {
+        if (stopping) {
+          return;
+        }
+        LockSupport.parkNanos(IDLE_NANOS);
+        continue;
+      }
+      try {
+        Validator validator = validatorsByGenerator.get(sample.generator);
+        if (validator == null) {
+          validator = validation.createValidator(sample.generator);
+          validatorsByGenerator.put(sample.generator, validator);
+        }
+        validator.validate(sample.seed, sample.value);
+        stats.add(System.nanoTime() - sample.time);
+      } catch (AssertionError e) {
+        failed(sample, e);
+      } catch (RuntimeException e) {
+        // e.g. a value of an unexpected type, the validator thread must keep draining
+        failed(sample, e);
+      }
+      sample.value = null;
+    }
+  }
+
+  private void failed(final SampleQueue.Sample sample, final Throwable failure) {
+    stats.addFailure(System.nanoTime() - sample.time, failure);
+    if (failures.getAndIncrement() == 0) {
+      logger.error("-- " + name + " : asynchronous validation failed", failure);
+    }
+  }
+
+  /**
+   * Validator of a reader thread, queuing one read in samplingRate^-1. Not thread safe.
+   */
+  public class AsyncValidator implements Validator {
+
+    private final ObjectGenerator valueGenerator;
+    private int countdown = period;
+    private boolean closed = false;
+
+    private AsyncValidator(final ObjectGenerator valueGenerator) {
+      this.valueGenerator = valueGenerator;
+    }
+
+    public void validate(long seed, Object value) {
+      if (--countdown > 0) {
+        return;
+      }
+      countdown = period;
+      long now = System.nanoTime();
+      while (!queue.offer(seed, value, valueGenerator, now)) {
+        if (!blocking) {
+          dropped.incrementAndGet();
+          stats.addFailure(0, DROPPED);
+          return;
+        }
+        if (draining.get() == 0) {
+          throw new IllegalStateException("No validator thread left to drain the samples of " + name);
+        }
+        Thread.yield();
+      }
+    }
+
+    /**
+     * Ends the reads of the thread, the last validator closed waits for the queued samples to be validated
+     */
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release();
+      }
+    }
+  }
+}
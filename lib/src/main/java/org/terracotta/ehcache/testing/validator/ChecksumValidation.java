@@ -0,0 +1,65 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.validator;
+
+import java.util.zip.CRC32;
+
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+
+/**
+ * Validation of the values of a {@link ChecksumGenerator} : the seed in the header must be the one of the key,
+ * and the checksum the one of the payload. Nothing is generated, a value is checked in a single pass.
+ * Pooled values ({@link org.terracotta.ehcache.testing.objectgenerator.ValuePool}) carry the seed of their index
+ * in the pool, not the one of the key, so they can't be validated.
+ */
+public class ChecksumValidation implements Validation {
+
+  public Validator createValidator(ObjectGenerator valueGenerator) {
+    if (!(valueGenerator instanceof ChecksumGenerator)) {
+      throw new IllegalArgumentException("Checksum validation needs checksum values, not " + valueGenerator);
+    }
+    return new ChecksumValidator();
+  }
+
+  /**
+   * Not thread safe, like the validators of an accessor, created for each thread
+   */
+  static class ChecksumValidator implements Validator {
+
+    private final CRC32 crc = new CRC32();
+
+    public void validate(long seed, Object value) {
+      if (value == null) {
+        throw new AssertionError("Value to be validated is null. (seed=[" + seed + "])");
+      }
+      if (!(value instanceof byte[]) || !ChecksumGenerator.hasHeader((byte[])value)) {
+        throw new AssertionError("Value to be validated has no checksum header. (seed=[" + seed + "])");
+      }
+      byte[] bytes = (byte[])value;
+      if (ChecksumGenerator.seedOf(bytes) != seed) {
+        throw new AssertionError("Value to be validated belongs to another key. " +
+                                 "(seed=[" + seed + "], value seed=[" + ChecksumGenerator.seedOf(bytes) + "])");
+      }
+      crc.reset();
+      crc.update(bytes, ChecksumGenerator.HEADER_SIZE, bytes.length - ChecksumGenerator.HEADER_SIZE);
+      if ((int)crc.getValue() != ChecksumGenerator.checksumOf(bytes)) {
+        throw new AssertionError("Value to be validated is corrupted, its checksum doesn't match its payload. " +
+                                 "(seed=[" + seed + "], version=[" + ChecksumGenerator.versionOf(bytes) + "])");
+      }
+    }
+  }
+}
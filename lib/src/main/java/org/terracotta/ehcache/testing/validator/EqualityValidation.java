@@ -16,6 +16,7 @@
 package org.terracotta.ehcache.testing.validator;
 
 import java.lang.reflect.Array;
+import java.util.Arrays;
 
 import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
 
@@ -39,6 +40,10 @@ public class EqualityValidation implements Validation {
           throw new AssertionError("Value to be validated is null and validation value is not. " +
                                    "(seed=[" + seed + "], validation value=[" + expected.toString() + "])");
         }
+      } else if (value instanceof byte[] && expected instanceof byte[]) {
+        if (!Arrays.equals((byte[])expected, (byte[])value)) {
+          throw new AssertionError("Value to be validated is an array and is not equal to the validation value. (seed=[" + seed + "])");
+        }
       } else if (value.getClass().isArray() && expected.getClass().isArray()) {
         if (Array.getLength(expected) != Array.getLength(value)) {
           throw new AssertionError("Value to be validated is an array and is not of the same size of the validation value.");
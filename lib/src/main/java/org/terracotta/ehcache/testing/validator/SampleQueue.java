@@ -0,0 +1,125 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.validator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+
+/**
+ * Bounded lock-free queue of the reads sampled by an {@link AsyncValidation}, for many readers and many validators :
+ * a ring of slots, each with a sequence telling whether it is free for the offer or filled for the poll of a given
+ * position. Offering to a full queue fails instead of waiting.
+ */
+final class SampleQueue {
+
+  private final int mask;
+  private final AtomicLongArray sequences;
+  private final long[] seeds;
+  private final Object[] values;
+  private final ObjectGenerator[] generators;
+  private final long[] times;
+  private final AtomicLong offers = new AtomicLong();
+  private final AtomicLong polls = new AtomicLong();
+
+  /**
+   * @param capacity rounded up to a power of 2
+   */
+  SampleQueue(final int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and " + (1 << 30) + ", was " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.mask = size - 1;
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    this.seeds = new long[size];
+    this.values = new Object[size];
+    this.generators = new ObjectGenerator[size];
+    this.times = new long[size];
+  }
+
+  /**
+   * @return false if the queue is full
+   */
+  boolean offer(final long seed, final Object value, final ObjectGenerator generator, final long time) {
+    long position = offers.get();
+    while (true) {
+      int slot = (int)position & mask;
+      long available = sequences.get(slot) - position;
+      if (available == 0) {
+        if (offers.compareAndSet(position, position + 1)) {
+          seeds[slot] = seed;
+          values[slot] = value;
+          generators[slot] = generator;
+          times[slot] = time;
+          sequences.lazySet(slot, position + 1);
+          return true;
+        }
+      } else if (available < 0) {
+        return false;
+      }
+      position = offers.get();
+    }
+  }
+
+  /**
+   * @param sample filled with the oldest sample
+   * @return false if the queue is empty
+   */
+  boolean poll(final Sample sample) {
+    long position = polls.get();
+    while (true) {
+      int slot = (int)position & mask;
+      long filled = sequences.get(slot) - (position + 1);
+      if (filled == 0) {
+        if (polls.compareAndSet(position, position + 1)) {
+          sample.seed = seeds[slot];
+          sample.value = values[slot];
+          sample.generator = generators[slot];
+          sample.time = times[slot];
+          values[slot] = null;
+          generators[slot] = null;
+          sequences.lazySet(slot, position + mask + 1);
+          return true;
+        }
+      } else if (filled < 0) {
+        return false;
+      }
+      position = polls.get();
+    }
+  }
+
+  boolean isEmpty() {
+    return polls.get() >= offers.get();
+  }
+
+  /**
+   * A read to validate, reused by the validator polling it
+   */
+  static final class Sample {
+    long seed;
+    Object value;
+    ObjectGenerator generator;
+    long time;
+  }
+}
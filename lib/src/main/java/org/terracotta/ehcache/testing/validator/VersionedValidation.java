@@ -0,0 +1,191 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.validator;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+
+/**
+ * Validation of the values of a {@link ChecksumGenerator} updated concurrently : each write stamps its value with the
+ * next version of the key, and a read must return a version at least as recent as the last write committed before it
+ * started, which catches lost updates and removed values coming back on top of what {@link ChecksumValidation} checks.
+ * <p>
+ * The versions of the keys in [0, keyspace) are kept in a table indexed by seed. The writes of a key are serialized by
+ * a striped lock held for the duration of the write, so that the versions are in the order the cache applied them,
+ * reads take no lock. Keys outside of the keyspace are only checked against their checksum. Null values aren't
+ * checked against versions, the cache may have evicted them.
+ * <p>
+ * Only the single key operations write versions, accessors reject batch operations with this validation, and values
+ * loaded by a {@link org.terracotta.ehcache.testing.driver.CacheLoader} have version 0 : load the keys before
+ * accessing them.
+ */
+public class VersionedValidation implements Validation {
+
+  private static final int MAX_STRIPES = 1024;
+
+  private final AtomicIntegerArray committed;
+  private final AtomicIntegerArray latest;
+  private final ReentrantLock[] locks;
+
+  /**
+   * @param keyspace number of keys whose versions are tracked, seeds from 0 to keyspace - 1
+   */
+  public VersionedValidation(final int keyspace) {
+    if (keyspace < 1) {
+      throw new IllegalArgumentException("Keyspace must be positive, was " + keyspace);
+    }
+    this.committed = new AtomicIntegerArray(keyspace);
+    this.latest = new AtomicIntegerArray(keyspace);
+    int stripes = 1;
+    while (stripes < keyspace && stripes < MAX_STRIPES) {
+      stripes <<= 1;
+    }
+    this.locks = new ReentrantLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  public VersionedValidator createValidator(ObjectGenerator valueGenerator) {
+    if (!(valueGenerator instanceof ChecksumGenerator)) {
+      throw new IllegalArgumentException("Versioned validation needs checksum values, not " + valueGenerator);
+    }
+    return new VersionedValidator((ChecksumGenerator)valueGenerator);
+  }
+
+  /**
+   * @return the version of the last committed write of the seed, 0 if never written or not tracked
+   */
+  public int committedVersion(long seed) {
+    return isTracked(seed) ? committed.get((int)seed) : 0;
+  }
+
+  private boolean isTracked(final long seed) {
+    return seed >= 0 && seed < committed.length();
+  }
+
+  /**
+   * Validator of a thread, also used by the operations to stamp the versions of their writes :
+   * a write goes through {@link #beginWrite(long)}, {@link #beginRemove(long)} or {@link #beginRemoveKey(long)},
+   * and always ends with
+   * {@link #endWrite(long, boolean)}. Not thread safe.
+   */
+  public class VersionedValidator extends ChecksumValidation.ChecksumValidator {
+
+    private final ChecksumGenerator generator;
+    private long readSeed = -1;
+    private int readFloor;
+    private int pending;
+
+    private VersionedValidator(final ChecksumGenerator generator) {
+      this.generator = generator;
+    }
+
+    /**
+     * Records the last committed version of the seed, before reading it
+     */
+    public void beforeRead(long seed) {
+      if (isTracked(seed)) {
+        readSeed = seed;
+        readFloor = committed.get((int)seed);
+      }
+    }
+
+    /**
+     * Locks the seed and reserves its next version
+     *
+     * @return the value of the next version
+     */
+    public Object beginWrite(long seed) {
+      if (!isTracked(seed)) {
+        return generator.generate(seed);
+      }
+      reserve(seed);
+      return generator.generate(seed, pending);
+    }
+
+    /**
+     * Locks the seed and reserves the version of its removal
+     *
+     * @return the value of the current version, for conditional removes
+     */
+    public Object beginRemove(long seed) {
+      if (!isTracked(seed)) {
+        return generator.generate(seed);
+      }
+      reserve(seed);
+      return currentValue(seed);
+    }
+
+    /**
+     * Locks the seed and reserves the version of its removal, for removes that don't need the current value
+     */
+    public void beginRemoveKey(long seed) {
+      if (isTracked(seed)) {
+        reserve(seed);
+      }
+    }
+
+    private void reserve(final long seed) {
+      locks[(int)seed & (locks.length - 1)].lock();
+      pending = latest.incrementAndGet((int)seed);
+    }
+
+    /**
+     * @return the value of the last committed version of the seed, for conditional writes
+     */
+    public Object currentValue(long seed) {
+      return isTracked(seed) ? generator.generate(seed, committed.get((int)seed)) : generator.generate(seed);
+    }
+
+    /**
+     * Commits the reserved version if the cache applied the write, and unlocks the seed
+     *
+     * @param applied false if the write failed or its condition didn't hold
+     */
+    public void endWrite(long seed, boolean applied) {
+      if (!isTracked(seed)) {
+        return;
+      }
+      if (applied) {
+        committed.set((int)seed, pending);
+      }
+      locks[(int)seed & (locks.length - 1)].unlock();
+    }
+
+    @Override
+    public void validate(long seed, Object value) {
+      boolean afterRead = readSeed == seed;
+      readSeed = -1;
+      super.validate(seed, value);
+      if (!isTracked(seed)) {
+        return;
+      }
+      int version = ChecksumGenerator.versionOf((byte[])value);
+      if (afterRead && version < readFloor) {
+        throw new AssertionError("Value to be validated is stale, a more recent write was committed before the read. " +
+                                 "(seed=[" + seed + "], version=[" + version + "], committed=[" + readFloor + "])");
+      }
+      if (version > latest.get((int)seed)) {
+        throw new AssertionError("Value to be validated has a version that was never written. " +
+                                 "(seed=[" + seed + "], version=[" + version + "], latest=[" + latest.get((int)seed) + "])");
+      }
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads (Java 21+) through reflection, the load tester being built for older JVMs.
+ */
+public class VirtualThreads {
+
+  private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookup("java.util.concurrent.Executors", "newVirtualThreadPerTaskExecutor");
+  private static final Method IS_VIRTUAL = lookup("java.lang.Thread", "isVirtual");
+
+  private VirtualThreads() {
+  }
+
+  private static Method lookup(final String className, final String methodName) {
+    try {
+      return Class.forName(className).getMethod(methodName);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return true if the JVM supports virtual threads
+   */
+  public static boolean isSupported() {
+    return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * @return an executor starting a new virtual thread for each task
+   * @throws UnsupportedOperationException if the JVM does not support virtual threads
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor() {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads are not supported by this JVM (" + System.getProperty("java.version") + ")");
+    }
+    return (ExecutorService)invoke(NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR, null);
+  }
+
+  public static boolean isVirtual(final Thread thread) {
+    return IS_VIRTUAL != null && (Boolean)invoke(IS_VIRTUAL, thread);
+  }
+
+  private static Object invoke(final Method method, final Object target) {
+    try {
+      return method.invoke(target);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
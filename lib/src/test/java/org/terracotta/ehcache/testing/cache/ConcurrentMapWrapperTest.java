@@ -0,0 +1,63 @@
+package org.terracotta.ehcache.testing.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.driver.CacheAccessor;
+import org.terracotta.ehcache.testing.driver.CacheLoader;
+import org.terracotta.ehcache.testing.driver.ParallelDriver;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.Map;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.nullCache;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.putIfAbsent;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.remove;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.update;
+
+public class ConcurrentMapWrapperTest {
+
+  @Test
+  public void testLoadAndAccessConcurrentMap() {
+    GenericCacheWrapper cache = concurrentMap("map");
+    CacheLoader.load(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .iterate(1000)
+        .run();
+    Assert.assertEquals(1000, cache.getSize());
+    Assert.assertEquals(1000, ((Map)cache.getCache()).size());
+
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .atRandom(Distribution.GAUSSIAN, 0, 1000, 100)
+        .doOps(update(0.1), remove(0.05), putIfAbsent(0.05))
+        .validate(Validation.Mode.UPDATE)
+        .iterate(10000);
+    ParallelDriver.inParallel(4, accessor).run();
+    Assert.assertTrue(cache.getSize() <= 1000);
+  }
+
+  @Test
+  public void testNullCacheStoresNothing() {
+    GenericCacheWrapper cache = nullCache("null");
+    CacheLoader.load(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .iterate(1000)
+        .run();
+    Assert.assertEquals(0, cache.getSize());
+
+    CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .validate(Validation.Mode.UPDATE)
+        .iterate(1000)
+        .run();
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertNull(((Map)cache.getCache()).get("1"));
+  }
+}
@@ -0,0 +1,71 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ArrivalScheduleTest {
+
+  @Test
+  public void testSlotsAreSpreadAcrossThreads() throws InterruptedException {
+    final ArrivalSchedule schedule = new ArrivalSchedule(1000);
+    final CopyOnWriteArrayList<Long> intendedStarts = new CopyOnWriteArrayList<Long>();
+
+    Thread[] threads = new Thread[2];
+    long begin = System.nanoTime();
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 100; j++) {
+            intendedStarts.add(schedule.awaitNext());
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+
+    Assert.assertTrue("200 ops at 1000/s took " + elapsed + "ns", elapsed >= TimeUnit.MILLISECONDS.toNanos(199));
+
+    Long[] sorted = intendedStarts.toArray(new Long[intendedStarts.size()]);
+    Arrays.sort(sorted);
+    Assert.assertEquals(200, sorted.length);
+    for (int i = 1; i < sorted.length; i++) {
+      Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), sorted[i] - sorted[i - 1], 1);
+    }
+  }
+
+  @Test
+  public void testLateSlotsAreNotSkipped() throws InterruptedException {
+    ArrivalSchedule schedule = new ArrivalSchedule(100);
+    long first = schedule.awaitNext();
+    // simulates an operation stalled for 100ms, i.e. 10 slots
+    TimeUnit.MILLISECONDS.sleep(100);
+    long second = schedule.awaitNext();
+    Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(10), second - first);
+    Assert.assertTrue(System.nanoTime() - second >= TimeUnit.MILLISECONDS.toNanos(85));
+  }
+
+  @Test
+  public void testReset() throws InterruptedException {
+    ArrivalSchedule schedule = new ArrivalSchedule(10);
+    schedule.awaitNext();
+    schedule.reset();
+    long before = System.nanoTime();
+    long intended = schedule.awaitNext();
+    Assert.assertTrue(intended >= before);
+    Assert.assertTrue(System.nanoTime() - before < TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRateMustBePositive() {
+    new ArrivalSchedule(0);
+  }
+}
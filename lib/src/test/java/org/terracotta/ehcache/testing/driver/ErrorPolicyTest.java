@@ -0,0 +1,110 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+
+public class ErrorPolicyTest {
+
+  @Test
+  public void testFailuresAreRecordedAndTheRunGoesOn() {
+    GenericCacheWrapper cache = concurrentMap("failing");
+    ErrorPolicy policy = ErrorPolicy.continueOnError();
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(failingPut(0.5))
+        .onError(policy)
+        .enableStatistics(true)
+        .iterate(1000);
+    accessor.run();
+
+    Stats writes = accessor.getFinalStatsNode().getWriteStatsList().get("failing");
+    Stats failures = writes.getFailures().get(IllegalStateException.class.getName());
+    Assert.assertEquals(policy.getFailures(), failures.getTxnCount());
+    Assert.assertEquals(policy.getFailures(), writes.getTotalExceptionCount());
+    Assert.assertEquals(0, writes.getTxnCount());
+    Assert.assertEquals(1000, policy.getFailures() + accessor.getFinalStatsNode().getReadStatsList().get("failing").getTxnCount());
+    Assert.assertTrue(policy.getFailures() > 0);
+  }
+
+  @Test
+  public void testRunIsAbortedAfterTheThreshold() {
+    GenericCacheWrapper cache = concurrentMap("aborted");
+    ErrorPolicy policy = ErrorPolicy.abortAfter(10);
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(failingPut(0.5))
+        .onError(policy)
+        .iterate(100000);
+    try {
+      accessor.run();
+      Assert.fail("Expected the run to be aborted");
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("failed put", e.getMessage());
+    }
+    Assert.assertEquals(10, policy.getFailures());
+  }
+
+  @Test
+  public void testUnrecordedExceptionsAbortTheRun() {
+    GenericCacheWrapper cache = concurrentMap("buggy");
+    ErrorPolicy policy = ErrorPolicy.continueOnError();
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(buggyPut(0.5))
+        .onError(policy)
+        .iterate(100000);
+    try {
+      accessor.run();
+      Assert.fail("Expected the run to be aborted");
+    } catch (NullPointerException e) {
+      Assert.assertEquals("buggy put", e.getMessage());
+    }
+    Assert.assertEquals(0, policy.getFailures());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPolicyIsChosenOnce() {
+    CacheAccessor.access(concurrentMap("twice")).onError(ErrorPolicy.abortOnError()).onError(ErrorPolicy.continueOnError());
+  }
+
+  private static CacheOperation buggyPut(final double ratio) {
+    return new CacheOperation(ratio) {
+      @Override
+      public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        throw new NullPointerException("buggy put");
+      }
+
+      @Override
+      public String getName() {
+        return "BUGGY_PUT";
+      }
+    };
+  }
+
+  private static CacheOperation failingPut(final double ratio) {
+    return new CacheOperation(ratio) {
+      @Override
+      public Object exec(final GenericCacheWrapper cache, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        long start = (cache.isStatisticsEnabled()) ? startTime() : 0;
+        throw failed(cache, cache.getWriteStats(), start, new IllegalStateException("failed put"));
+      }
+
+      @Override
+      public String getName() {
+        return "FAILING_PUT";
+      }
+    };
+  }
+}
@@ -0,0 +1,37 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+
+public class MultipleCacheAccessorTest {
+
+  @Test
+  public void testWeightedCachesShareTheRate() {
+    GenericCacheWrapper heavy = concurrentMap("heavy");
+    GenericCacheWrapper light = concurrentMap("light");
+    heavy.setStatisticsEnabled(true);
+    light.setStatisticsEnabled(true);
+    CacheAccessor accessor = CacheAccessor.access(heavy).withWeight(9)
+        .andAccess(light).withWeight(1)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .atRate(1000)
+        .stopAfter(1, TimeUnit.SECONDS);
+    accessor.run();
+
+    long heavyOps = heavy.getReadStats().getTxnCount();
+    long lightOps = light.getReadStats().getTxnCount();
+    Assert.assertEquals(1000, heavyOps + lightOps, 100);
+    Assert.assertEquals(100, lightOps, 50);
+    // each cache only gets its share of the timeline, so neither falls behind it
+    Assert.assertTrue(light.getReadStats().getLatencyAtPercentile(99) < TimeUnit.MILLISECONDS.toNanos(20));
+    Assert.assertTrue(heavy.getReadStats().getLatencyAtPercentile(99) < TimeUnit.MILLISECONDS.toNanos(20));
+  }
+}
@@ -0,0 +1,71 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PacerTest {
+
+  @Test
+  public void testZeroPauseDoesNotWait() {
+    Pacer pacer = new Pacer();
+    long start = System.nanoTime();
+    for (int i = 0; i < 100000; i++) {
+      pacer.pause(0);
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    Assert.assertEquals(0, pacer.getPauses());
+    Assert.assertEquals(0.0, pacer.getError(), 0.0);
+  }
+
+  @Test
+  public void testShortPausesMatchRequestedTime() {
+    Pacer pacer = new Pacer();
+    long pause = TimeUnit.MICROSECONDS.toNanos(200);
+    int pauses = 2000;
+    long start = System.nanoTime();
+    for (int i = 0; i < pauses; i++) {
+      pacer.pause(pause);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    Assert.assertEquals(pauses, pacer.getPauses());
+    Assert.assertEquals(pauses * pause, pacer.getRequestedNanos());
+    Assert.assertEquals(pauses * pause, elapsed, pauses * pause * 0.05);
+    Assert.assertEquals(0.0, pacer.getError(), 0.05);
+
+    pacer.reset();
+    Assert.assertEquals(0, pacer.getPauses());
+  }
+
+  @Test
+  public void testResetStartsOverOnEveryThread() throws InterruptedException {
+    final Pacer pacer = new Pacer();
+    final CountDownLatch reset = new CountDownLatch(1);
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        pacer.pause(TimeUnit.MICROSECONDS.toNanos(100));
+        try {
+          reset.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        pacer.pause(TimeUnit.MILLISECONDS.toNanos(5));
+      }
+    };
+    thread.start();
+    while (pacer.getPauses() == 0) {
+      Thread.yield();
+    }
+    pacer.reset();
+    Assert.assertEquals(0, pacer.getPauses());
+    reset.countDown();
+    thread.join();
+
+    Assert.assertEquals(1, pacer.getPauses());
+    Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), pacer.getRequestedNanos());
+  }
+}
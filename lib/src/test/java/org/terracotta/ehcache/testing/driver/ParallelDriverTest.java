@@ -1,9 +1,17 @@
 package org.terracotta.ehcache.testing.driver;
 
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Test;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -14,6 +22,11 @@ import static org.mockito.Mockito.verify;
 
 public class ParallelDriverTest {
 
+  @After
+  public void clearGracePeriod() {
+    System.clearProperty("driver.grace.period.millis");
+  }
+
   @Test
   public void testOneCacheAccessorIsSuccessful() {
     CacheAccessor accessor = mock(CacheAccessor.class);
@@ -78,5 +91,91 @@ public class ParallelDriverTest {
     verify(individualCacheAccessor2, times(2)).run();
   }
 
+  @Test
+  public void testOneCacheAccessorOnVirtualThreadsIsSuccessful() {
+    CacheAccessor accessor = mock(CacheAccessor.class);
+    ParallelDriver.onVirtualThreads(100, accessor).run();
+    verify(accessor, times(100)).run();
+  }
+
+  @Test
+  public void testStatsRecordedOnVirtualThreads() {
+    final Stats stats = new Stats();
+    CacheDriver driver = new CacheDriver() {
+      public void run() {
+        for (int i = 0; i < 100; i++) {
+          stats.add(1000);
+        }
+      }
+
+      public StatsNode getFinalStatsNode() {
+        return null;
+      }
+    };
+    ParallelDriver.onVirtualThreads(200, driver).run();
+    Assert.assertEquals(20000, stats.getTxnCount());
+  }
+
+  @Test
+  public void testFailureCancelsTheOtherDriversAndKeepsTheirStats() {
+    System.setProperty("driver.grace.period.millis", "200");
+    CacheAccessor accessor = CacheAccessor.access(concurrentMap("cancelled"))
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .enableStatistics(true)
+        .stopAfter(1, TimeUnit.HOURS);
+    long start = System.nanoTime();
+    try {
+      new ParallelDriver(Arrays.asList(failing(300), accessor, accessor)).run();
+      Assert.fail("Expected the failure to be rethrown");
+    } catch (ParallelDriver.PooledException e) {
+      Assert.assertEquals(1, e.getCauses().size());
+      Assert.assertEquals("failed driver", e.getCause().getMessage());
+      Assert.assertTrue(e.getPartialStats().getReadStatsList().get("cancelled").getTxnCount() > 0);
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+  }
+
+  @Test
+  public void testDriversIgnoringTheCancellationAreInterrupted() {
+    System.setProperty("driver.grace.period.millis", "100");
+    CacheDriver sleeper = new CacheDriver() {
+      public void run() {
+        try {
+          TimeUnit.HOURS.sleep(1);
+        } catch (InterruptedException e) {
+          // interrupted by the driver
+        }
+      }
 
+      public StatsNode getFinalStatsNode() {
+        return null;
+      }
+    };
+    long start = System.nanoTime();
+    try {
+      new ParallelDriver(Arrays.asList(failing(0), sleeper)).run();
+      Assert.fail("Expected the failure to be rethrown");
+    } catch (ParallelDriver.PooledException e) {
+      Assert.assertNull(e.getPartialStats());
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+  }
+
+  private static CacheDriver failing(final long afterMillis) {
+    return new CacheDriver() {
+      public void run() {
+        try {
+          Thread.sleep(afterMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("failed driver");
+      }
+
+      public StatsNode getFinalStatsNode() {
+        return null;
+      }
+    };
+  }
 }
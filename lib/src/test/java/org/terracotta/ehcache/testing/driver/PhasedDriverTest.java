@@ -0,0 +1,93 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.get;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.put;
+
+public class PhasedDriverTest {
+
+  @Test
+  public void testEachPhaseGetsItsOwnStats() {
+    GenericCacheWrapper cache = concurrentMap("phased");
+    cache.setStatisticsEnabled(true);
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .atRandom(Distribution.GAUSSIAN, 0, 1000, 100)
+        .doOps(get(0.8), put(0.2))
+        .addThinkTime(2000);
+
+    PhasedDriver driver = PhasedDriver.phased(4, accessor)
+        .warmup(300, TimeUnit.MILLISECONDS)
+        .rampUp(300, TimeUnit.MILLISECONDS)
+        .steady(500, TimeUnit.MILLISECONDS)
+        .rampDown(300, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    driver.run();
+    long elapsed = System.nanoTime() - start;
+
+    Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(1400));
+    Map<PhasedDriver.Phase, StatsNode> phases = driver.getPhaseStats();
+    Assert.assertEquals(4, phases.size());
+    for (StatsNode node : phases.values()) {
+      Assert.assertTrue(node.getOverallStats().getTxnCount() > 0);
+    }
+    Assert.assertSame(phases.get(PhasedDriver.Phase.STEADY), driver.getFinalStatsNode());
+
+    // a single thread runs during warmup, all of them during steady state
+    double warmupTps = phases.get(PhasedDriver.Phase.WARMUP).getOverallStats().getThroughput();
+    double steadyTps = phases.get(PhasedDriver.Phase.STEADY).getOverallStats().getThroughput();
+    
+    Assert.assertTrue(steadyTps > 2 * warmupTps);
+  }
+
+  @Test
+  public void testSkippedPhasesHaveNoStats() {
+    GenericCacheWrapper cache = concurrentMap("steady");
+    cache.setStatisticsEnabled(true);
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(put(1.0))
+        .addThinkTime(100);
+
+    PhasedDriver driver = PhasedDriver.phased(2, accessor).steady(200, TimeUnit.MILLISECONDS);
+    driver.run();
+    Assert.assertEquals(1, driver.getPhaseStats().size());
+    Assert.assertTrue(driver.getFinalStatsNode().getOverallStats().getTxnCount() > 0);
+  }
+
+  @Test
+  public void testSeveralCachesAccessedInParallel() {
+    GenericCacheWrapper one = concurrentMap("one");
+    GenericCacheWrapper two = concurrentMap("two");
+    CacheAccessor accessor = CacheAccessor.access(one, two)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(put(1.0))
+        .addThinkTime(100);
+
+    PhasedDriver driver = PhasedDriver.phased(2, accessor).steady(300, TimeUnit.MILLISECONDS);
+    driver.run();
+    Map<String, Stats> writes = driver.getFinalStatsNode().getWriteStatsList();
+    Assert.assertTrue(writes.get("one").getTxnCount() > 0);
+    Assert.assertTrue(writes.get("two").getTxnCount() > 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPhaseCanOnlyBeChosenOnce() {
+    CacheAccessor accessor = CacheAccessor.access(concurrentMap("once"));
+    PhasedDriver.phased(1, accessor).warmup(1, TimeUnit.SECONDS).warmup(2, TimeUnit.SECONDS);
+  }
+}
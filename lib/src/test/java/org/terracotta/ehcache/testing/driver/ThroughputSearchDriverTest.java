@@ -0,0 +1,79 @@
+package org.terracotta.ehcache.testing.driver;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.operation.CacheOperation;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+
+public class ThroughputSearchDriverTest {
+
+  @Test
+  public void testSearchFindsTheCapacityOfASlowCache() {
+    GenericCacheWrapper cache = concurrentMap("slow");
+    cache.setStatisticsEnabled(true);
+    // a single thread doing 1ms reads can't sustain much more than 1000 ops/s
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(slowRead(TimeUnit.MILLISECONDS.toNanos(1)));
+
+    ThroughputSearchDriver search = ThroughputSearchDriver.search(1, accessor)
+        .holding(Sla.sla().readLatency(99, 20, TimeUnit.MILLISECONDS).maxExceptions(0))
+        .from(200).upTo(100000)
+        .withPrecision(0.25)
+        .stepDuration(200, 500, TimeUnit.MILLISECONDS);
+    search.run();
+
+    long maxRate = search.getMaxSustainableRate();
+    Assert.assertTrue("max rate " + maxRate, maxRate >= 200 && maxRate < 1100);
+    List<ThroughputSearchDriver.Step> curve = search.getCurve();
+    Assert.assertTrue(curve.size() >= 3);
+    Assert.assertTrue(curve.get(0).isPassed());
+    Assert.assertFalse(curve.get(curve.size() - 1).isPassed());
+    Assert.assertNotNull(search.getFinalStatsNode());
+    // latency explodes past the capacity : the knee is at most the first failing step, and never the last one
+    ThroughputSearchDriver.Step knee = search.getKnee();
+    Assert.assertNotNull(knee);
+    ThroughputSearchDriver.Step firstFailing = null;
+    for (ThroughputSearchDriver.Step step : curve) {
+      if (!step.isPassed()) {
+        firstFailing = step;
+        break;
+      }
+    }
+    Assert.assertTrue("knee " + knee + ", first failing " + firstFailing, knee.getOfferedRate() <= firstFailing.getOfferedRate());
+    Assert.assertNotSame(curve.get(curve.size() - 1), knee);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSlaIsRequired() {
+    ThroughputSearchDriver.search(1, CacheAccessor.access(concurrentMap("nosla"))).run();
+  }
+
+  private static CacheOperation slowRead(final long nanos) {
+    return new CacheOperation(1.0) {
+      @Override
+      public Object exec(final GenericCacheWrapper cacheWrapper, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        long start = startTime();
+        LockSupport.parkNanos(nanos);
+        cacheWrapper.getReadStats().add(now() - start);
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return "SLOW_READ";
+      }
+    };
+  }
+}
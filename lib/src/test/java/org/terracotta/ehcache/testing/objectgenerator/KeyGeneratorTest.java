@@ -0,0 +1,37 @@
+package org.terracotta.ehcache.testing.objectgenerator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeyGeneratorTest {
+
+  @Test
+  public void testLongsAreBoxedOnce() {
+    ObjectGenerator generator = KeyGenerator.longs(1000);
+    Assert.assertEquals(999L, generator.generate(999));
+    Assert.assertSame(generator.generate(500), generator.generate(500));
+    Assert.assertEquals(5000L, generator.generate(5000));
+  }
+
+  @Test
+  public void testPaddedStrings() {
+    ObjectGenerator generator = KeyGenerator.padded(100000, 8);
+    Assert.assertEquals("00000042", generator.generate(42));
+    Assert.assertEquals("00099999", generator.generate(99999));
+    Assert.assertSame(generator.generate(42), generator.generate(42));
+    Assert.assertEquals("00123456", generator.generate(123456));
+  }
+
+  @Test
+  public void testBytes() {
+    ObjectGenerator generator = KeyGenerator.bytes(1 << 16, 4);
+    Assert.assertArrayEquals(new byte[] { 0, 0, 1, 2 }, (byte[])generator.generate(258));
+    Assert.assertSame(generator.generate(258), generator.generate(258));
+    Assert.assertArrayEquals(new byte[] { 0, 1, 0, 0 }, (byte[])generator.generate(1 << 16));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWidthMustHoldTheKeyspace() {
+    KeyGenerator.padded(100001, 5);
+  }
+}
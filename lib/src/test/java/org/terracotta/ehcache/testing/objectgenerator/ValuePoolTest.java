@@ -0,0 +1,33 @@
+package org.terracotta.ehcache.testing.objectgenerator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ValuePoolTest {
+
+  @Test
+  public void testSharedValuesAreDeterministic() {
+    ObjectGenerator bytes = ByteArrayGenerator.randomSize(10, 100);
+    ObjectGenerator pool = ValuePool.shared(bytes, 16);
+    Assert.assertSame(pool.generate(3), pool.generate(19));
+    Assert.assertSame(pool.generate(15), pool.generate(-1));
+    Assert.assertArrayEquals((byte[])bytes.generate(3), (byte[])pool.generate(35));
+    Assert.assertArrayEquals((byte[])pool.generate(5), (byte[])ValuePool.shared(bytes, 16).generate(5));
+  }
+
+  @Test
+  public void testCopiedValuesReuseTheBufferOfTheThread() {
+    ObjectGenerator bytes = ByteArrayGenerator.fixedSize(64);
+    ObjectGenerator pool = ValuePool.copied(bytes, 4);
+    byte[] one = (byte[])pool.generate(1);
+    Assert.assertArrayEquals((byte[])bytes.generate(1), one);
+    byte[] two = (byte[])pool.generate(2);
+    Assert.assertSame(one, two);
+    Assert.assertArrayEquals((byte[])bytes.generate(2), two);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOnlyFixedSizeValuesAreCopied() {
+    ValuePool.copied(ByteArrayGenerator.randomSize(10, 100), 16);
+  }
+}
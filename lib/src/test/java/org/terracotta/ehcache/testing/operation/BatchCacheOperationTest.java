@@ -0,0 +1,77 @@
+package org.terracotta.ehcache.testing.operation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.driver.CacheAccessor;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.StringGenerator;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.Map;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.getAll;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.putAll;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.removeAll;
+
+public class BatchCacheOperationTest {
+
+  @Test
+  public void testBatchesPullConsecutiveSeeds() {
+    GenericCacheWrapper cache = concurrentMap("batch-put");
+    cache.setStatisticsEnabled(true);
+    CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(putAll(1.0, 10))
+        .iterate(100)
+        .run();
+    Assert.assertEquals(1000, ((Map)cache.getCache()).size());
+    Assert.assertEquals(100, cache.getBatchStats().getTxnCount());
+    Assert.assertEquals(1000, cache.getWriteStats().getTxnCount());
+
+    CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(getAll(1.0, 25))
+        .validate(Validation.Mode.STRICT)
+        .iterate(40)
+        .run();
+    Assert.assertEquals(1000, cache.getReadStats().getTxnCount());
+    Assert.assertEquals(140, cache.getBatchStats().getTxnCount());
+
+    CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(removeAll(1.0, 50))
+        .iterate(10)
+        .run();
+    Assert.assertEquals(500, ((Map)cache.getCache()).size());
+    Assert.assertEquals(500, cache.getRemoveStats().getTxnCount());
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testGetAllValidatesEveryKey() {
+    GenericCacheWrapper cache = concurrentMap("batch-get");
+    CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(putAll(1.0, 10))
+        .iterate(1)
+        .run();
+    ((Map)cache.getCache()).remove("7");
+    CacheAccessor.access(cache)
+        .using(StringGenerator.integers(), ByteArrayGenerator.fixedSize(16))
+        .sequentially()
+        .doOps(getAll(1.0, 10))
+        .validate(Validation.Mode.STRICT)
+        .iterate(1)
+        .run();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchSizeMustBePositive() {
+    getAll(1.0, 0);
+  }
+}
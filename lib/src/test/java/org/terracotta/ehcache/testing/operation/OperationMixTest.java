@@ -0,0 +1,78 @@
+package org.terracotta.ehcache.testing.operation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.XoshiroRandom;
+import org.terracotta.ehcache.testing.validator.Validation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class OperationMixTest {
+
+  private static final int SAMPLES = 1000000;
+
+  @Test
+  public void testSelectionFollowsRatios() {
+    CacheOperation get = operation("GET", 0.6);
+    CacheOperation put = operation("PUT", 0.3);
+    CacheOperation remove = operation("REMOVE", 0.1);
+    Map<CacheOperation, Integer> counts = select(new OperationMix(Arrays.asList(get, put, remove)));
+
+    Assert.assertEquals(0.6, counts.get(get) / (double) SAMPLES, 0.005);
+    Assert.assertEquals(0.3, counts.get(put) / (double) SAMPLES, 0.005);
+    Assert.assertEquals(0.1, counts.get(remove) / (double) SAMPLES, 0.005);
+    Assert.assertFalse(counts.containsKey(null));
+  }
+
+  @Test
+  public void testRemainingShareSelectsNothing() {
+    CacheOperation put = operation("PUT", 0.25);
+    CacheOperation none = operation("NONE", 0.0);
+    Map<CacheOperation, Integer> counts = select(new OperationMix(Arrays.asList(put, none)));
+
+    Assert.assertEquals(0.25, counts.get(put) / (double) SAMPLES, 0.005);
+    Assert.assertEquals(0.75, counts.get(null) / (double) SAMPLES, 0.005);
+    Assert.assertFalse(counts.containsKey(none));
+  }
+
+  @Test
+  public void testSingleOperation() {
+    CacheOperation get = operation("GET", 1.0);
+    OperationMix mix = new OperationMix(Collections.singleton(get));
+    Random rnd = new XoshiroRandom(1);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertSame(get, mix.select(rnd));
+    }
+  }
+
+  private static Map<CacheOperation, Integer> select(OperationMix mix) {
+    Map<CacheOperation, Integer> counts = new IdentityHashMap<CacheOperation, Integer>();
+    Random rnd = new XoshiroRandom(42);
+    for (int i = 0; i < SAMPLES; i++) {
+      CacheOperation operation = mix.select(rnd);
+      Integer count = counts.get(operation);
+      counts.put(operation, count == null ? 1 : count + 1);
+    }
+    return counts;
+  }
+
+  private static CacheOperation operation(final String name, final double ratio) {
+    return new CacheOperation(ratio) {
+      @Override
+      public Object exec(final GenericCacheWrapper cacheWrapper, final long seed, final ObjectGenerator keyGenerator, final ObjectGenerator valueGenerator, final Validation.Validator validator) {
+        return null;
+      }
+
+      @Override
+      public String getName() {
+        return name;
+      }
+    };
+  }
+}
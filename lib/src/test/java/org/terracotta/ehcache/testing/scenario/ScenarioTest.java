@@ -0,0 +1,123 @@
+package org.terracotta.ehcache.testing.scenario;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+public class ScenarioTest {
+
+  @Test
+  public void testSweepExpandsEveryCombination() throws Exception {
+    Scenario scenario = Scenario.load(new File(getClass().getResource("/scenario-sweep.properties").toURI()));
+    List<Scenario> scenarios = scenario.sweep();
+    Assert.assertEquals(4, scenarios.size());
+
+    Scenario first = scenarios.get(0);
+    Assert.assertEquals("1", first.getParameters().get("threads"));
+    Assert.assertEquals("fixed:128", first.get(Scenario.VALUES));
+    Assert.assertEquals(1, first.getInt(Scenario.ACCESS_THREADS, 0));
+    Scenario last = scenarios.get(3);
+    Assert.assertEquals("fixed:1k", last.get(Scenario.VALUES));
+    Assert.assertEquals(2, last.getInt(Scenario.ACCESS_THREADS, 0));
+    Assert.assertEquals(1024, ((byte[])last.getGenerator(Scenario.VALUES).generate(1)).length);
+  }
+
+  @Test
+  public void testSweepKeyOverriddenToEmptyIsIgnored() throws Exception {
+    Scenario scenario = Scenario.load(new File(getClass().getResource("/scenario-sweep.properties").toURI()))
+        .with("sweep.threads", "").with("threads", "2");
+    List<Scenario> scenarios = scenario.sweep();
+    Assert.assertEquals(2, scenarios.size());
+    Assert.assertEquals(2, scenarios.get(0).getInt(Scenario.ACCESS_THREADS, 0));
+    Assert.assertNull(scenarios.get(0).getParameters().get("threads"));
+  }
+
+  @Test
+  public void testParsing() {
+    Properties p = new Properties();
+    p.setProperty("size", "8k");
+    p.setProperty("values", "random:1k-${size}");
+    p.setProperty("warmup", "1500ms");
+    p.setProperty("steady", "2m");
+    p.setProperty("ops", " get:0.5 , put:0.5 ,");
+    Scenario scenario = new Scenario("parsing", p);
+
+    Assert.assertEquals(8192, scenario.getLong("size", 0));
+    Assert.assertEquals("random:1k-8k", scenario.get("values"));
+    Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1500), scenario.getDuration("warmup"));
+    Assert.assertEquals(TimeUnit.MINUTES.toNanos(2), scenario.getDuration("steady"));
+    Assert.assertEquals(0, scenario.getDuration("rampup"));
+    Assert.assertEquals(2, scenario.getList("ops").size());
+    Assert.assertEquals(1, scenario.sweep().size());
+    Assert.assertEquals("9", scenario.with("size", "9").get("size"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnresolvedReferenceIsRejected() {
+    Properties p = new Properties();
+    p.setProperty("values", "fixed:${size}");
+    new Scenario("unresolved", p).get("values");
+  }
+
+  @Test
+  public void testRunnerRunsEveryCombination() throws Exception {
+    Scenario scenario = Scenario.load(new File(getClass().getResource("/scenario-sweep.properties").toURI()));
+    Map<String, StatsNode> results = new ScenarioRunner().runAll(scenario);
+    Assert.assertEquals(4, results.size());
+    long[] expectedTxns = { 1000, 1000, 2000, 2000 };
+    int i = 0;
+    for (StatsNode node : results.values()) {
+      // sweeps are expanded in the order of their names, threads first
+      Assert.assertEquals(expectedTxns[i++], node.getOverallStats().getTxnCount());
+    }
+  }
+
+  @Test
+  public void testPartitionsAreDisjoint() {
+    Properties p = new Properties();
+    p.setProperty("load.count", "1000");
+    p.setProperty("access.seeds", "GAUSSIAN:0:1000:90");
+    p.setProperty("access.rate", "100");
+    p.setProperty("workers", "3");
+    p.setProperty("loggers", "console");
+    Scenario scenario = new Scenario("partition", p);
+
+    long loaded = 0;
+    long rate = 0;
+    for (int i = 0; i < 3; i++) {
+      Scenario partition = scenario.partition(i, 3);
+      Assert.assertEquals(loaded, partition.getLong(Scenario.LOAD_OFFSET, -1));
+      loaded += partition.getLong(Scenario.LOAD_COUNT, 0);
+      rate += partition.getLong(Scenario.ACCESS_RATE, 0);
+      Assert.assertFalse(partition.has(Scenario.WORKERS));
+      Assert.assertFalse(partition.has(Scenario.LOGGERS));
+    }
+    Assert.assertEquals(1000, loaded);
+    Assert.assertEquals(100, rate);
+    Assert.assertEquals("GAUSSIAN:333:666:30", scenario.partition(1, 3).get(Scenario.ACCESS_SEEDS));
+  }
+
+  @Test
+  public void testWorkerJvmsResultsAreMerged() throws Exception {
+    Scenario scenario = Scenario.load(new File(getClass().getResource("/scenario-sweep.properties").toURI()))
+        .with("sweep.value.size", "").with("sweep.threads", "").with("value.size", "128").with("threads", "2")
+        .with(Scenario.WORKERS, "2");
+    ScenarioCoordinator coordinator = new ScenarioCoordinator(scenario);
+    StatsNode result = coordinator.run();
+
+    // 2 workers * 2 threads * 500 iterations * 2 caches
+    Assert.assertEquals(4000, result.getOverallStats().getTxnCount());
+    Assert.assertEquals(4000, result.getOverallStats().getHisto().getTotalCount());
+    long intervalTxns = 0;
+    for (StatsNode interval : coordinator.getIntervals()) {
+      intervalTxns += interval.getOverallStats().getTxnCount();
+    }
+    Assert.assertEquals(4000, intervalTxns);
+  }
+}
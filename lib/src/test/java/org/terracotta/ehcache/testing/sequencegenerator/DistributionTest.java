@@ -0,0 +1,92 @@
+package org.terracotta.ehcache.testing.sequencegenerator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class DistributionTest {
+
+  private static final int SAMPLES = 200000;
+
+  @Test
+  public void testZetaApproximation() {
+    long n = ZipfianSampler.EXACT_ZETA_TERMS * 10L;
+    double exact = 0.0;
+    for (long i = 1; i <= n; i++) {
+      exact += 1.0 / Math.pow(i, 0.99);
+    }
+    Assert.assertEquals(exact, ZipfianSampler.zeta(n, 0.99), exact * 1e-9);
+  }
+
+  @Test
+  public void testZipfianIsSkewedTowardMinimum() {
+    long[] counts = histogram(Distribution.ZIPFIAN.createSampler(100, 1100, 0), 100, 1100);
+    // with theta = 0.99 over 1000 items, rank 0 gets ~13.4% of the draws and rank 1 ~6.8%
+    Assert.assertEquals(0.134, counts[0] / (double) SAMPLES, 0.01);
+    Assert.assertEquals(0.068, counts[1] / (double) SAMPLES, 0.01);
+    Assert.assertTrue(counts[0] > counts[10]);
+    Assert.assertTrue(counts[10] > counts[999]);
+  }
+
+  @Test
+  public void testZipfianOnHugeRange() {
+    Distribution.Sampler sampler = Distribution.ZIPFIAN.createSampler(0, 10000000000L, 0);
+    Random rndm = new Random(1);
+    int hot = 0;
+    for (int i = 0; i < SAMPLES; i++) {
+      long seed = sampler.next(rndm);
+      Assert.assertTrue(seed >= 0 && seed < 10000000000L);
+      if (seed < 10) {
+        hot++;
+      }
+    }
+    Assert.assertTrue("hot keys got " + hot + " draws", hot > SAMPLES / 20);
+  }
+
+  @Test
+  public void testScrambledZipfianSpreadsHotKeys() {
+    long[] counts = histogram(Distribution.SCRAMBLED_ZIPFIAN.createSampler(0, 1000, 0), 0, 1000);
+    int hottest = 0;
+    for (int i = 1; i < counts.length; i++) {
+      if (counts[i] > counts[hottest]) {
+        hottest = i;
+      }
+    }
+    Assert.assertEquals(0.134, counts[hottest] / (double) SAMPLES, 0.01);
+    Assert.assertEquals((Distribution.fnvHash64(0) & Long.MAX_VALUE) % 1000, hottest);
+  }
+
+  @Test
+  public void testHotspot() {
+    long[] counts = histogram(Distribution.HOTSPOT.createSampler(0, 1000, 200), 0, 1000);
+    long hot = 0;
+    for (int i = 0; i < 200; i++) {
+      hot += counts[i];
+    }
+    Assert.assertEquals(0.8, hot / (double) SAMPLES, 0.01);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHotspotNeedsHotSet() {
+    Distribution.HOTSPOT.createSampler(0, 1000, 0);
+  }
+
+  @Test
+  public void testLatestIsSkewedTowardMaximum() {
+    long[] counts = histogram(Distribution.LATEST.createSampler(0, 1000, 0), 0, 1000);
+    Assert.assertEquals(0.134, counts[999] / (double) SAMPLES, 0.01);
+    Assert.assertTrue(counts[999] > counts[0]);
+  }
+
+  private static long[] histogram(Distribution.Sampler sampler, long minimum, long maximum) {
+    Random rndm = new Random(42);
+    long[] counts = new long[(int) (maximum - minimum)];
+    for (int i = 0; i < SAMPLES; i++) {
+      long seed = sampler.next(rndm);
+      Assert.assertTrue(seed + " out of range", seed >= minimum && seed < maximum);
+      counts[(int) (seed - minimum)]++;
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,84 @@
+package org.terracotta.ehcache.testing.sequencegenerator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class XoshiroRandomTest {
+
+  @Test
+  public void testSameSeedGivesSameNumbers() {
+    XoshiroRandom one = new XoshiroRandom(42);
+    XoshiroRandom two = new XoshiroRandom(42);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals(one.nextLong(), two.nextLong());
+    }
+    one.setSeed(7);
+    two.setSeed(7);
+    Assert.assertEquals(one.nextGaussian(), two.nextGaussian(), 0.0);
+  }
+
+  @Test
+  public void testSplitStreamsAreReproducibleAndDistinct() {
+    XoshiroRandom child1 = new XoshiroRandom(42).split();
+    XoshiroRandom child2 = new XoshiroRandom(42).split();
+    XoshiroRandom parent = new XoshiroRandom(42);
+    parent.split();
+    XoshiroRandom sibling = parent.split();
+    long first = child1.nextLong();
+    Assert.assertEquals(first, child2.nextLong());
+    Assert.assertTrue(first != sibling.nextLong());
+  }
+
+  @Test
+  public void testThreadStreamsDependOnTheThreadKeyNotOnTheStartOrder() throws InterruptedException {
+    XoshiroRandom streams = new XoshiroRandom(42);
+    long[] inOrder = drawFromThreads(streams, 0, 1, 2);
+    long[] reversed = drawFromThreads(streams, 2, 1, 0);
+    Assert.assertArrayEquals(inOrder, reversed);
+    Assert.assertTrue(inOrder[0] != inOrder[1] && inOrder[1] != inOrder[2]);
+    Assert.assertTrue(inOrder[0] != drawFromThreads(new XoshiroRandom(43), 0)[0]);
+  }
+
+  /**
+   * Starts the threads of the given indexes one after the other
+   *
+   * @return first number drawn by the thread of each index
+   */
+  private static long[] drawFromThreads(final XoshiroRandom streams, int... indexes) throws InterruptedException {
+    final long[] drawn = new long[indexes.length];
+    for (final int index : indexes) {
+      Thread thread = new Thread(XoshiroRandom.boundTo(XoshiroRandom.childKey(index), new Runnable() {
+        @Override
+        public void run() {
+          drawn[index] = streams.forCurrentThread().nextLong();
+        }
+      }));
+      thread.start();
+      thread.join();
+    }
+    return drawn;
+  }
+
+  @Test
+  public void testDistributions() {
+    XoshiroRandom rndm = new XoshiroRandom(1);
+    int samples = 100000;
+    double sum = 0, sumGaussian = 0, sumSquaresGaussian = 0;
+    int[] buckets = new int[10];
+    for (int i = 0; i < samples; i++) {
+      double d = rndm.nextDouble();
+      Assert.assertTrue(d >= 0.0 && d < 1.0);
+      sum += d;
+      buckets[rndm.nextInt(10)]++;
+      double g = rndm.nextGaussian();
+      sumGaussian += g;
+      sumSquaresGaussian += g * g;
+    }
+    Assert.assertEquals(0.5, sum / samples, 0.01);
+    for (int bucket : buckets) {
+      Assert.assertEquals(samples / 10, bucket, samples / 100);
+    }
+    Assert.assertEquals(0.0, sumGaussian / samples, 0.02);
+    Assert.assertEquals(1.0, sumSquaresGaussian / samples, 0.02);
+  }
+}
@@ -0,0 +1,152 @@
+package org.terracotta.ehcache.testing.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class HistogramTest {
+
+  @Test
+  public void testEmptyHistogram() {
+    Histogram histo = new Histogram();
+    Assert.assertEquals(0, histo.getTotalCount());
+    Assert.assertEquals(0, histo.getValueAtPercentile(99.0));
+    Assert.assertEquals(0, histo.getMaxValue());
+    Assert.assertEquals(0, histo.getMinValue());
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    Histogram histo = new Histogram(TimeUnit.HOURS.toNanos(1), 2);
+    for (long i = 1; i <= 100; i++) {
+      histo.add(i);
+    }
+    Assert.assertEquals(100, histo.getTotalCount());
+    Assert.assertEquals(50, histo.getValueAtPercentile(50.0));
+    Assert.assertEquals(90, histo.getValueAtPercentile(90.0));
+    Assert.assertEquals(99, histo.getValueAtPercentile(99.0));
+    Assert.assertEquals(100, histo.getValueAtPercentile(100.0));
+    Assert.assertEquals(1, histo.getMinValue());
+    Assert.assertEquals(100, histo.getMaxValue());
+  }
+
+  @Test
+  public void testPrecisionIsKeptOnLargeValues() {
+    for (int digits = 1; digits <= 3; digits++) {
+      Histogram histo = new Histogram(TimeUnit.HOURS.toNanos(1), digits);
+      long value = TimeUnit.MILLISECONDS.toNanos(1234);
+      histo.add(value);
+      histo.add(1L);
+      long p100 = histo.getValueAtPercentile(100.0);
+      Assert.assertEquals(value, p100);
+      long p99 = histo.getValueAtPercentile(99.0);
+      double error = Math.abs(p99 - value) / (double)value;
+      Assert.assertTrue("error " + error + " too big for " + digits + " digits", error < Math.pow(10, -digits));
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    Histogram histo = new Histogram();
+    for (int i = 0; i < 9900; i++) {
+      histo.add(1000);
+    }
+    for (int i = 0; i < 100; i++) {
+      histo.add(1000000);
+    }
+    Assert.assertEquals(1000, histo.getValueAtPercentile(50.0), 10);
+    Assert.assertEquals(1000, histo.getValueAtPercentile(99.0), 10);
+    Assert.assertEquals(1000000, histo.getValueAtPercentile(99.9), 10000);
+    Assert.assertEquals(1000000, histo.getMaxValue());
+  }
+
+  @Test
+  public void testOutOfRangeValues() {
+    Histogram histo = new Histogram(1000, 2);
+    histo.add(-5);
+    histo.add(1000000);
+    Assert.assertEquals(2, histo.getTotalCount());
+    Assert.assertEquals(0, histo.getMinValue());
+    Assert.assertEquals(1000000, histo.getMaxValue());
+    Assert.assertEquals(1000000, histo.getValueAtPercentile(100.0));
+  }
+
+  @Test
+  public void testMergeIsLossless() {
+    Histogram one = new Histogram();
+    Histogram two = new Histogram();
+    Histogram all = new Histogram();
+    for (long i = 0; i < 10000; i++) {
+      long value = i * 7919 % 5000000;
+      if (i % 2 == 0) {
+        one.add(value);
+      } else {
+        two.add(value);
+      }
+      all.add(value);
+    }
+    one.add(two);
+    Assert.assertEquals(all.getTotalCount(), one.getTotalCount());
+    Assert.assertEquals(all.getMaxValue(), one.getMaxValue());
+    Assert.assertEquals(all.getMinValue(), one.getMinValue());
+    for (double percentile : new double[] { 10.0, 50.0, 90.0, 99.0, 99.9, 99.99 }) {
+      Assert.assertEquals(all.getValueAtPercentile(percentile), one.getValueAtPercentile(percentile));
+    }
+  }
+
+  @Test
+  public void testReset() {
+    Histogram histo = new Histogram();
+    histo.add(300);
+    histo.add(700);
+    histo.reset();
+    Assert.assertEquals(0, histo.getTotalCount());
+    Assert.assertEquals(0, histo.getValueAtPercentile(50.0));
+    histo.add(500);
+    Assert.assertEquals(500, histo.getValueAtPercentile(50.0), 5);
+  }
+
+  @Test
+  public void testStatsPercentiles() {
+    Stats one = new Stats();
+    one.add(300);
+    one.add(700);
+    Stats two = new Stats();
+    two.add(100000);
+
+    Stats period = one.getPeriodStats();
+    Assert.assertEquals(2, period.getHisto().getTotalCount());
+    Assert.assertEquals(0, one.getPeriodStats().getHisto().getTotalCount());
+
+    one.add(two);
+    Assert.assertEquals(3, one.getHisto().getTotalCount());
+    Assert.assertEquals(100000, one.getLatencyAtPercentile(100.0));
+    Assert.assertEquals(700, one.getLatencyAtPercentile(50.0), 7);
+  }
+
+  @Test
+  public void testSubtractLeavesWhatWasRecordedSince() {
+    Histogram histo = new Histogram();
+    for (long i = 1; i <= 1000; i++) {
+      histo.add(i * 1000);
+    }
+    Histogram earlier = new Histogram(histo);
+    Histogram since = new Histogram();
+    for (long i = 1; i <= 1000; i++) {
+      histo.add(i * 50000);
+      since.add(i * 50000);
+    }
+    histo.subtract(earlier);
+    Assert.assertEquals(1000, histo.getTotalCount());
+    for (double percentile : Histogram.REPORTED_PERCENTILES) {
+      Assert.assertEquals(since.getValueAtPercentile(percentile), histo.getValueAtPercentile(percentile));
+    }
+    Assert.assertEquals(since.getMaxValue(), histo.getMaxValue());
+    Assert.assertEquals(50000, histo.getMinValue(), 50000 / 100);
+
+    histo.subtract(new Histogram(histo));
+    Assert.assertEquals(0, histo.getTotalCount());
+    Assert.assertEquals(0, histo.getValueAtPercentile(99.0));
+  }
+}
@@ -3,6 +3,14 @@ package org.terracotta.ehcache.testing.statistics;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Made by aurbrsz / 7/25/11 - 20:50
  */
@@ -195,4 +203,134 @@ public class StatsTest {
 //	  Assert.assertEquals(1, one.getHisto().getBUCKET_500_1000_COUNT());
 //	  Assert.assertEquals(1, one.getHisto().getBUCKET_1000_5000_COUNT());
   }
+
+  @Test
+  public void testConcurrentRecordingWithPeriodSampling() throws InterruptedException {
+    final Stats stats = new Stats();
+    final int threads = 8;
+    final int txPerThread = 100000;
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      final int id = t;
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < txPerThread; i++) {
+              stats.add(10 + (i % 1000) + id);
+            }
+            stats.incrementTotalExceptionCount();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final long[] periodTotal = new long[1];
+    Thread sampler = new Thread() {
+      @Override
+      public void run() {
+        while (running.get()) {
+          periodTotal[0] += stats.getPeriodStats().getTxnCount();
+        }
+      }
+    };
+    sampler.start();
+    start.countDown();
+    done.await();
+    running.set(false);
+    sampler.join();
+    periodTotal[0] += stats.getPeriodStats().getTxnCount();
+
+    Assert.assertEquals(threads * txPerThread, stats.getTxnCount());
+    Assert.assertEquals(threads * txPerThread, periodTotal[0]);
+    Assert.assertEquals(threads, stats.getTotalExceptionCount());
+    Assert.assertEquals(10, stats.getMinLatency(), 0);
+    Assert.assertEquals(10 + 999 + threads - 1, stats.getMaxLatency(), 0);
+    Assert.assertEquals(threads * txPerThread, stats.getHisto().getTotalCount());
+  }
+
+  @Test
+  public void testHistogramIsAllocatedOnFirstLatency() {
+    Stats.Interval interval = new Stats.Interval();
+    interval.add(new Stats.Interval());
+    interval.exceptionCount++;
+    interval.reset();
+    Assert.assertNull(interval.histo);
+
+    Stats.Interval recorded = new Stats.Interval();
+    recorded.add(5L, 1);
+    interval.add(recorded);
+    Assert.assertEquals(1, interval.histo.getTotalCount());
+  }
+
+  @Test
+  public void testSerializedNodesMergeLosslessly() throws IOException {
+    StatsNode one = new StatsNode();
+    Stats oneRead = new Stats();
+    one.addReadStats("cache", oneRead);
+    one.addWriteStats("cache", new Stats());
+    StatsNode two = new StatsNode();
+    Stats twoRead = new Stats();
+    two.addReadStats("cache", twoRead);
+    Stats histo = new Stats();
+    for (int i = 1; i <= 1000; i++) {
+      oneRead.add(i * 1000L);
+      twoRead.add(i * 7000L);
+      histo.add(i * 1000L);
+      histo.add(i * 7000L);
+    }
+    twoRead.incrementTotalExceptionCount();
+    one.finalise();
+    two.finalise();
+
+    StatsNode merged = new StatsNode().add(roundTrip(one)).add(roundTrip(two));
+    merged.finalise();
+    Stats read = merged.getReadStatsList().get("cache");
+    Assert.assertEquals(2000, read.getTxnCount());
+    Assert.assertEquals(1, read.getTotalExceptionCount());
+    Assert.assertEquals(1000, read.getMinLatency(), 0);
+    Assert.assertEquals(7000000, read.getMaxLatency(), 0);
+    Assert.assertEquals(histo.getAvgLatency(), read.getAvgLatency(), 0);
+    for (double percentile : Histogram.REPORTED_PERCENTILES) {
+      Assert.assertEquals(histo.getLatencyAtPercentile(percentile), read.getLatencyAtPercentile(percentile));
+    }
+    Assert.assertEquals(0, merged.getWriteStatsList().get("cache").getTxnCount());
+    Assert.assertEquals(2000, merged.getOverallStats().getTxnCount());
+  }
+
+  @Test
+  public void testFailuresAreCountedPerExceptionType() throws IOException {
+    StatsNode node = new StatsNode();
+    Stats read = new Stats();
+    node.addReadStats("cache", read);
+    for (int i = 1; i <= 100; i++) {
+      read.add(1000L);
+    }
+    read.addFailure(50000L, new IllegalStateException());
+    read.addFailure(70000L, new IllegalStateException());
+    read.addFailure(2000000L, new UnsupportedOperationException());
+    node.finalise();
+
+    Stats merged = new StatsNode().add(roundTrip(node)).add(roundTrip(node)).getReadStatsList().get("cache");
+    Assert.assertEquals(200, merged.getTxnCount());
+    Assert.assertEquals(6, merged.getTotalExceptionCount());
+    Assert.assertEquals(1000, merged.getMaxLatency(), 0);
+    Stats illegalState = merged.getFailures().get(IllegalStateException.class.getName());
+    Assert.assertEquals(4, illegalState.getTxnCount());
+    Assert.assertEquals(60000, illegalState.getAvgLatency(), 0);
+    Assert.assertEquals(2, merged.getFailures().get(UnsupportedOperationException.class.getName()).getTxnCount());
+  }
+
+  private static StatsNode roundTrip(StatsNode node) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    node.writeTo(new DataOutputStream(bytes));
+    return StatsNode.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
 }
@@ -0,0 +1,93 @@
+package org.terracotta.ehcache.testing.statistics.logger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.statistics.Stats;
+import org.terracotta.ehcache.testing.statistics.StatsNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+
+public class BinaryStatsLoggerImplTest {
+
+  @Test
+  public void testIntervalsAndWindowsAreReadBack() throws IOException {
+    File file = File.createTempFile("stats", ".log");
+    file.deleteOnExit();
+    file.delete();
+    GenericCacheWrapper cache = concurrentMap("logged");
+    StatsNode node = new StatsNode();
+    node.addReadStats("logged", cache.getReadStats());
+    node.addWriteStats("logged", cache.getWriteStats());
+    node.addRemoveStats("logged", cache.getRemoveStats());
+    node.addBatchStats("logged", cache.getBatchStats());
+
+    BinaryStatsLoggerImpl log = new BinaryStatsLoggerImpl(file.getPath());
+    log.logMainHeader(Collections.singleton(cache), new String[0]);
+    for (int interval = 1; interval <= 3; interval++) {
+      for (int i = 0; i < 100 * interval; i++) {
+        cache.getReadStats().add(interval * 1000L);
+      }
+      cache.getWriteStats().add(interval * 5000L);
+      log.log(node);
+    }
+    log.close();
+
+    StatsLogReader reader = new StatsLogReader(file);
+    StatsLogReader.Record first = reader.next();
+    StatsLogReader.Record second = reader.next();
+    Assert.assertNotNull(reader.next());
+    Assert.assertNull(reader.next());
+    reader.close();
+    Assert.assertEquals(100, first.getStats().getReadStatsList().get("logged").getTxnCount());
+    Stats interval = second.since(first).getReadStatsList().get("logged");
+    Assert.assertEquals(200, interval.getTxnCount());
+    Assert.assertEquals(2000, interval.getMinLatency(), 2000 / 100);
+    Assert.assertEquals(2000, interval.getLatencyAtPercentile(99), 2000 / 100);
+
+    StatsNode all = StatsLogReport.window(file, 0, Long.MAX_VALUE, TimeUnit.SECONDS);
+    Assert.assertEquals(600, all.getOverallReadStats().getTxnCount());
+    Assert.assertEquals(603, all.getOverallStats().getTxnCount());
+    Assert.assertEquals(3000, all.getOverallStats().getLatencyAtPercentile(50), 3000 / 100);
+
+    StringWriter csv = new StringWriter();
+    StatsLogReport.csv(file, csv);
+    // header, then 3 intervals of 4 operation types
+    Assert.assertEquals(1 + 3 * 4, csv.toString().split("\n").length);
+    Assert.assertTrue(StatsLogReport.compare(all, all).contains("+0.0%"));
+  }
+
+  @Test
+  public void testTruncatedRecordIsIgnored() throws IOException {
+    File file = File.createTempFile("stats", ".log");
+    file.deleteOnExit();
+    file.delete();
+    GenericCacheWrapper cache = concurrentMap("truncated");
+    StatsNode node = new StatsNode();
+    node.addReadStats("truncated", cache.getReadStats());
+    node.addWriteStats("truncated", cache.getWriteStats());
+    node.addRemoveStats("truncated", cache.getRemoveStats());
+    node.addBatchStats("truncated", cache.getBatchStats());
+    BinaryStatsLoggerImpl log = new BinaryStatsLoggerImpl(file.getPath());
+    log.logMainHeader(Collections.singleton(cache), new String[0]);
+    cache.getReadStats().add(1000L);
+    log.log(node);
+    log.log(node);
+    log.close();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.setLength(raf.length() - 10);
+    raf.close();
+    StatsLogReader reader = new StatsLogReader(file);
+    Assert.assertNotNull(reader.next());
+    Assert.assertNull(reader.next());
+    reader.close();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.termination;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilledTerminationConditionSamplingTest {
+
+  private final AtomicLong size = new AtomicLong();
+  private final AtomicInteger sizeCalls = new AtomicInteger();
+
+  private GenericCacheWrapper cache() {
+    GenericCacheWrapper cache = mock(GenericCacheWrapper.class);
+    when(cache.getSize()).thenAnswer(new Answer<Long>() {
+      @Override
+      public Long answer(final InvocationOnMock invocation) {
+        sizeCalls.incrementAndGet();
+        return size.get();
+      }
+    });
+    return cache;
+  }
+
+  @Test
+  public void testConditionIsMetOnceTheSizePlateaus() throws Exception {
+    FilledTerminationCondition termination = new FilledTerminationCondition(10, 5, 0);
+    GenericCacheWrapper cache = cache();
+    final TerminationCondition.Condition first = termination.createCondition(cache);
+    final TerminationCondition.Condition second = termination.createCondition(cache);
+
+    for (int i = 0; i < 100; i++) {
+      size.addAndGet(100);
+      Thread.sleep(2);
+      Assert.assertFalse(first.isMet());
+    }
+    int calls = sizeCalls.get();
+    for (int i = 0; i < 100000; i++) {
+      first.isMet();
+    }
+    Assert.assertTrue("isMet must not read the sizes", sizeCalls.get() - calls < 100);
+
+    await().atMost(2, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return first.isMet();
+      }
+    });
+    Assert.assertTrue(second.isMet());
+    Assert.assertFalse("A new run samples again", termination.createCondition(cache).isMet());
+  }
+
+  @Test
+  public void testGrowthBelowEpsilonIsAPlateau() throws Exception {
+    FilledTerminationCondition termination = new FilledTerminationCondition(10, 3, 0.01);
+    size.set(100000);
+    final TerminationCondition.Condition condition = termination.createCondition(cache());
+    final long start = System.nanoTime();
+    await().atMost(2, TimeUnit.SECONDS).until(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        size.addAndGet(10);
+        return condition.isMet();
+      }
+    });
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+  }
+}
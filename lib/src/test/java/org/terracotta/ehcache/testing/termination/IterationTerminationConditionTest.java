@@ -0,0 +1,38 @@
+/*
+ *  Copyright Terracotta, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.terracotta.ehcache.testing.termination;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+
+import static org.mockito.Mockito.mock;
+
+public class IterationTerminationConditionTest {
+
+  @Test
+  public void testEachConditionCountsItsOwnIterations() {
+    IterationTerminationCondition termination = new IterationTerminationCondition(1000);
+    GenericCacheWrapper cache = mock(GenericCacheWrapper.class);
+    TerminationCondition.Condition first = termination.createCondition(cache);
+    TerminationCondition.Condition second = termination.createCondition(cache);
+    for (int i = 1; i < 1000; i++) {
+      Assert.assertFalse(first.isMet());
+    }
+    Assert.assertTrue(first.isMet());
+    Assert.assertFalse(second.isMet());
+  }
+}
@@ -62,4 +62,18 @@ public class TimedTerminationConditionTest {
       }
     });
   }
+
+  @Test
+  public void testFastLoopStopsWithinBoundedOvershoot() {
+    long start = System.nanoTime();
+    TerminationCondition.Condition condition = new TimedTerminationCondition(50, TimeUnit.MILLISECONDS)
+        .createCondition(mock(GenericCacheWrapper.class));
+    long calls = 0;
+    while (!condition.isMet()) {
+      calls++;
+    }
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue("Stopped after " + elapsed + "ms", elapsed >= 50 && elapsed < 1000);
+    Assert.assertTrue(calls > 0);
+  }
 }
@@ -0,0 +1,127 @@
+package org.terracotta.ehcache.testing.validator;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.driver.CacheAccessor;
+import org.terracotta.ehcache.testing.driver.CacheLoader;
+import org.terracotta.ehcache.testing.driver.ParallelDriver;
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.KeyGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ObjectGenerator;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+
+public class AsyncValidationTest {
+
+  private final ChecksumGenerator generator = ChecksumGenerator.fixedSize(64);
+
+  @Test
+  public void testSampledReadsAreValidatedByTheValidatorThreads() {
+    AsyncValidation validation = new AsyncValidation(new ChecksumValidation(), 0.1).threads(2);
+    AsyncValidation.AsyncValidator validator = validation.createValidator(generator);
+    for (int i = 0; i < 1000; i++) {
+      validator.validate(i, generator.generate(i));
+    }
+    byte[] corrupted = generator.generate(42, 0);
+    corrupted[corrupted.length - 1]++;
+    for (int i = 0; i < 10; i++) {
+      validator.validate(42, corrupted);
+    }
+    validator.close();
+
+    Assert.assertEquals(100, validation.getStats().getTxnCount());
+    Assert.assertEquals(1, validation.getFailureCount());
+    Assert.assertEquals(0, validation.getDroppedCount());
+    Assert.assertEquals(1, validation.getStats().getFailures().get(AssertionError.class.getName()).getTxnCount());
+  }
+
+  @Test
+  public void testSamplesAreDroppedWhenTheValidatorsFallBehind() throws InterruptedException {
+    final CountDownLatch validating = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Validation blocked = new Validation() {
+      public Validator createValidator(ObjectGenerator valueGenerator) {
+        return new Validator() {
+          public void validate(long seed, Object value) {
+            validating.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+      }
+    };
+    AsyncValidation validation = new AsyncValidation(blocked, 1).capacity(4);
+    AsyncValidation.AsyncValidator validator = validation.createValidator(generator);
+    validator.validate(0, generator.generate(0));
+    validating.await();
+    for (int i = 1; i <= 10; i++) {
+      validator.validate(i, generator.generate(i));
+    }
+    release.countDown();
+    validator.close();
+
+    Assert.assertEquals(6, validation.getDroppedCount());
+    Assert.assertEquals(5, validation.getStats().getTxnCount());
+  }
+
+  @Test(timeout = 10000)
+  public void testValidatorExceptionsAreFailedValidations() {
+    Validation throwing = new Validation() {
+      public Validator createValidator(ObjectGenerator valueGenerator) {
+        return new Validator() {
+          public void validate(long seed, Object value) {
+            if (seed % 2 == 1) {
+              throw new IllegalStateException("odd seed " + seed);
+            }
+          }
+        };
+      }
+    };
+    AsyncValidation validation = new AsyncValidation(throwing, 1).capacity(4).blocking();
+    AsyncValidation.AsyncValidator validator = validation.createValidator(generator);
+    for (int i = 0; i < 100; i++) {
+      validator.validate(i, generator.generate(i));
+    }
+    validator.close();
+
+    Assert.assertEquals(50, validation.getFailureCount());
+    Assert.assertEquals(0, validation.getDroppedCount());
+    Assert.assertEquals(50, validation.getStats().getFailures().get(IllegalStateException.class.getName()).getTxnCount());
+  }
+
+  @Test
+  public void testAccessorsValidateAsynchronously() {
+    int keyspace = 1000;
+    GenericCacheWrapper cache = concurrentMap("async");
+    CacheLoader.load(cache)
+        .using(KeyGenerator.longs(keyspace), generator)
+        .sequentially()
+        .iterate(keyspace)
+        .run();
+
+    AsyncValidation validation = new AsyncValidation(new ChecksumValidation(), 0.5).blocking();
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(KeyGenerator.longs(keyspace), generator)
+        .sequentially()
+        .validateUsing(validation)
+        .enableStatistics(true)
+        .iterate(keyspace);
+    ParallelDriver.inParallel(4, accessor).run();
+
+    Assert.assertEquals(0, validation.getFailureCount());
+    Assert.assertEquals(0, validation.getDroppedCount());
+    Assert.assertEquals(4 * keyspace, cache.getReadStats().getTxnCount());
+    Assert.assertEquals(2 * keyspace, validation.getStats().getTxnCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testVersionedValidationCantBeAsynchronous() {
+    new AsyncValidation(new VersionedValidation(10), 0.5);
+  }
+}
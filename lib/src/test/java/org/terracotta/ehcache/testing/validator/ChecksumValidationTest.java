@@ -0,0 +1,60 @@
+package org.terracotta.ehcache.testing.validator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.objectgenerator.ByteArrayGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.ValuePool;
+
+public class ChecksumValidationTest {
+
+  private final ChecksumGenerator generator = ChecksumGenerator.randomSize(100, 200);
+  private final Validation.Validator validator = new ChecksumValidation().createValidator(generator);
+
+  @Test
+  public void testValuesAreSelfDescribing() {
+    byte[] value = generator.generate(42, 3);
+    Assert.assertTrue(value.length >= ChecksumGenerator.HEADER_SIZE + 100);
+    Assert.assertEquals(42, ChecksumGenerator.seedOf(value));
+    Assert.assertEquals(3, ChecksumGenerator.versionOf(value));
+    Assert.assertArrayEquals(value, generator.generate(42, 3));
+    validator.validate(42, value);
+    validator.validate(42, generator.generate(42));
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testCorruptedPayloadIsDetected() {
+    byte[] value = generator.generate(42, 0);
+    value[value.length - 1]++;
+    validator.validate(42, value);
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testValueOfAnotherKeyIsDetected() {
+    validator.validate(42, generator.generate(43));
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testValueWithoutHeaderIsDetected() {
+    validator.validate(42, ByteArrayGenerator.fixedSize(100).generate(42));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPooledValuesAreRejected() {
+    new ChecksumValidation().createValidator(ValuePool.shared(generator, 10));
+  }
+
+  @Test
+  public void testEqualityOfByteArrays() {
+    Validation.Validator equality = new EqualityValidation().createValidator(ByteArrayGenerator.fixedSize(100));
+    byte[] value = (byte[])ByteArrayGenerator.fixedSize(100).generate(42);
+    equality.validate(42, value);
+    value[50]++;
+    try {
+      equality.validate(42, value);
+      Assert.fail("Expected the difference to be detected");
+    } catch (AssertionError e) {
+      Assert.assertTrue(e.getMessage().contains("not equal"));
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package org.terracotta.ehcache.testing.validator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.terracotta.ehcache.testing.cache.GenericCacheWrapper;
+import org.terracotta.ehcache.testing.driver.CacheAccessor;
+import org.terracotta.ehcache.testing.driver.CacheLoader;
+import org.terracotta.ehcache.testing.driver.ParallelDriver;
+import org.terracotta.ehcache.testing.objectgenerator.ChecksumGenerator;
+import org.terracotta.ehcache.testing.objectgenerator.KeyGenerator;
+import org.terracotta.ehcache.testing.sequencegenerator.Distribution;
+
+import static org.terracotta.ehcache.testing.cache.ConcurrentMapWrapper.concurrentMap;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.get;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.getAll;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.putIfAbsent;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.remove;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.replace;
+import static org.terracotta.ehcache.testing.operation.ConcurrentMapOperation.update;
+
+public class VersionedValidationTest {
+
+  private final ChecksumGenerator generator = ChecksumGenerator.fixedSize(64);
+  private final VersionedValidation validation = new VersionedValidation(100);
+
+  @Test
+  public void testStaleValueIsDetected() {
+    VersionedValidation.VersionedValidator writer = validation.createValidator(generator);
+    byte[] old = (byte[])writer.beginWrite(42);
+    writer.endWrite(42, true);
+    writer.beginWrite(42);
+    writer.endWrite(42, true);
+    Assert.assertEquals(2, validation.committedVersion(42));
+
+    VersionedValidation.VersionedValidator reader = validation.createValidator(generator);
+    reader.beforeRead(42);
+    try {
+      reader.validate(42, old);
+      Assert.fail("Expected the stale value to be detected");
+    } catch (AssertionError e) {
+      Assert.assertTrue(e.getMessage().contains("stale"));
+    }
+  }
+
+  @Test
+  public void testWriteCommittedDuringTheReadIsNotRequired() {
+    VersionedValidation.VersionedValidator writer = validation.createValidator(generator);
+    VersionedValidation.VersionedValidator reader = validation.createValidator(generator);
+    reader.beforeRead(42);
+    writer.beginWrite(42);
+    writer.endWrite(42, true);
+    reader.validate(42, generator.generate(42));
+  }
+
+  @Test
+  public void testRemovedValueComingBackIsDetected() {
+    VersionedValidation.VersionedValidator writer = validation.createValidator(generator);
+    Object value = writer.beginWrite(7);
+    writer.endWrite(7, true);
+    writer.beginRemove(7);
+    writer.endWrite(7, true);
+    writer.beginWrite(7);
+    writer.endWrite(7, false);
+    Assert.assertEquals(2, validation.committedVersion(7));
+
+    VersionedValidation.VersionedValidator reader = validation.createValidator(generator);
+    reader.beforeRead(7);
+    try {
+      reader.validate(7, value);
+      Assert.fail("Expected the removed value to be detected");
+    } catch (AssertionError e) {
+      Assert.assertTrue(e.getMessage().contains("stale"));
+    }
+  }
+
+  @Test
+  public void testRemoveOfTheKeyReservesAVersion() {
+    VersionedValidation.VersionedValidator writer = validation.createValidator(generator);
+    Object value = writer.beginWrite(9);
+    writer.endWrite(9, true);
+    writer.beginRemoveKey(9);
+    writer.endWrite(9, true);
+    Assert.assertEquals(2, validation.committedVersion(9));
+
+    VersionedValidation.VersionedValidator reader = validation.createValidator(generator);
+    reader.beforeRead(9);
+    try {
+      reader.validate(9, value);
+      Assert.fail("Expected the removed value to be detected");
+    } catch (AssertionError e) {
+      Assert.assertTrue(e.getMessage().contains("stale"));
+    }
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testVersionNeverWrittenIsDetected() {
+    validation.createValidator(generator).validate(3, generator.generate(3, 1));
+  }
+
+  @Test
+  public void testConcurrentUpdatesAreValid() {
+    int keyspace = 1000;
+    GenericCacheWrapper cache = concurrentMap("versioned");
+    CacheLoader.load(cache)
+        .using(KeyGenerator.longs(keyspace), generator)
+        .sequentially()
+        .iterate(keyspace)
+        .run();
+
+    CacheAccessor accessor = CacheAccessor.access(cache)
+        .using(KeyGenerator.longs(keyspace), generator)
+        .atRandom(Distribution.GAUSSIAN, 0, keyspace, 10)
+        .doOps(get(0.6), update(0.2), replace(0.1), remove(0.05), putIfAbsent(0.05))
+        .validateUsing(new VersionedValidation(keyspace))
+        .iterate(20000);
+    ParallelDriver.inParallel(4, accessor).run();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBatchOperationsAreRejected() {
+    CacheAccessor.access(concurrentMap("batch"))
+        .using(KeyGenerator.longs(10), generator)
+        .sequentially()
+        .doOps(getAll(0.5, 5))
+        .validateUsing(new VersionedValidation(10))
+        .iterate(10)
+        .run();
+  }
+}